@@ -0,0 +1,145 @@
+package com.editor.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 基准测试数据生成器，所有数据由固定种子生成，每次运行完全相同
+ */
+public final class DataGenerator {
+    public static final long SEED = 20240601L;
+
+    private static final String LETTERS = "etaoinshrdlcumwfgypbvkjxqz";
+
+    private DataGenerator() {
+    }
+
+    public static Random random() {
+        return new Random(SEED);
+    }
+
+    /**
+     * 生成一个由小写字母组成的单词，字母按英文字母频率的近似分布选取
+     */
+    public static String word(Random random, int minLength, int maxLength) {
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            // 平方后偏向常用字母
+            double r = random.nextDouble();
+            sb.append(LETTERS.charAt((int) (r * r * LETTERS.length())));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 生成 size 个不重复的单词
+     */
+    public static List<String> dictionary(int size) {
+        Random random = random();
+        Set<String> words = new LinkedHashSet<>();
+        while (words.size() < size) {
+            words.add(word(random, 3, 12));
+        }
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * 由词表中的单词组成的一行文本，每 typoEvery 个单词把一个单词改错一个字母
+     */
+    public static String sentence(Random random, List<String> words, int wordCount, int typoEvery) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) {
+                sb.append(i % 12 == 0 ? ". " : " ");
+            }
+            String word = words.get(random.nextInt(words.size()));
+            if (typoEvery > 0 && i % typoEvery == typoEvery - 1) {
+                word = typo(random, word);
+            }
+            sb.append(word);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 替换单词中的一个字母
+     */
+    public static String typo(Random random, String word) {
+        char[] chars = word.toCharArray();
+        int at = random.nextInt(chars.length);
+        chars[at] = chars[at] == 'z' ? 'a' : (char) (chars[at] + 1);
+        return new String(chars);
+    }
+
+    /**
+     * 生成 lineCount 行、每行 lineLength 个字符的文本
+     */
+    public static List<String> lines(int lineCount, int lineLength) {
+        Random random = random();
+        List<String> lines = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            StringBuilder sb = new StringBuilder(lineLength);
+            while (sb.length() < lineLength) {
+                sb.append(word(random, 2, 9)).append(' ');
+            }
+            sb.setLength(lineLength);
+            lines.add(sb.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * 写出包含 elementCount 个元素的 XML 文档
+     * 树的每层最多 FANOUT 个子元素，叶子元素带属性和文本，深度随元素数对数增长
+     */
+    public static void writeXml(Path path, int elementCount) throws IOException {
+        Random random = random();
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            int[] next = {0};
+            writeElement(out, random, elementCount, next, 0);
+        }
+    }
+
+    private static final int FANOUT = 64;
+
+    /**
+     * 写出一个包含 count 个元素（含自身）的子树
+     */
+    private static void writeElement(BufferedWriter out, Random random, int count, int[] next, int depth)
+            throws IOException {
+        int id = next[0]++;
+        indent(out, depth);
+        if (count == 1) {
+            out.write("<item id=\"e" + id + "\" price=\"" + random.nextInt(1000) + "\">"
+                    + word(random, 3, 10) + " " + word(random, 3, 10) + "</item>\n");
+            return;
+        }
+        out.write("<group id=\"e" + id + "\" name=\"" + word(random, 4, 8) + "\">\n");
+        int remaining = count - 1;
+        int children = Math.min(FANOUT, remaining);
+        for (int i = 0; i < children; i++) {
+            // 剩余元素尽量平均分给各个子树
+            int size = remaining / (children - i);
+            writeElement(out, random, size, next, depth + 1);
+            remaining -= size;
+        }
+        indent(out, depth);
+        out.write("</group>\n");
+    }
+
+    private static void indent(BufferedWriter out, int depth) throws IOException {
+        for (int i = 0; i < depth; i++) {
+            out.write("  ");
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.editor.benchmark;
+
+import com.editor.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logger.logCommand 的吞吐量，比较异步和同步写入
+ * 异步模式测量的是提交日志的速度，每轮结束时等待全部写出（不计入测量时间）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggerBenchmark {
+    @Param({"true", "false"})
+    public boolean async;
+
+    private Path dir;
+    private Logger logger;
+    private String filePath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("log-bench");
+        filePath = dir.resolve("bench.txt").toString();
+        logger = new Logger(async, 256, 50);
+        logger.enableLog(filePath);
+    }
+
+    @TearDown(Level.Iteration)
+    public void flush() {
+        logger.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        logger.closeAll();
+        try (java.util.stream.Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void logCommand() {
+        logger.logCommand(filePath, "insert 12:4 \"benchmark text\"");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void logCommandContended() {
+        logger.logCommand(filePath, "insert 12:4 \"benchmark text\"");
+    }
+}
@@ -0,0 +1,80 @@
+package com.editor.benchmark;
+
+import com.editor.spellcheck.Dictionary;
+import com.editor.spellcheck.SimpleSpellChecker;
+import com.editor.spellcheck.SpellError;
+import com.editor.spellcheck.SymSpellChecker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 拼写检查和拼写建议的耗时，比较小字典和大字典
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SpellCheckerBenchmark {
+    @Param({"1000", "100000"})
+    public int dictionarySize;
+
+    private SimpleSpellChecker simple;
+    private SymSpellChecker symSpell;
+    private String text;
+    private String[] typos;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<String> words = DataGenerator.dictionary(dictionarySize);
+        Dictionary dictionary = Dictionary.of(words);
+        simple = new SimpleSpellChecker(dictionary);
+        symSpell = new SymSpellChecker(dictionary);
+        Random random = DataGenerator.random();
+        // 一段约1000个单词的文本，每20个单词有一个拼写错误
+        text = DataGenerator.sentence(random, words, 1000, 20);
+        typos = new String[256];
+        for (int i = 0; i < typos.length; i++) {
+            typos[i] = DataGenerator.typo(random, words.get(random.nextInt(words.size())));
+        }
+    }
+
+    private String nextTypo() {
+        return typos[next++ & (typos.length - 1)];
+    }
+
+    @Benchmark
+    public List<SpellError> simpleCheckSpelling() {
+        return simple.checkSpelling(text);
+    }
+
+    @Benchmark
+    public String simpleGetSuggestion() {
+        return simple.getSuggestion(nextTypo());
+    }
+
+    @Benchmark
+    public List<SpellError> symSpellCheckSpelling() {
+        return symSpell.checkSpelling(text);
+    }
+
+    @Benchmark
+    public String symSpellGetSuggestion() {
+        return symSpell.getSuggestion(nextTypo());
+    }
+}
@@ -0,0 +1,66 @@
+package com.editor.benchmark;
+
+import com.editor.editor.TextEditor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TextEditor 行内编辑的耗时，分别在短行和超长行上测量
+ * 每次调用都成对地修改再恢复，文档大小在测量过程中保持不变。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextEditorBenchmark {
+    @Param({"80", "1000000"})
+    public int lineLength;
+
+    @Param({"10000"})
+    public int lineCount;
+
+    private TextEditor editor;
+    private int middleLine;
+    private int middleColumn;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        editor = new TextEditor("bench.txt");
+        // 超长行时只生成少量行，避免占用过多内存
+        int lines = lineLength > 10000 ? 16 : lineCount;
+        editor.setLines(DataGenerator.lines(lines, lineLength));
+        middleLine = lines / 2 + 1;
+        middleColumn = lineLength / 2 + 1;
+    }
+
+    @Benchmark
+    public void insertDelete() {
+        editor.insert(middleLine, middleColumn, "abc");
+        editor.delete(middleLine, middleColumn, 3);
+    }
+
+    @Benchmark
+    public void replace() {
+        // 等长替换，内容不变
+        editor.replace(middleLine, middleColumn, 3, "xyz");
+    }
+
+    @Benchmark
+    public String getLine() {
+        return editor.getBuffer().getLine(middleLine - 1);
+    }
+}
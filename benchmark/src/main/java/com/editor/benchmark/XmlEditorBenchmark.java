@@ -0,0 +1,78 @@
+package com.editor.benchmark;
+
+import com.editor.editor.XmlDocument;
+import com.editor.editor.XmlEditor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * XmlEditor 加载和保存生成文档的耗时，以及解析为紧凑模型 XmlDocument 的耗时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class XmlEditorBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int elements;
+
+    private Path dir;
+    private Path source;
+    private XmlEditor loaded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("xml-bench");
+        source = dir.resolve("doc.xml");
+        DataGenerator.writeXml(source, elements);
+        loaded = new XmlEditor(source.toString());
+        loaded.loadFromFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (java.util.stream.Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public XmlEditor load() throws IOException {
+        XmlEditor editor = new XmlEditor(source.toString());
+        editor.loadFromFile();
+        return editor;
+    }
+
+    @Benchmark
+    public XmlDocument loadCompact() throws IOException {
+        return XmlDocument.parse(Files.readString(source, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        // 保存到原文件：原子替换，内容与生成的文档等价
+        loaded.save();
+    }
+}
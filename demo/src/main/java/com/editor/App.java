@@ -1,5 +1,15 @@
 package com.editor;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Console;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 import com.editor.command.CommandParser;
@@ -8,13 +18,42 @@ import com.editor.workspace.Workspace;
 
 /**
  * 文本编辑器主程序
+ * 用法: App [--script <file>] [--headless] [--timing] [--fail-fast]
+ *          [--async-log] [--log-batch N] [--log-flush-ms N] [--log-sync-on-save]
+ * 指定脚本、--headless 或标准输入不是终端时以非交互模式运行，退出码见 {@link ScriptRunner}。
+ * --async-log 让日志由后台线程批量写出，适合大量编辑命令的脚本；
+ * --log-batch 和 --log-flush-ms 设置批大小和最长刷新间隔，--log-sync-on-save 在保存文件时等待日志落盘。
  */
 public class App {
+    private static final String USAGE = "用法: App [--script <file>] [--headless] [--timing] [--fail-fast]"
+            + " [--async-log] [--log-batch N] [--log-flush-ms N] [--log-sync-on-save]";
+
     public static void main(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("错误: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(ScriptRunner.EXIT_ERROR);
+            return;
+        }
+        boolean headless = options.headless;
+        // 标准输入被重定向（管道或文件）时以非交互模式运行；只重定向标准输出时仍然交互
+        if (!isStdinTerminal()) {
+            headless = true;
+        }
+
         Workspace workspace = new Workspace();
-        Logger logger = new Logger();
+        Logger logger = options.createLogger();
         CommandParser parser = new CommandParser(workspace, logger);
 
+        if (headless) {
+            System.exit(runHeadless(parser, workspace, logger, options.script, options.timing, options.failFast));
+        }
+
+        parser.setOutput(System.out::println);
+
         System.out.println("文本编辑器 v1.0");
         System.out.println("输入 'exit' 退出程序");
         System.out.println();
@@ -42,4 +81,136 @@ public class App {
             }
         }
     }
+
+    /**
+     * 标准输入是否来自终端
+     * JDK 21 及以前，System.console() 在标准输入或标准输出任一被重定向时为 null；
+     * JDK 22 起它总是非 null，要用 Console.isTerminal() 判断（编译目标是 21，通过反射调用）。
+     * 不能确定时在类 Unix 系统上通过 /dev/stdin 指向的设备判断标准输入本身。
+     */
+    private static boolean isStdinTerminal() {
+        Console console = System.console();
+        if (console != null && isTerminal(console)) {
+            return true;
+        }
+        try {
+            String device = Paths.get("/dev/stdin").toRealPath().toString();
+            return device.startsWith("/dev/pts/") || device.startsWith("/dev/tty");
+        } catch (IOException | RuntimeException e) {
+            // 管道没有对应的路径；无法判断的平台按非交互处理
+            return false;
+        }
+    }
+
+    private static boolean isTerminal(Console console) {
+        try {
+            return (Boolean) Console.class.getMethod("isTerminal").invoke(console);
+        } catch (NoSuchMethodException e) {
+            // JDK 21 及以前：有控制台就说明输入输出都是终端
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static int runHeadless(CommandParser parser, Workspace workspace, Logger logger,
+                                   String script, boolean timing, boolean failFast) {
+        ScriptRunner runner = new ScriptRunner(parser);
+        runner.setTiming(timing);
+        runner.setFailFast(failFast);
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 64 * 1024);
+        Writer diagnostics = new BufferedWriter(new OutputStreamWriter(System.err, StandardCharsets.UTF_8));
+        try (BufferedReader in = script != null
+                ? Files.newBufferedReader(Paths.get(script), StandardCharsets.UTF_8)
+                : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 64 * 1024)) {
+            return runner.run(in, out, diagnostics);
+        } catch (IOException e) {
+            System.err.println("错误: 无法读取脚本: " + e.getMessage());
+            return ScriptRunner.EXIT_ERROR;
+        } finally {
+            // 脚本没有以 exit 结束时也要写出剩余的日志
+            workspace.getStatistics().stopAll();
+            logger.closeAll();
+        }
+    }
+
+    /**
+     * 命令行参数
+     */
+    static final class Options {
+        String script;
+        boolean headless;
+        boolean timing;
+        boolean failFast;
+        boolean asyncLog;
+        int logBatchSize = Logger.DEFAULT_BATCH_SIZE;
+        long logFlushMillis = Logger.DEFAULT_FLUSH_INTERVAL_MS;
+        boolean logSyncOnSave;
+
+        /**
+         * @throws IllegalArgumentException 未知参数或参数值无效
+         */
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--script":
+                        options.script = value(args, ++i, "--script 缺少文件路径");
+                        options.headless = true;
+                        break;
+                    case "--headless":
+                        options.headless = true;
+                        break;
+                    case "--timing":
+                        options.timing = true;
+                        break;
+                    case "--fail-fast":
+                        options.failFast = true;
+                        break;
+                    case "--async-log":
+                        options.asyncLog = true;
+                        break;
+                    case "--log-batch":
+                        options.logBatchSize = positive(value(args, ++i, "--log-batch 缺少参数"), "--log-batch");
+                        options.asyncLog = true;
+                        break;
+                    case "--log-flush-ms":
+                        options.logFlushMillis = positive(value(args, ++i, "--log-flush-ms 缺少参数"), "--log-flush-ms");
+                        options.asyncLog = true;
+                        break;
+                    case "--log-sync-on-save":
+                        options.logSyncOnSave = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知参数 " + args[i]);
+                }
+            }
+            return options;
+        }
+
+        Logger createLogger() {
+            Logger logger = new Logger(asyncLog, logBatchSize, logFlushMillis);
+            logger.setSyncOnSave(logSyncOnSave);
+            return logger;
+        }
+
+        private static String value(String[] args, int i, String message) {
+            if (i >= args.length) {
+                throw new IllegalArgumentException(message);
+            }
+            return args[i];
+        }
+
+        private static int positive(String text, String option) {
+            try {
+                int value = Integer.parseInt(text);
+                if (value > 0) {
+                    return value;
+                }
+            } catch (NumberFormatException e) {
+                // 下面统一报错
+            }
+            throw new IllegalArgumentException(option + " 应为正整数: " + text);
+        }
+    }
 }
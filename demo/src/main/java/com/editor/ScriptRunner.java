@@ -0,0 +1,143 @@
+package com.editor;
+
+import com.editor.command.CommandParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * 非交互模式：逐行执行脚本中的命令，不输出提示符
+ * 结果写入缓冲的输出流，每隔一段时间以及输入暂时没有数据时刷新；计时和汇总写入单独的诊断流。
+ * 空行和以 # 开头的行被忽略，遇到 exit 命令时停止。
+ */
+public class ScriptRunner {
+    public static final int EXIT_OK = 0;
+    // 至少一条命令执行失败
+    public static final int EXIT_FAILED = 1;
+    // 参数错误或无法读取脚本
+    public static final int EXIT_ERROR = 2;
+
+    private static final long FLUSH_INTERVAL_NANOS = 200_000_000L;
+
+    private final CommandParser parser;
+    private boolean timing;
+    private boolean failFast;
+    private int executed;
+    private int failed;
+
+    public ScriptRunner(CommandParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * 是否为每条命令输出耗时
+     */
+    public void setTiming(boolean timing) {
+        this.timing = timing;
+    }
+
+    /**
+     * 是否在第一条失败的命令后停止
+     */
+    public void setFailFast(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    public int getExecutedCount() {
+        return executed;
+    }
+
+    public int getFailedCount() {
+        return failed;
+    }
+
+    /**
+     * 执行输入中的全部命令
+     * @param in 命令来源
+     * @param out 命令结果
+     * @param diagnostics 计时和汇总信息
+     * @return 退出码
+     */
+    public int run(BufferedReader in, Writer out, Writer diagnostics) throws IOException {
+        parser.setOutput(line -> {
+            try {
+                out.write(line);
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        long begin = System.nanoTime();
+        long lastFlush = begin;
+        int lineNumber = 0;
+        try {
+            while (true) {
+                if (!in.ready()) {
+                    // 下一次读取可能阻塞（如管道另一端在等我们的输出），先把已有结果写出
+                    out.flush();
+                    diagnostics.flush();
+                    lastFlush = System.nanoTime();
+                }
+                String line = in.readLine();
+                if (line == null) {
+                    break;
+                }
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                String result = parser.execute(line);
+                long end = System.nanoTime();
+                executed++;
+                if ("exit".equals(result)) {
+                    break;
+                }
+                if (!result.isEmpty()) {
+                    out.write(result);
+                    if (!result.endsWith("\n")) {
+                        out.write('\n');
+                    }
+                }
+                boolean failure = isFailure(result);
+                if (timing) {
+                    diagnostics.write(String.format("[%d] %.3f ms %s%s%n", lineNumber, (end - start) / 1e6,
+                            commandName(line), failure ? " (失败)" : ""));
+                }
+                if (failure) {
+                    failed++;
+                    if (failFast) {
+                        diagnostics.write("第" + lineNumber + "行命令失败，已停止\n");
+                        break;
+                    }
+                }
+                if (end - lastFlush >= FLUSH_INTERVAL_NANOS) {
+                    out.flush();
+                    diagnostics.flush();
+                    lastFlush = end;
+                }
+            }
+            if (timing) {
+                diagnostics.write(String.format("共%d条命令，失败%d条，耗时 %.3f ms%n",
+                        executed, failed, (System.nanoTime() - begin) / 1e6));
+            }
+        } finally {
+            parser.setOutput(null);
+            out.flush();
+            diagnostics.flush();
+        }
+        return failed > 0 ? EXIT_FAILED : EXIT_OK;
+    }
+
+    private static boolean isFailure(String result) {
+        return result.startsWith("错误") || result.startsWith("未知命令");
+    }
+
+    private static String commandName(String line) {
+        int space = line.indexOf(' ');
+        return space < 0 ? line : line.substring(0, space);
+    }
+}
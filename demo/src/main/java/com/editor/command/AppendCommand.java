@@ -1,38 +1,110 @@
 package com.editor.command;
 
+import com.editor.editor.TextBuffer;
 import com.editor.editor.TextEditor;
+
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * 追加命令
+ * 默认每条追加单独撤销；以 mergeable 创建的追加（如逐行输入）可以并入紧邻的上一条追加，
+ * 合并的行数有上限，避免一次撤销删掉大段内容。
  */
 public class AppendCommand implements Command {
+    // 一条追加命令最多合并的行数
+    static final int MAX_MERGED_LINES = 100;
+
     private final TextEditor editor;
-    private final String text;
+    private final boolean mergeable;
+    // 连续追加合并后包含多行
+    private final List<String> texts;
+    // 执行前的快照
+    private TextBuffer.Snapshot before;
 
     public AppendCommand(TextEditor editor, String text) {
+        this(editor, text, false);
+    }
+
+    /**
+     * @param mergeable 是否允许并入紧邻的上一条追加，一起撤销
+     */
+    public AppendCommand(TextEditor editor, String text, boolean mergeable) {
         this.editor = editor;
-        this.text = text;
+        this.mergeable = mergeable;
+        this.texts = new ArrayList<>();
+        this.texts.add(text);
     }
 
     @Override
     public void execute() {
-        editor.append(text);
+        before = editor.snapshot();
+        for (String text : texts) {
+            editor.append(text);
+        }
     }
 
     @Override
     public void undo() {
-        // 删除最后一行
-        List<String> lines = editor.getMutableLines();
-        if (!lines.isEmpty()) {
-            lines.remove(lines.size() - 1);
+        if (editor.restoreSnapshot(before)) {
+            return;
+        }
+        // 删除追加的行，文本中的每个 '\n' 又多追加了一行
+        int count = 0;
+        for (String text : texts) {
+            count += 1 + (text == null ? 0 : InsertCommand.countLineBreaks(text));
+        }
+        TextBuffer buffer = editor.getBuffer();
+        for (int i = 0; i < count && buffer.getLineCount() > 0; i++) {
+            buffer.removeLine(buffer.getLineCount() - 1);
             editor.setModified(true);
         }
     }
 
+    @Override
+    public String getName() {
+        return "append";
+    }
+
     @Override
     public boolean canUndo() {
         return true;
     }
+
+    @Override
+    public long estimateSize() {
+        long size = 48;
+        for (String text : texts) {
+            size += 40 + 2L * (text == null ? 0 : text.length());
+        }
+        return size;
+    }
+
+    @Override
+    public boolean merge(Command next) {
+        if (!(next instanceof AppendCommand)) {
+            return false;
+        }
+        AppendCommand other = (AppendCommand) next;
+        if (!other.mergeable || other.editor != editor
+                || texts.size() + other.texts.size() > MAX_MERGED_LINES) {
+            return false;
+        }
+        texts.addAll(other.texts);
+        return true;
+    }
+
+    List<String> getTexts() {
+        return texts;
+    }
+
+    /**
+     * 从撤销日志恢复已执行过的命令
+     */
+    static AppendCommand restore(TextEditor editor, List<String> texts) {
+        AppendCommand command = new AppendCommand(editor, texts.get(0));
+        command.texts.addAll(texts.subList(1, texts.size()));
+        return command;
+    }
 }
 
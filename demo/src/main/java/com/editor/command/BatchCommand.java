@@ -0,0 +1,88 @@
+package com.editor.command;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 复合命令：一组已按顺序执行的命令，在撤销历史中作为一条记录，一次撤销或重做
+ * 编辑器能整体恢复批量执行前后的文档时（如文本快照），撤销和重做直接恢复，不逐条重放。
+ */
+public class BatchCommand implements Command {
+    private final List<Command> commands;
+    private final BooleanSupplier restoreBefore;
+    private final BooleanSupplier restoreAfter;
+
+    public BatchCommand(List<Command> commands) {
+        this(commands, () -> false, () -> false);
+    }
+
+    /**
+     * @param restoreBefore 把文档恢复到批量执行前，返回 false 时逐条撤销
+     * @param restoreAfter 把文档恢复到批量执行后，返回 false 时逐条重新执行
+     */
+    public BatchCommand(List<Command> commands, BooleanSupplier restoreBefore, BooleanSupplier restoreAfter) {
+        this.commands = new ArrayList<>(commands);
+        this.restoreBefore = restoreBefore;
+        this.restoreAfter = restoreAfter;
+    }
+
+    @Override
+    public void execute() {
+        if (restoreAfter.getAsBoolean()) {
+            return;
+        }
+        int executed = 0;
+        try {
+            for (Command command : commands) {
+                command.execute();
+                executed++;
+            }
+        } catch (RuntimeException e) {
+            // 撤销已执行的部分，保证要么全部生效要么都不生效
+            for (int i = executed - 1; i >= 0; i--) {
+                commands.get(i).undo();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void undo() {
+        if (restoreBefore.getAsBoolean()) {
+            return;
+        }
+        for (int i = commands.size() - 1; i >= 0; i--) {
+            commands.get(i).undo();
+        }
+    }
+
+    @Override
+    public boolean canUndo() {
+        for (Command command : commands) {
+            if (!command.canUndo()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return "batch";
+    }
+
+    @Override
+    public long estimateSize() {
+        long size = 32 + 8L * commands.size();
+        for (Command command : commands) {
+            size += command.estimateSize();
+        }
+        return size;
+    }
+
+    public List<Command> getCommands() {
+        return Collections.unmodifiableList(commands);
+    }
+}
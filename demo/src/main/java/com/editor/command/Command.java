@@ -7,6 +7,28 @@ public interface Command {
     void execute();
     void undo();
     boolean canUndo();
+
+    /**
+     * 命令名称，用于记录版本历史
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * 估算命令在撤销历史中占用的内存（字节）
+     */
+    default long estimateSize() {
+        return 64;
+    }
+
+    /**
+     * 尝试把紧接着执行的命令合并到本命令中，合并后一次撤销两者
+     * @return 是否已合并
+     */
+    default boolean merge(Command next) {
+        return false;
+    }
 }
 
 
@@ -0,0 +1,176 @@
+package com.editor.command;
+
+/**
+ * 命令参数的单遍扫描器，直接在输入字符串上移动位置，不使用正则表达式
+ * 参数以空白分隔；"行号:列号" 用 nextInt()、expect(':')、nextInt() 读取；
+ * 文本参数是剩余的全部内容，首尾的双引号会被去掉。
+ */
+public class CommandArgs {
+    private final String input;
+    private final int start;
+    private int position;
+
+    public CommandArgs(String input) {
+        this(input, 0);
+    }
+
+    /**
+     * @param input 整行命令
+     * @param position 参数开始的位置（命令名之后）
+     */
+    public CommandArgs(String input, int position) {
+        this.input = input;
+        this.start = position;
+        this.position = position;
+    }
+
+    /**
+     * 是否还有参数
+     */
+    public boolean hasNext() {
+        skipWhitespace();
+        return position < input.length();
+    }
+
+    public boolean isEmpty() {
+        return !hasNext();
+    }
+
+    /**
+     * 下一个以空白分隔的参数，没有参数时返回 null
+     */
+    public String next() {
+        if (!hasNext()) {
+            return null;
+        }
+        int from = position;
+        while (position < input.length() && !Character.isWhitespace(input.charAt(position))) {
+            position++;
+        }
+        return input.substring(from, position);
+    }
+
+    /**
+     * 读取一个十进制整数，整数之后可以紧跟其他字符（如 "3:5" 中的 ':'）
+     * @throws IllegalArgumentException 当前位置不是整数
+     */
+    public int nextInt() {
+        if (!hasNext()) {
+            throw new IllegalArgumentException("缺少数字参数");
+        }
+        int from = position;
+        boolean negative = false;
+        if (input.charAt(position) == '-' || input.charAt(position) == '+') {
+            negative = input.charAt(position) == '-';
+            position++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (position < input.length()) {
+            char c = input.charAt(position);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw new IllegalArgumentException("数字超出范围: " + word(from));
+            }
+            position++;
+            digits++;
+        }
+        value = negative ? -value : value;
+        if (digits == 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("应为数字: " + word(from));
+        }
+        return (int) value;
+    }
+
+    /**
+     * 要求当前位置是指定字符并跳过它
+     * @throws IllegalArgumentException 当前位置不是该字符
+     */
+    public void expect(char c) {
+        if (position >= input.length() || input.charAt(position) != c) {
+            throw new IllegalArgumentException("格式错误，缺少 '" + c + "'");
+        }
+        position++;
+    }
+
+    /**
+     * 剩余的全部内容作为文本，首尾都是双引号时去掉引号；没有剩余内容时返回空串
+     */
+    public String text() {
+        String rest = rest();
+        if (rest.length() >= 2 && rest.charAt(0) == '"' && rest.charAt(rest.length() - 1) == '"') {
+            return rest.substring(1, rest.length() - 1);
+        }
+        return rest;
+    }
+
+    /**
+     * 剩余的全部内容（去掉首尾空白），读取后不再有参数
+     */
+    public String rest() {
+        skipWhitespace();
+        int end = input.length();
+        while (end > position && Character.isWhitespace(input.charAt(end - 1))) {
+            end--;
+        }
+        String rest = input.substring(position, end);
+        position = input.length();
+        return rest;
+    }
+
+    /**
+     * 读取一个 key="value" 形式的属性，结果为 {key, value}；格式不符时返回 null 且不移动位置
+     */
+    public String[] nextAttribute() {
+        if (!hasNext()) {
+            return null;
+        }
+        int from = position;
+        int i = position;
+        while (i < input.length() && isNameChar(input.charAt(i))) {
+            i++;
+        }
+        if (i == from || i + 1 >= input.length() || input.charAt(i) != '=' || input.charAt(i + 1) != '"') {
+            return null;
+        }
+        int close = input.indexOf('"', i + 2);
+        if (close < 0) {
+            return null;
+        }
+        position = close + 1;
+        return new String[]{input.substring(from, i), input.substring(i + 2, close)};
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+    }
+
+    private void skipWhitespace() {
+        while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+            position++;
+        }
+    }
+
+    private String word(int from) {
+        int end = from;
+        while (end < input.length() && !Character.isWhitespace(input.charAt(end))) {
+            end++;
+        }
+        return input.substring(from, end);
+    }
+
+    /**
+     * 命令名之后的全部原始参数（去掉首尾空白），与已读取的位置无关
+     */
+    public String raw() {
+        return input.substring(start).trim();
+    }
+
+    @Override
+    public String toString() {
+        return raw();
+    }
+}
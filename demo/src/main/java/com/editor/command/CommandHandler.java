@@ -0,0 +1,14 @@
+package com.editor.command;
+
+/**
+ * 命令处理器，在 CommandParser 中按命令名注册
+ */
+@FunctionalInterface
+public interface CommandHandler {
+    /**
+     * 执行命令
+     * @param args 命令名之后的参数
+     * @return 显示给用户的结果，以 "错误" 开头表示失败
+     */
+    String execute(CommandArgs args) throws Exception;
+}
@@ -0,0 +1,273 @@
+package com.editor.command;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * 撤销/重做历史
+ * 按估算的内存占用限制历史大小：超出预算时，最早的撤销记录若能编码则写入磁盘日志，
+ * 撤销到那里时再读回；不能编码的记录（以及比它更早的日志）直接丢弃。
+ * 连续的同类命令（如连续输入、连续追加）会合并为一条记录，一次撤销。
+ */
+public class CommandHistory implements Closeable {
+    public static final long DEFAULT_MEMORY_BUDGET = 16L * 1024 * 1024;
+
+    /**
+     * 命令与日志记录之间的编码
+     */
+    public interface Codec {
+        boolean canEncode(Command command);
+
+        void encode(Command command, DataOutput out) throws IOException;
+
+        Command decode(DataInput in) throws IOException;
+    }
+
+    // 两个栈的栈顶都在队尾
+    private final ArrayDeque<Entry> undoEntries;
+    private final ArrayDeque<Entry> redoEntries;
+    private long memoryBudget;
+    private long memoryUsed;
+    private boolean coalescing;
+    private Codec codec;
+
+    // 磁盘日志：按时间顺序保存比内存中更早的撤销记录，offsets 是每条记录的起始位置
+    private Path journalPath;
+    private FileChannel journal;
+    private long[] offsets;
+    private int spilled;
+
+    public CommandHistory() {
+        this(DEFAULT_MEMORY_BUDGET);
+    }
+
+    public CommandHistory(long memoryBudget) {
+        this.undoEntries = new ArrayDeque<>();
+        this.redoEntries = new ArrayDeque<>();
+        this.coalescing = true;
+        this.offsets = new long[16];
+        setMemoryBudget(memoryBudget);
+    }
+
+    public void setMemoryBudget(long memoryBudget) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("内存预算不能为负数: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+        enforceBudget();
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * 当前在内存中的历史的估算大小（字节）
+     */
+    public long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    public void setCoalescing(boolean coalescing) {
+        this.coalescing = coalescing;
+    }
+
+    public boolean isCoalescing() {
+        return coalescing;
+    }
+
+    /**
+     * 设置编码器后超出预算的记录写入磁盘，否则直接丢弃
+     */
+    public void setCodec(Codec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * 写入磁盘日志的记录数
+     */
+    public int getSpilledCount() {
+        return spilled;
+    }
+
+    /**
+     * 记录一条已执行的命令，并清空重做栈
+     */
+    public void push(Command command) {
+        for (Entry entry : redoEntries) {
+            memoryUsed -= entry.size;
+        }
+        redoEntries.clear();
+        Entry top = undoEntries.peekLast();
+        if (coalescing && top != null && top.command.merge(command)) {
+            memoryUsed -= top.size;
+            top.size = top.command.estimateSize();
+            memoryUsed += top.size;
+        } else {
+            Entry entry = new Entry(command);
+            undoEntries.addLast(entry);
+            memoryUsed += entry.size;
+        }
+        enforceBudget();
+    }
+
+    public boolean canUndo() {
+        return !undoEntries.isEmpty() || spilled > 0;
+    }
+
+    public boolean canRedo() {
+        return !redoEntries.isEmpty();
+    }
+
+    /**
+     * 撤销最近的命令，没有可撤销的命令时返回 false
+     */
+    public boolean undo() {
+        if (undoEntries.isEmpty() && spilled > 0) {
+            pageIn();
+        }
+        Entry entry = undoEntries.pollLast();
+        if (entry == null) {
+            return false;
+        }
+        entry.command.undo();
+        redoEntries.addLast(entry);
+        enforceBudget();
+        return true;
+    }
+
+    /**
+     * 重做最近撤销的命令，没有可重做的命令时返回 false
+     */
+    public boolean redo() {
+        Entry entry = redoEntries.pollLast();
+        if (entry == null) {
+            return false;
+        }
+        entry.command.execute();
+        undoEntries.addLast(entry);
+        enforceBudget();
+        return true;
+    }
+
+    /**
+     * 清空全部历史并删除磁盘日志
+     */
+    public void clear() {
+        undoEntries.clear();
+        redoEntries.clear();
+        memoryUsed = 0;
+        discardJournal();
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+
+    private void enforceBudget() {
+        while (memoryUsed > memoryBudget) {
+            Entry oldest = undoEntries.pollFirst();
+            if (oldest == null) {
+                // 只剩重做记录，丢弃离当前状态最远的
+                oldest = redoEntries.pollFirst();
+                if (oldest == null) {
+                    return;
+                }
+            } else if (codec != null && codec.canEncode(oldest.command)) {
+                spill(oldest.command);
+            } else {
+                // 丢掉一条后更早的记录已无法按顺序撤销
+                discardJournal();
+            }
+            memoryUsed -= oldest.size;
+        }
+    }
+
+    private void spill(Command command) {
+        try {
+            if (journal == null) {
+                journalPath = Files.createTempFile("undo-", ".journal");
+                journalPath.toFile().deleteOnExit();
+                journal = FileChannel.open(journalPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            codec.encode(command, new DataOutputStream(bytes));
+            long position = journal.size();
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                journal.write(buffer, position + buffer.position());
+            }
+            if (spilled == offsets.length) {
+                offsets = Arrays.copyOf(offsets, spilled * 2);
+            }
+            offsets[spilled++] = position;
+        } catch (IOException e) {
+            // 写不了磁盘时退化为丢弃
+            System.err.println("警告: 写入撤销日志失败: " + e.getMessage());
+            discardJournal();
+        }
+    }
+
+    /**
+     * 从日志末尾读回最近写入的一条记录
+     */
+    private void pageIn() {
+        try {
+            long start = offsets[spilled - 1];
+            ByteBuffer buffer = ByteBuffer.allocate((int) (journal.size() - start));
+            while (buffer.hasRemaining()) {
+                if (journal.read(buffer, start + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            Command command = codec.decode(new DataInputStream(new ByteArrayInputStream(buffer.array())));
+            journal.truncate(start);
+            spilled--;
+            Entry entry = new Entry(command);
+            undoEntries.addLast(entry);
+            memoryUsed += entry.size;
+        } catch (IOException e) {
+            discardJournal();
+            throw new UncheckedIOException("读取撤销日志失败", e);
+        }
+    }
+
+    private void discardJournal() {
+        spilled = 0;
+        if (journal != null) {
+            try {
+                journal.close();
+                Files.deleteIfExists(journalPath);
+            } catch (IOException e) {
+                System.err.println("警告: 删除撤销日志失败: " + e.getMessage());
+            }
+            journal = null;
+            journalPath = null;
+        }
+    }
+
+    private static class Entry {
+        final Command command;
+        long size;
+
+        Entry(Command command) {
+            this.command = command;
+            this.size = command.estimateSize();
+        }
+    }
+}
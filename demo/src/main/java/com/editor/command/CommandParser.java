@@ -1,35 +1,78 @@
 package com.editor.command;
 
 import com.editor.editor.Editor;
+import com.editor.editor.ReadOnlyXmlEditor;
+import com.editor.editor.TextBuffer;
 import com.editor.editor.TextEditor;
+import com.editor.editor.Version;
+import com.editor.editor.XmlDocument;
 import com.editor.editor.XmlEditor;
 import com.editor.editor.XmlElement;
+import com.editor.editor.XmlQuery;
 import com.editor.logging.Logger;
-import com.editor.spellcheck.SpellChecker;
+import com.editor.spellcheck.Dictionary;
+import com.editor.spellcheck.ParallelSpellChecker;
+import com.editor.spellcheck.SpellCheckCache;
 import com.editor.spellcheck.SpellError;
-import com.editor.spellcheck.SimpleSpellChecker;
+import com.editor.spellcheck.SymSpellChecker;
+import com.editor.spellcheck.XmlSpellError;
 import com.editor.workspace.Workspace;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 命令解析器
  */
 public class CommandParser {
+    // 批量执行中允许的编辑命令
+    private static final Set<String> BATCH_COMMANDS = new HashSet<>(Arrays.asList(
+            "append", "insert", "delete", "replace",
+            "insert-before", "append-child", "edit-id", "edit-text", "delete-element"));
+    // xml-tree 默认把前缀画到这一层，更深的元素标出层数；正常文档的输出不受影响
+    private static final int DEFAULT_TREE_DEPTH = 1000;
+
     private final Workspace workspace;
     private final Logger logger;
-    private final SpellChecker spellChecker;
+    private ParallelSpellChecker spellChecker;
+    // 每个编辑器一份拼写检查缓存，编辑器关闭后随之回收
+    private final Map<Editor, SpellCheckCache> spellCheckCaches;
+    // 命令执行过程中的即时输出，为 null 时结果全部放在返回值中
+    private Consumer<String> output;
+    // 批量执行中不逐条记录日志，结束时记录一条
+    private boolean batching;
+    // 命令名 -> 处理器
+    private final Map<String, CommandHandler> handlers;
 
     public CommandParser(Workspace workspace, Logger logger) {
         this.workspace = workspace;
         this.logger = logger;
-        this.spellChecker = new SimpleSpellChecker(); // 使用适配器模式
+        this.spellChecker = new ParallelSpellChecker(new SymSpellChecker()); // 使用适配器模式
+        this.spellCheckCaches = new WeakHashMap<>();
+        this.handlers = new HashMap<>();
+        registerBuiltinCommands();
         // 将logger注册为workspace的观察者
         workspace.attach(logger);
     }
@@ -38,80 +81,110 @@ public class CommandParser {
      * 解析并执行命令
      */
     public String execute(String input) {
-        if (input == null || input.trim().isEmpty()) {
+        if (input == null) {
             return "";
         }
-
-        String[] parts = input.trim().split("\\s+", 2);
-        String command = parts[0];
-        String args = parts.length > 1 ? parts[1] : "";
+        // 单遍扫描出命令名，其余部分交给处理器按需解析
+        int length = input.length();
+        int begin = 0;
+        while (begin < length && Character.isWhitespace(input.charAt(begin))) {
+            begin++;
+        }
+        if (begin == length) {
+            return "";
+        }
+        int end = begin;
+        while (end < length && !Character.isWhitespace(input.charAt(end))) {
+            end++;
+        }
+        String command = input.substring(begin, end);
+        CommandHandler handler = handlers.get(command);
+        if (handler == null) {
+            return "未知命令: " + command;
+        }
 
         try {
-            switch (command) {
-                case "load":
-                    return executeLoad(args);
-                case "save":
-                    return executeSave(args);
-                case "init":
-                    return executeInit(args);
-                case "close":
-                    return executeClose(args);
-                case "edit":
-                    return executeEdit(args);
-                case "editor-list":
-                    return executeEditorList();
-                case "dir-tree":
-                    return executeDirTree(args);
-                case "undo":
-                    return executeUndo();
-                case "redo":
-                    return executeRedo();
-                case "exit":
-                    return executeExit();
-                case "append":
-                    return executeAppend(args);
-                case "insert":
-                    return executeInsert(args);
-                case "delete":
-                    return executeDelete(args);
-                case "replace":
-                    return executeReplace(args);
-                case "show":
-                    return executeShow(args);
-                case "log-on":
-                    return executeLogOn(args);
-                case "log-off":
-                    return executeLogOff(args);
-                case "log-show":
-                    return executeLogShow(args);
-                case "insert-before":
-                    return executeInsertBefore(args);
-                case "append-child":
-                    return executeAppendChild(args);
-                case "edit-id":
-                    return executeEditId(args);
-                case "edit-text":
-                    return executeEditText(args);
-                case "delete-element":
-                    return executeDeleteElement(args);
-                case "xml-tree":
-                    return executeXmlTree(args);
-                case "spell-check":
-                    return executeSpellCheck(args);
-                default:
-                    return "未知命令: " + command;
-            }
+            return handler.execute(new CommandArgs(input, end));
         } catch (Exception e) {
             return "错误: " + e.getMessage();
         }
     }
 
-    private String executeLoad(String args) throws IOException {
-        if (args.isEmpty()) {
+    /**
+     * 注册命令，同名命令会被替换；插件可以通过它添加新命令
+     * @throws IllegalArgumentException 命令名为空或包含空白
+     */
+    public void register(String name, CommandHandler handler) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("命令名不能为空");
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.isWhitespace(name.charAt(i))) {
+                throw new IllegalArgumentException("命令名不能包含空白: " + name);
+            }
+        }
+        if (handler == null) {
+            throw new IllegalArgumentException("命令处理器不能为空");
+        }
+        handlers.put(name, handler);
+    }
+
+    /**
+     * 已注册的命令名
+     */
+    public Set<String> getCommandNames() {
+        return Collections.unmodifiableSet(handlers.keySet());
+    }
+
+    private void registerBuiltinCommands() {
+        register("load", this::executeLoad);
+        register("save", this::executeSave);
+        register("init", this::executeInit);
+        register("close", this::executeClose);
+        register("edit", this::executeEdit);
+        register("editor-list", args -> executeEditorList());
+        register("dir-tree", this::executeDirTree);
+        register("undo", args -> executeUndo());
+        register("redo", args -> executeRedo());
+        register("versions", args -> executeVersions());
+        register("undo-to", this::executeUndoTo);
+        register("batch", this::executeBatch);
+        register("exit", args -> executeExit());
+        register("append", this::executeAppend);
+        register("insert", this::executeInsert);
+        register("delete", this::executeDelete);
+        register("replace", this::executeReplace);
+        register("show", this::executeShow);
+        register("log-on", this::executeLogOn);
+        register("log-off", this::executeLogOff);
+        register("log-show", this::executeLogShow);
+        register("insert-before", this::executeInsertBefore);
+        register("append-child", this::executeAppendChild);
+        register("edit-id", this::executeEditId);
+        register("edit-text", this::executeEditText);
+        register("delete-element", this::executeDeleteElement);
+        register("xml-tree", this::executeXmlTree);
+        register("find", this::executeFind);
+        register("query", this::executeQuery);
+        register("spell-check", this::executeSpellCheck);
+        register("spell-dict", this::executeSpellDict);
+    }
+
+    /**
+     * load [--compact] <file>
+     * --compact 把XML文件以只读方式加载为紧凑的文档模型，用于只查看、查询的超大文件
+     */
+    private String executeLoad(CommandArgs args) throws IOException {
+        String filePath = args.rest();
+        boolean compact = false;
+        if (filePath.equals("--compact") || filePath.startsWith("--compact ")) {
+            compact = true;
+            filePath = filePath.substring("--compact".length()).trim();
+        }
+        if (filePath.isEmpty()) {
             return "错误: load命令需要文件路径";
         }
-        String filePath = args.trim();
-        workspace.loadFile(filePath);
+        workspace.loadFile(filePath, compact);
         Editor editor = workspace.getEditor(filePath);
         if (editor != null && workspace.getLogStatus(filePath)) {
             logger.enableLog(filePath);
@@ -121,8 +194,9 @@ public class CommandParser {
         return "文件已加载: " + filePath;
     }
 
-    private String executeSave(String args) throws IOException {
-        if (args.isEmpty()) {
+    private String executeSave(CommandArgs args) throws IOException {
+        String target = args.rest();
+        if (target.isEmpty()) {
             // 保存当前活动文件
             Editor editor = workspace.getActiveEditor();
             if (editor == null) {
@@ -131,25 +205,24 @@ public class CommandParser {
             workspace.saveFile(editor.getFilePath());
             logger.logCommand(editor.getFilePath(), "save");
             return "文件已保存: " + editor.getFilePath();
-        } else if ("all".equals(args)) {
+        } else if ("all".equals(target)) {
             workspace.saveAll();
             logger.logCommand(null, "save all");
             return "所有文件已保存";
         } else {
-            String filePath = args.trim();
+            String filePath = target;
             workspace.saveFile(filePath);
             logger.logCommand(filePath, "save " + filePath);
             return "文件已保存: " + filePath;
         }
     }
 
-    private String executeInit(String args) {
-        String[] parts = args.trim().split("\\s+");
-        if (parts.length == 0) {
+    private String executeInit(CommandArgs args) {
+        String filePath = args.next();
+        if (filePath == null) {
             return "错误: init命令需要文件路径";
         }
-        String filePath = parts[0];
-        boolean withLog = parts.length > 1 && "with-log".equals(parts[1]);
+        boolean withLog = "with-log".equals(args.next());
         workspace.initFile(filePath, withLog);
         Editor editor = workspace.getEditor(filePath);
         if (editor != null) {
@@ -158,11 +231,11 @@ public class CommandParser {
                 editor.attach(logger);
             }
         }
-        logger.logCommand(filePath, "init " + args);
+        logger.logCommand(filePath, "init " + args.raw());
         return "新缓冲区已创建: " + filePath;
     }
 
-    private String executeClose(String args) {
+    private String executeClose(CommandArgs args) {
         String filePath;
         if (args.isEmpty()) {
             Editor editor = workspace.getActiveEditor();
@@ -171,18 +244,18 @@ public class CommandParser {
             }
             filePath = editor.getFilePath();
         } else {
-            filePath = args.trim();
+            filePath = args.rest();
         }
         logger.logCommand(filePath, "close " + filePath);
         workspace.closeFile(filePath);
         return "文件已关闭: " + filePath;
     }
 
-    private String executeEdit(String args) {
-        if (args.isEmpty()) {
+    private String executeEdit(CommandArgs args) {
+        String filePath = args.rest();
+        if (filePath.isEmpty()) {
             return "错误: edit命令需要文件路径";
         }
-        String filePath = args.trim();
         workspace.setActiveFile(filePath);
         logger.logCommand(filePath, "edit " + filePath);
         return "已切换到文件: " + filePath;
@@ -206,8 +279,8 @@ public class CommandParser {
         return sb.toString();
     }
 
-    private String executeDirTree(String args) {
-        String pathStr = args.isEmpty() ? "." : args.trim();
+    private String executeDirTree(CommandArgs args) {
+        String pathStr = args.isEmpty() ? "." : args.rest();
         Path path = Paths.get(pathStr);
         if (!Files.exists(path) || !Files.isDirectory(path)) {
             return "错误: 路径不存在或不是目录: " + pathStr;
@@ -260,13 +333,138 @@ public class CommandParser {
         return "无法重做";
     }
 
+    /**
+     * versions：列出当前文本文件保留的历史版本
+     */
+    private String executeVersions() {
+        Editor editor = workspace.getActiveEditor();
+        if (editor == null) {
+            return "错误: 没有活动文件";
+        }
+        if (!editor.isTextEditor()) {
+            return "错误: versions命令只能用于文本文件";
+        }
+        List<Version> versions = ((TextEditor) editor).getVersions();
+        if (versions.isEmpty()) {
+            return "当前文件不支持版本历史";
+        }
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd HH:mm:ss");
+        StringBuilder sb = new StringBuilder();
+        for (Version version : versions) {
+            sb.append(version.getNumber()).append("  ")
+                    .append(formatter.format(Instant.ofEpochMilli(version.getTimestamp()).atZone(ZoneId.systemDefault())))
+                    .append("  ").append(version.getDescription()).append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * undo-to N | undo-to --time [yyyyMMdd] HH:mm[:ss]
+     */
+    private String executeUndoTo(CommandArgs commandArgs) {
+        String args = commandArgs.rest();
+        Editor editor = workspace.getActiveEditor();
+        if (editor == null) {
+            return "错误: 没有活动文件";
+        }
+        if (!editor.isTextEditor()) {
+            return "错误: undo-to命令只能用于文本文件";
+        }
+        TextEditor textEditor = (TextEditor) editor;
+        int version;
+        if (args.startsWith("--time")) {
+            String value = args.substring("--time".length()).trim();
+            if (!value.isEmpty() && !value.contains(" ") && value.contains(":")) {
+                // 只给出时间时按今天
+                value = LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE) + " " + value;
+            }
+            long timestamp = parseSince(value);
+            if (timestamp < 0) {
+                return "错误: 时间格式应为 [yyyyMMdd] HH:mm[:ss]";
+            }
+            version = textEditor.revertToTime(timestamp);
+        } else if (args.isEmpty()) {
+            return "错误: 请指定版本号或 --time";
+        } else {
+            version = Integer.parseInt(args);
+            textEditor.revertTo(version);
+        }
+        recordEdit(editor, "undo-to " + args);
+        return "已回到版本 " + version;
+    }
+
+    /**
+     * batch <script-file>，或 batch 后跟多行命令（每行一条，# 开头为注释）
+     * 所有编辑作为一条复合命令执行：一次撤销、一个编辑事件、一条日志；任意一行失败时全部回滚。
+     */
+    private String executeBatch(CommandArgs commandArgs) throws IOException {
+        String args = commandArgs.rest();
+        Editor editor = workspace.getActiveEditor();
+        if (editor == null) {
+            return "错误: 没有活动文件";
+        }
+        List<String> lines;
+        if (args.indexOf('\n') >= 0) {
+            lines = new BufferedReader(new StringReader(args)).lines().collect(Collectors.toList());
+        } else if (!args.isEmpty()) {
+            lines = Files.readAllLines(Paths.get(args), java.nio.charset.StandardCharsets.UTF_8);
+        } else {
+            return "错误: batch命令需要脚本文件或多行命令";
+        }
+
+        int count = 0;
+        editor.beginBatch();
+        batching = true;
+        boolean completed = false;
+        try {
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i).trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String name = new CommandArgs(line).next();
+                if (!BATCH_COMMANDS.contains(name)) {
+                    return "错误: 第" + (i + 1) + "行: 批量执行中不支持命令 " + name;
+                }
+                String result = execute(line);
+                if (result.startsWith("错误")) {
+                    return "错误: 第" + (i + 1) + "行: " + result.substring(result.indexOf(':') + 1).trim();
+                }
+                count++;
+            }
+            completed = true;
+        } finally {
+            batching = false;
+            if (completed) {
+                editor.endBatch();
+            } else {
+                editor.abortBatch();
+            }
+        }
+        if (count > 0) {
+            recordEdit(editor, "batch " + count);
+        }
+        return "批量执行完成，共" + count + "条命令";
+    }
+
+    /**
+     * 编辑命令执行后标记文件已修改并记录日志，批量执行中由 batch 统一记录
+     */
+    private void recordEdit(Editor editor, String command) {
+        if (batching) {
+            return;
+        }
+        workspace.setModified(editor.getFilePath(), true);
+        logger.logCommand(editor.getFilePath(), command);
+    }
+
     private String executeExit() {
         workspace.saveWorkspace();
         logger.closeAll();
         return "exit";
     }
 
-    private String executeAppend(String args) {
+    private String executeAppend(CommandArgs args) {
         Editor editor = workspace.getActiveEditor();
         if (editor == null) {
             return "错误: 没有活动文件";
@@ -275,15 +473,14 @@ public class CommandParser {
             return "错误: append命令只能用于文本文件";
         }
         TextEditor textEditor = (TextEditor) editor;
-        String text = parseQuotedText(args);
+        String text = args.text();
         AppendCommand cmd = new AppendCommand(textEditor, text);
         editor.executeCommand(cmd);
-        workspace.setModified(editor.getFilePath(), true);
-        logger.logCommand(editor.getFilePath(), "append \"" + text + "\"");
+        recordEdit(editor, "append \"" + text + "\"");
         return "文本已追加";
     }
 
-    private String executeInsert(String args) {
+    private String executeInsert(CommandArgs args) {
         Editor editor = workspace.getActiveEditor();
         if (editor == null) {
             return "错误: 没有活动文件";
@@ -292,19 +489,17 @@ public class CommandParser {
             return "错误: insert命令只能用于文本文件";
         }
         TextEditor textEditor = (TextEditor) editor;
-        String[] parts = parseInsertArgs(args);
-        int line = Integer.parseInt(parts[0]);
-        int col = Integer.parseInt(parts[1]);
-        String text = parts[2];
+        int line = args.nextInt();
+        args.expect(':');
+        int col = args.nextInt();
+        String text = args.text();
         InsertCommand cmd = new InsertCommand(textEditor, line, col, text);
         editor.executeCommand(cmd);
-        workspace.setModified(editor.getFilePath(), true);
-        logger.logCommand(editor.getFilePath(), 
-            "insert " + line + ":" + col + " \"" + text + "\"");
+        recordEdit(editor, "insert " + line + ":" + col + " \"" + text + "\"");
         return "文本已插入";
     }
 
-    private String executeDelete(String args) {
+    private String executeDelete(CommandArgs args) {
         Editor editor = workspace.getActiveEditor();
         if (editor == null) {
             return "错误: 没有活动文件";
@@ -313,23 +508,20 @@ public class CommandParser {
             return "错误: delete命令只能用于文本文件";
         }
         TextEditor textEditor = (TextEditor) editor;
-        String[] parts = args.trim().split("\\s+");
-        if (parts.length < 2) {
+        int line = args.nextInt();
+        args.expect(':');
+        int col = args.nextInt();
+        if (!args.hasNext()) {
             return "错误: delete命令需要行号:列号和长度";
         }
-        String[] pos = parts[0].split(":");
-        int line = Integer.parseInt(pos[0]);
-        int col = Integer.parseInt(pos[1]);
-        int len = Integer.parseInt(parts[1]);
+        int len = args.nextInt();
         DeleteCommand cmd = new DeleteCommand(textEditor, line, col, len);
         editor.executeCommand(cmd);
-        workspace.setModified(editor.getFilePath(), true);
-        logger.logCommand(editor.getFilePath(), 
-            "delete " + line + ":" + col + " " + len);
+        recordEdit(editor, "delete " + line + ":" + col + " " + len);
         return "文本已删除";
     }
 
-    private String executeReplace(String args) {
+    private String executeReplace(CommandArgs args) {
         Editor editor = workspace.getActiveEditor();
         if (editor == null) {
             return "错误: 没有活动文件";
@@ -338,20 +530,18 @@ public class CommandParser {
             return "错误: replace命令只能用于文本文件";
         }
         TextEditor textEditor = (TextEditor) editor;
-        String[] parts = parseReplaceArgs(args);
-        int line = Integer.parseInt(parts[0]);
-        int col = Integer.parseInt(parts[1]);
-        int len = Integer.parseInt(parts[2]);
-        String text = parts[3];
+        int line = args.nextInt();
+        args.expect(':');
+        int col = args.nextInt();
+        int len = args.nextInt();
+        String text = args.text();
         ReplaceCommand cmd = new ReplaceCommand(textEditor, line, col, len, text);
         editor.executeCommand(cmd);
-        workspace.setModified(editor.getFilePath(), true);
-        logger.logCommand(editor.getFilePath(), 
-            "replace " + line + ":" + col + " " + len + " \"" + text + "\"");
+        recordEdit(editor, "replace " + line + ":" + col + " " + len + " \"" + text + "\"");
         return "文本已替换";
     }
 
-    private String executeShow(String args) {
+    private String executeShow(CommandArgs args) {
         Editor editor = workspace.getActiveEditor();
         if (editor == null) {
             return "错误: 没有活动文件";
@@ -363,16 +553,16 @@ public class CommandParser {
         if (args.isEmpty()) {
             return textEditor.show(1, -1);
         }
-        String[] range = args.split(":");
-        if (range.length == 2) {
-            int start = Integer.parseInt(range[0]);
-            int end = Integer.parseInt(range[1]);
-            return textEditor.show(start, end);
+        int start = args.nextInt();
+        args.expect(':');
+        int end = args.nextInt();
+        if (args.hasNext()) {
+            return "错误: show命令参数格式错误";
         }
-        return "错误: show命令参数格式错误";
+        return textEditor.show(start, end);
     }
 
-    private String executeLogOn(String args) {
+    private String executeLogOn(CommandArgs args) {
         String filePath;
         if (args.isEmpty()) {
             Editor editor = workspace.getActiveEditor();
@@ -381,7 +571,7 @@ public class CommandParser {
             }
             filePath = editor.getFilePath();
         } else {
-            filePath = args.trim();
+            filePath = args.rest();
         }
         logger.enableLog(filePath);
         workspace.setLogStatus(filePath, true);
@@ -393,7 +583,7 @@ public class CommandParser {
         return "日志已启用: " + filePath;
     }
 
-    private String executeLogOff(String args) {
+    private String executeLogOff(CommandArgs args) {
         String filePath;
         if (args.isEmpty()) {
             Editor editor = workspace.getActiveEditor();
@@ -402,7 +592,7 @@ public class CommandParser {
             }
             filePath = editor.getFilePath();
         } else {
-            filePath = args.trim();
+            filePath = args.rest();
         }
         logger.disableLog(filePath);
         workspace.setLogStatus(filePath, false);
@@ -414,73 +604,105 @@ public class CommandParser {
         return "日志已关闭: " + filePath;
     }
 
-    private String executeLogShow(String args) {
-        String filePath;
-        if (args.isEmpty()) {
+    /**
+     * log-show [file] [--tail N | --session K | --since yyyyMMdd [HH:mm[:ss]]]
+     */
+    private String executeLogShow(CommandArgs args) {
+        String filePath = null;
+        String option = null;
+        String value = null;
+        String token;
+        while ((token = args.next()) != null) {
+            if (token.startsWith("--")) {
+                if (option != null) {
+                    return "错误: 只能指定一个显示选项";
+                }
+                option = token;
+                value = args.next();
+                if (value == null) {
+                    return "错误: " + token + " 缺少参数";
+                }
+                // --since 的时间部分是可选的第二个参数
+                if ("--since".equals(option)) {
+                    String time = args.next();
+                    if (time != null && time.indexOf(':') >= 0) {
+                        value += " " + time;
+                    } else if (time != null) {
+                        return "错误: 多余的参数 " + time;
+                    }
+                }
+            } else if (filePath == null) {
+                filePath = token;
+            } else {
+                return "错误: 多余的参数 " + token;
+            }
+        }
+        if (filePath == null) {
             Editor editor = workspace.getActiveEditor();
             if (editor == null) {
                 return "错误: 没有活动文件";
             }
             filePath = editor.getFilePath();
-        } else {
-            filePath = args.trim();
         }
-        return logger.readLog(filePath);
-    }
-
-    /**
-     * 解析带引号的文本
-     */
-    private String parseQuotedText(String args) {
-        args = args.trim();
-        if (args.startsWith("\"") && args.endsWith("\"")) {
-            return args.substring(1, args.length() - 1);
+        if (option == null) {
+            return logger.readLog(filePath);
+        }
+        switch (option) {
+            case "--tail":
+                int lines = Integer.parseInt(value);
+                if (lines < 1) {
+                    return "错误: 行数必须大于0";
+                }
+                return logger.readLogTail(filePath, lines);
+            case "--session":
+                return logger.readLogSession(filePath, Integer.parseInt(value));
+            case "--since":
+                long since = parseSince(value);
+                if (since < 0) {
+                    return "错误: 时间格式应为 yyyyMMdd [HH:mm[:ss]]";
+                }
+                return logger.readLogSince(filePath, since);
+            default:
+                return "错误: 未知选项 " + option;
         }
-        return args;
-    }
-
-    /**
-     * 解析insert命令参数
-     */
-    private String[] parseInsertArgs(String args) {
-        String[] parts = args.trim().split("\\s+", 2);
-        String[] pos = parts[0].split(":");
-        String text = parts.length > 1 ? parseQuotedText(parts[1]) : "";
-        return new String[]{pos[0], pos[1], text};
     }
 
     /**
-     * 解析replace命令参数
+     * 解析 --since 的时间，格式错误时返回 -1
      */
-    private String[] parseReplaceArgs(String args) {
-        String[] parts = args.trim().split("\\s+", 3);
-        String[] pos = parts[0].split(":");
-        int len = Integer.parseInt(parts[1]);
-        String text = parts.length > 2 ? parseQuotedText(parts[2]) : "";
-        return new String[]{pos[0], pos[1], String.valueOf(len), text};
+    private long parseSince(String value) {
+        String[] parts = value.split(" ");
+        try {
+            LocalDate date = LocalDate.parse(parts[0], DateTimeFormatter.BASIC_ISO_DATE);
+            LocalTime time = parts.length > 1 ? LocalTime.parse(parts[1]) : LocalTime.MIDNIGHT;
+            return date.atTime(time).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
     }
 
     // ========== XML编辑命令 ==========
 
-    private String executeInsertBefore(String args) {
+    private String executeInsertBefore(CommandArgs args) {
         Editor editor = workspace.getActiveEditor();
         if (editor == null) {
             return "错误: 没有活动文件";
         }
+        if (editor.isReadOnly()) {
+            return "错误: 文件以只读方式打开: " + editor.getFilePath();
+        }
         if (!editor.isXmlEditor()) {
             return "错误: insert-before命令只能用于XML文件";
         }
         XmlEditor xmlEditor = (XmlEditor) editor;
         
-        String[] parts = args.trim().split("\\s+", 3);
-        if (parts.length < 3) {
+        String refId = args.next();
+        String tag = args.next();
+        String newId = args.next();
+        if (newId == null) {
             return "错误: insert-before命令格式: insert-before <ref-id> <tag> <id> [属性...]";
         }
         
-        String refId = parts[0];
-        String tag = parts[1];
-        String newId = parts[2];
-        
         XmlElement refElement = xmlEditor.getElementById(refId);
         if (refElement == null) {
             return "错误: 未找到ID为 " + refId + " 的元素";
@@ -493,47 +715,42 @@ public class CommandParser {
         
         XmlElement newElement = new XmlElement(tag, newId);
         
-        // 解析属性（如果有）
-        if (parts.length > 3) {
-            String attrsStr = parts[3];
-            // 简单解析属性 key="value" 格式
-            java.util.regex.Pattern attrPattern = java.util.regex.Pattern.compile("(\\w+)=\"([^\"]+)\"");
-            java.util.regex.Matcher matcher = attrPattern.matcher(attrsStr);
-            while (matcher.find()) {
-                newElement.setAttribute(matcher.group(1), matcher.group(2));
-            }
+        // 解析属性（如果有），格式为 key="value"
+        String error = parseAttributes(args, newElement);
+        if (error != null) {
+            return error;
         }
         
         try {
             XmlInsertBeforeCommand cmd = new XmlInsertBeforeCommand(xmlEditor, newElement, refElement);
             xmlEditor.executeCommand(cmd);
-            workspace.setModified(editor.getFilePath(), true);
-            logger.logCommand(editor.getFilePath(), "insert-before " + args);
+            recordEdit(editor, "insert-before " + args.raw());
             return "元素已插入";
         } catch (IllegalArgumentException e) {
             return "错误: " + e.getMessage();
         }
     }
 
-    private String executeAppendChild(String args) {
+    private String executeAppendChild(CommandArgs args) {
         Editor editor = workspace.getActiveEditor();
         if (editor == null) {
             return "错误: 没有活动文件";
         }
+        if (editor.isReadOnly()) {
+            return "错误: 文件以只读方式打开: " + editor.getFilePath();
+        }
         if (!editor.isXmlEditor()) {
             return "错误: append-child命令只能用于XML文件";
         }
         XmlEditor xmlEditor = (XmlEditor) editor;
         
-        String[] parts = args.trim().split("\\s+", 3);
-        if (parts.length < 3) {
+        String parentId = args.next();
+        String tag = args.next();
+        String newId = args.next();
+        if (newId == null) {
             return "错误: append-child命令格式: append-child <parent-id> <tag> <id> [属性...]";
         }
         
-        String parentId = parts[0];
-        String tag = parts[1];
-        String newId = parts[2];
-        
         XmlElement parent = xmlEditor.getElementById(parentId);
         if (parent == null) {
             return "错误: 未找到ID为 " + parentId + " 的元素";
@@ -541,45 +758,41 @@ public class CommandParser {
         
         XmlElement newElement = new XmlElement(tag, newId);
         
-        // 解析属性（如果有）
-        if (parts.length > 3) {
-            String attrsStr = parts[3];
-            java.util.regex.Pattern attrPattern = java.util.regex.Pattern.compile("(\\w+)=\"([^\"]+)\"");
-            java.util.regex.Matcher matcher = attrPattern.matcher(attrsStr);
-            while (matcher.find()) {
-                newElement.setAttribute(matcher.group(1), matcher.group(2));
-            }
+        // 解析属性（如果有），格式为 key="value"
+        String error = parseAttributes(args, newElement);
+        if (error != null) {
+            return error;
         }
         
         try {
             XmlAppendChildCommand cmd = new XmlAppendChildCommand(xmlEditor, newElement, parent);
             xmlEditor.executeCommand(cmd);
-            workspace.setModified(editor.getFilePath(), true);
-            logger.logCommand(editor.getFilePath(), "append-child " + args);
+            recordEdit(editor, "append-child " + args.raw());
             return "子元素已追加";
         } catch (IllegalArgumentException e) {
             return "错误: " + e.getMessage();
         }
     }
 
-    private String executeEditId(String args) {
+    private String executeEditId(CommandArgs args) {
         Editor editor = workspace.getActiveEditor();
         if (editor == null) {
             return "错误: 没有活动文件";
         }
+        if (editor.isReadOnly()) {
+            return "错误: 文件以只读方式打开: " + editor.getFilePath();
+        }
         if (!editor.isXmlEditor()) {
             return "错误: edit-id命令只能用于XML文件";
         }
         XmlEditor xmlEditor = (XmlEditor) editor;
         
-        String[] parts = args.trim().split("\\s+");
-        if (parts.length < 2) {
+        String oldId = args.next();
+        String newId = args.next();
+        if (newId == null) {
             return "错误: edit-id命令格式: edit-id <old-id> <new-id>";
         }
         
-        String oldId = parts[0];
-        String newId = parts[1];
-        
         XmlElement element = xmlEditor.getElementById(oldId);
         if (element == null) {
             return "错误: 未找到ID为 " + oldId + " 的元素";
@@ -591,28 +804,28 @@ public class CommandParser {
         
         XmlEditIdCommand cmd = new XmlEditIdCommand(xmlEditor, element, newId);
         xmlEditor.executeCommand(cmd);
-        workspace.setModified(editor.getFilePath(), true);
-        logger.logCommand(editor.getFilePath(), "edit-id " + args);
+        recordEdit(editor, "edit-id " + args.raw());
         return "元素ID已修改";
     }
 
-    private String executeEditText(String args) {
+    private String executeEditText(CommandArgs args) {
         Editor editor = workspace.getActiveEditor();
         if (editor == null) {
             return "错误: 没有活动文件";
         }
+        if (editor.isReadOnly()) {
+            return "错误: 文件以只读方式打开: " + editor.getFilePath();
+        }
         if (!editor.isXmlEditor()) {
             return "错误: edit-text命令只能用于XML文件";
         }
         XmlEditor xmlEditor = (XmlEditor) editor;
         
-        String[] parts = args.trim().split("\\s+", 2);
-        if (parts.length < 2) {
+        String id = args.next();
+        if (!args.hasNext()) {
             return "错误: edit-text命令格式: edit-text <id> \"text\"";
         }
-        
-        String id = parts[0];
-        String text = parseQuotedText(parts[1]);
+        String text = args.text();
         
         XmlElement element = xmlEditor.getElementById(id);
         if (element == null) {
@@ -622,25 +835,27 @@ public class CommandParser {
         try {
             XmlEditTextCommand cmd = new XmlEditTextCommand(xmlEditor, element, text);
             xmlEditor.executeCommand(cmd);
-            workspace.setModified(editor.getFilePath(), true);
-            logger.logCommand(editor.getFilePath(), "edit-text " + args);
+            recordEdit(editor, "edit-text " + args.raw());
             return "元素文本已修改";
         } catch (IllegalArgumentException e) {
             return "错误: " + e.getMessage();
         }
     }
 
-    private String executeDeleteElement(String args) {
+    private String executeDeleteElement(CommandArgs args) {
         Editor editor = workspace.getActiveEditor();
         if (editor == null) {
             return "错误: 没有活动文件";
         }
+        if (editor.isReadOnly()) {
+            return "错误: 文件以只读方式打开: " + editor.getFilePath();
+        }
         if (!editor.isXmlEditor()) {
             return "错误: delete-element命令只能用于XML文件";
         }
         XmlEditor xmlEditor = (XmlEditor) editor;
         
-        String id = args.trim();
+        String id = args.rest();
         if (id.isEmpty()) {
             return "错误: delete-element命令需要元素ID";
         }
@@ -657,25 +872,64 @@ public class CommandParser {
         
         XmlDeleteElementCommand cmd = new XmlDeleteElementCommand(xmlEditor, element);
         xmlEditor.executeCommand(cmd);
-        workspace.setModified(editor.getFilePath(), true);
-        logger.logCommand(editor.getFilePath(), "delete-element " + id);
+        recordEdit(editor, "delete-element " + id);
         return "元素已删除";
     }
 
-    private String executeXmlTree(String args) {
+    /**
+     * 把剩余参数中的 key="value" 属性设置到元素上，格式错误时返回错误信息
+     */
+    private String parseAttributes(CommandArgs args, XmlElement element) {
+        while (args.hasNext()) {
+            String[] attribute = args.nextAttribute();
+            if (attribute == null) {
+                return "错误: 属性格式应为 key=\"value\": " + args.next();
+            }
+            element.setAttribute(attribute[0], attribute[1]);
+        }
+        return null;
+    }
+
+    /**
+     * xml-tree [file] [--max-depth N]
+     * 连线最多画 N 层（默认 DEFAULT_TREE_DEPTH），更深的元素标出层数
+     */
+    private String executeXmlTree(CommandArgs args) {
+        String filePath = null;
+        int maxDepth = DEFAULT_TREE_DEPTH;
+        String token;
+        while ((token = args.next()) != null) {
+            if ("--max-depth".equals(token)) {
+                if (!args.hasNext()) {
+                    return "错误: --max-depth 缺少参数";
+                }
+                maxDepth = args.nextInt();
+                if (maxDepth < 1) {
+                    return "错误: 层数必须大于0";
+                }
+            } else if (filePath == null) {
+                filePath = token;
+            } else {
+                return "错误: 多余的参数 " + token;
+            }
+        }
         Editor editor;
-        if (args.isEmpty()) {
+        if (filePath == null) {
             editor = workspace.getActiveEditor();
             if (editor == null) {
                 return "错误: 没有活动文件";
             }
         } else {
-            editor = workspace.getEditor(args.trim());
+            editor = workspace.getEditor(filePath);
             if (editor == null) {
-                return "错误: 文件未打开: " + args.trim();
+                return "错误: 文件未打开: " + filePath;
             }
         }
         
+        if (editor instanceof ReadOnlyXmlEditor) {
+            XmlDocument document = ((ReadOnlyXmlEditor) editor).getDocument();
+            return document.size() == 0 ? "XML文件为空" : buildXmlTreeString(document, maxDepth);
+        }
         if (!editor.isXmlEditor()) {
             return "错误: xml-tree命令只能用于XML文件";
         }
@@ -686,129 +940,424 @@ public class CommandParser {
             return "XML文件为空";
         }
         
-        return buildXmlTreeString(root, "", true);
+        return buildXmlTreeString(root, maxDepth);
     }
 
-    private String buildXmlTreeString(XmlElement element, String prefix, boolean isLast) {
+    /**
+     * find [tag] [key="value"]... [--max N]
+     * 通过索引查找当前XML文件中标签名和属性都匹配的元素
+     */
+    private String executeFind(CommandArgs args) {
+        Editor editor = workspace.getActiveEditor();
+        if (editor == null) {
+            return "错误: 没有活动文件";
+        }
+        if (!isXmlFile(editor)) {
+            return "错误: find命令只能用于XML文件";
+        }
+        String tagName = null;
+        Map<String, String> attributes = new HashMap<>();
+        int max = Integer.MAX_VALUE;
+        while (args.hasNext()) {
+            String[] attribute = args.nextAttribute();
+            if (attribute != null) {
+                attributes.put(attribute[0], attribute[1]);
+                continue;
+            }
+            String token = args.next();
+            if ("--max".equals(token)) {
+                if (!args.hasNext()) {
+                    return "错误: --max 缺少参数";
+                }
+                max = args.nextInt();
+                if (max < 1) {
+                    return "错误: 数量必须大于0";
+                }
+            } else if (tagName == null && attributes.isEmpty()) {
+                tagName = token;
+            } else {
+                return "错误: 多余的参数 " + token;
+            }
+        }
+        if (tagName == null && attributes.isEmpty()) {
+            return "错误: 请指定标签名或属性，如 find book category=\"cooking\"";
+        }
+
+        int total;
+        Stream<String> lines;
+        if (editor instanceof ReadOnlyXmlEditor) {
+            // 只读打开的大文件没有索引，逐个检查元素
+            List<XmlDocument.Node> nodes = ((ReadOnlyXmlEditor) editor).find(tagName, attributes);
+            total = nodes.size();
+            lines = nodes.stream().map(node -> describe(node.getTagName(), node.getId()));
+        } else {
+            List<XmlElement> elements = ((XmlEditor) editor).find(tagName, attributes);
+            total = elements.size();
+            lines = elements.stream().map(element -> describe(element.getTagName(), element.getId()));
+        }
+        if (total == 0) {
+            return "未找到匹配的元素";
+        }
+        StringBuilder result = new StringBuilder();
+        Consumer<String> emit = output != null ? output : line -> result.append(line).append("\n");
+        int shown = Math.min(max, total);
+        lines.limit(shown).forEach(emit);
+        String summary = shown < total
+                ? "共找到" + total + "个元素，只显示前" + shown + "个"
+                : "共找到" + total + "个元素";
+        return output != null ? summary : result.append(summary).toString();
+    }
+
+    /**
+     * query [--max N] <expression>
+     * 执行 XPath 子集查询，结果边查边输出，达到数量上限后不再继续查找
+     */
+    private String executeQuery(CommandArgs args) {
+        Editor editor = workspace.getActiveEditor();
+        if (editor == null) {
+            return "错误: 没有活动文件";
+        }
+        if (!isXmlFile(editor)) {
+            return "错误: query命令只能用于XML文件";
+        }
+        int max = Integer.MAX_VALUE;
+        String expression = args.rest();
+        if (expression.startsWith("--max")) {
+            CommandArgs options = new CommandArgs(expression);
+            options.next();
+            if (!options.hasNext()) {
+                return "错误: --max 缺少参数";
+            }
+            max = options.nextInt();
+            if (max < 1) {
+                return "错误: 数量必须大于0";
+            }
+            expression = options.rest();
+        }
+        if (expression.isEmpty()) {
+            return "错误: 请指定查询表达式，如 query //book[@category=\"cooking\"]";
+        }
+
+        XmlQuery query = XmlQuery.compile(expression);
+        StringBuilder result = new StringBuilder();
+        Consumer<String> emit = output != null ? output : line -> result.append(line).append("\n");
+        int count = 0;
+        boolean complete = true;
+        Stream<String> lines = editor instanceof ReadOnlyXmlEditor
+                ? query.select(((ReadOnlyXmlEditor) editor).getDocument())
+                        .map(node -> describe(node.getTagName(), node.getId()))
+                : query.select((XmlEditor) editor).map(element -> describe(element.getTagName(), element.getId()));
+        java.util.Iterator<String> matches = lines.iterator();
+        while (matches.hasNext()) {
+            String line = matches.next();
+            if (count == max) {
+                complete = false;
+                break;
+            }
+            emit.accept(line);
+            count++;
+        }
+        String summary;
+        if (count == 0) {
+            summary = "未找到匹配的元素";
+        } else if (!complete) {
+            summary = "已达到显示上限（" + max + "个），查询已停止";
+        } else {
+            summary = "共找到" + count + "个元素";
+        }
+        return output != null ? summary : result.append(summary).toString();
+    }
+
+    /**
+     * 可以查看和查询的XML文件：可编辑的和只读打开的
+     */
+    private static boolean isXmlFile(Editor editor) {
+        return editor.isXmlEditor() || editor instanceof ReadOnlyXmlEditor;
+    }
+
+    private static String describe(String tagName, String id) {
+        return tagName + " [id=\"" + id + "\"]";
+    }
+
+    /**
+     * 用一个 StringBuilder 生成整棵树，前缀随进入、离开元素增减，不为每层拼接新字符串
+     * 超过 maxDepth 层后前缀不再加长，输出大小与元素个数成正比。
+     */
+    private String buildXmlTreeString(XmlElement root, int maxDepth) {
         StringBuilder sb = new StringBuilder();
-        
-        // 构建元素信息
+        StringBuilder prefix = new StringBuilder();
+        root.accept(new XmlElement.Visitor() {
+            @Override
+            public boolean enter(XmlElement element, int depth) {
+                XmlElement parent = element.getParent();
+                boolean isLast = depth == 0
+                        || parent.getChildren().get(parent.getChildCount() - 1) == element;
+
+                // 构建元素信息
+                startTreeLine(sb, prefix, isLast, depth > maxDepth ? depth : -1, element.getTagName());
+                boolean first = true;
+                for (java.util.Map.Entry<String, String> entry : element.getAttributes().entrySet()) {
+                    if (!first) {
+                        sb.append(", ");
+                    }
+                    sb.append(entry.getKey()).append("=\"").append(entry.getValue()).append("\"");
+                    first = false;
+                }
+                endTreeLine(sb, prefix, isLast, element.hasTextContent() ? element.getTextContent() : null);
+
+                // 子元素的前缀
+                if (depth < maxDepth) {
+                    prefix.append(isLast ? "    " : "│   ");
+                }
+                return true;
+            }
+
+            @Override
+            public void leave(XmlElement element, int depth) {
+                if (depth < maxDepth) {
+                    prefix.setLength(prefix.length() - 4);
+                }
+            }
+        });
+        return sb.toString();
+    }
+
+    /**
+     * 只读文档的树形显示，格式与 XmlElement 树相同，沿父节点、第一个子节点、下一个兄弟节点遍历
+     */
+    private String buildXmlTreeString(XmlDocument document, int maxDepth) {
+        StringBuilder sb = new StringBuilder();
+        StringBuilder prefix = new StringBuilder();
+        int node = document.getRoot();
+        int depth = 0;
+        while (true) {
+            boolean isLast = document.getNextSibling(node) == XmlDocument.NONE;
+            startTreeLine(sb, prefix, isLast, depth > maxDepth ? depth : -1, document.getTagName(node));
+            for (int i = 0; i < document.getAttributeCount(node); i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(document.getAttributeName(node, i)).append("=\"")
+                        .append(document.getAttributeValue(node, i)).append("\"");
+            }
+            endTreeLine(sb, prefix, isLast, document.hasTextContent(node) ? document.getTextContent(node) : null);
+
+            if (document.hasChildren(node)) {
+                if (depth < maxDepth) {
+                    prefix.append(isLast ? "    " : "│   ");
+                }
+                node = document.getFirstChild(node);
+                depth++;
+                continue;
+            }
+            // 向上回到还有下一个兄弟的祖先，离开的每一层去掉一段前缀
+            while (document.getNextSibling(node) == XmlDocument.NONE) {
+                node = document.getParent(node);
+                if (node == XmlDocument.NONE) {
+                    return sb.toString();
+                }
+                depth--;
+                if (depth < maxDepth) {
+                    prefix.setLength(prefix.length() - 4);
+                }
+            }
+            node = document.getNextSibling(node);
+        }
+    }
+
+    /**
+     * 输出元素行的开头，直到属性列表的左括号；level 不小于0时在标签名前标出层数
+     */
+    private static void startTreeLine(StringBuilder sb, CharSequence prefix, boolean isLast, int level, String tagName) {
         sb.append(prefix);
-        if (!prefix.isEmpty()) {
+        if (prefix.length() > 0) {
             sb.append(isLast ? "└── " : "├── ");
         }
-        
-        sb.append(element.getTagName());
-        sb.append(" [");
-        java.util.Map<String, String> attrs = element.getAttributes();
-        boolean first = true;
-        for (java.util.Map.Entry<String, String> entry : attrs.entrySet()) {
-            if (!first) {
-                sb.append(", ");
-            }
-            sb.append(entry.getKey()).append("=\"").append(entry.getValue()).append("\"");
-            first = false;
+        if (level >= 0) {
+            sb.append("[第").append(level).append("层] ");
         }
+        sb.append(tagName);
+        sb.append(" [");
+    }
+
+    /**
+     * 结束元素行，有文本内容时在下一行输出
+     */
+    private static void endTreeLine(StringBuilder sb, CharSequence prefix, boolean isLast, String text) {
         sb.append("]");
-        
-        if (element.hasTextContent()) {
+        if (text != null) {
             sb.append("\n").append(prefix);
-            if (!prefix.isEmpty()) {
+            if (prefix.length() > 0) {
                 sb.append(isLast ? "    " : "│   ");
             }
-            sb.append("└── \"").append(element.getTextContent()).append("\"");
+            sb.append("└── \"").append(text).append("\"");
         }
-        
         sb.append("\n");
-        
-        // 处理子元素
-        List<XmlElement> children = element.getChildren();
-        for (int i = 0; i < children.size(); i++) {
-            boolean last = (i == children.size() - 1);
-            String newPrefix = prefix + (isLast ? "    " : "│   ");
-            sb.append(buildXmlTreeString(children.get(i), newPrefix, last));
+    }
+
+    /**
+     * 设置即时输出，耗时的命令（如 spell-check）边执行边输出结果
+     */
+    public void setOutput(Consumer<String> output) {
+        this.output = output;
+    }
+
+    /**
+     * 设置拼写检查使用的线程数
+     */
+    public void setSpellCheckThreads(int threads) {
+        if (threads != spellChecker.getThreads()) {
+            useSpellChecker(new ParallelSpellChecker(spellChecker.getDelegate(), threads));
         }
-        
-        return sb.toString();
     }
 
-    private String executeSpellCheck(String args) {
+    /**
+     * 换用新的检查器，关闭旧检查器的线程池
+     */
+    private void useSpellChecker(ParallelSpellChecker checker) {
+        ParallelSpellChecker previous = spellChecker;
+        spellChecker = checker;
+        previous.close();
+    }
+
+    public int getSpellCheckThreads() {
+        return spellChecker.getThreads();
+    }
+
+    /**
+     * 加载词典文件替换拼写检查使用的字典（文本词表或二进制词典）
+     */
+    private String executeSpellDict(CommandArgs args) throws IOException {
+        String file = args.rest();
+        if (file.isEmpty()) {
+            return "错误: 请指定词典文件";
+        }
+        Path path = Paths.get(file);
+        if (!Files.exists(path)) {
+            return "错误: 词典文件不存在: " + file;
+        }
+        Dictionary dictionary = Dictionary.load(path);
+        useSpellChecker(new ParallelSpellChecker(new SymSpellChecker(dictionary), getSpellCheckThreads()));
+        return "已加载词典: " + file + "（" + dictionary.size() + "个单词）";
+    }
+
+    /**
+     * spell-check [file] [--max N] [--threads N]
+     * 设置了输出时错误边检查边输出；指定 --max 时找到更多的错误后停止检查；
+     * --threads 设置并行检查使用的线程数，对之后的检查一直有效
+     */
+    private String executeSpellCheck(CommandArgs args) {
+        String filePath = null;
+        int max = Integer.MAX_VALUE;
+        int threads = 0;
+        String token;
+        while ((token = args.next()) != null) {
+            if ("--max".equals(token)) {
+                if (!args.hasNext()) {
+                    return "错误: --max 缺少参数";
+                }
+                max = args.nextInt();
+                if (max < 1) {
+                    return "错误: 数量必须大于0";
+                }
+            } else if ("--threads".equals(token)) {
+                if (!args.hasNext()) {
+                    return "错误: --threads 缺少参数";
+                }
+                threads = args.nextInt();
+                if (threads < 1) {
+                    return "错误: 线程数必须大于0";
+                }
+            } else if (filePath == null) {
+                filePath = token;
+            } else {
+                return "错误: 多余的参数 " + token;
+            }
+        }
+
         Editor editor;
-        if (args.isEmpty()) {
+        if (filePath == null) {
             editor = workspace.getActiveEditor();
             if (editor == null) {
                 return "错误: 没有活动文件";
             }
         } else {
-            editor = workspace.getEditor(args.trim());
+            editor = workspace.getEditor(filePath);
             if (editor == null) {
-                return "错误: 文件未打开: " + args.trim();
+                return "错误: 文件未打开: " + filePath;
             }
         }
-        
+
+        if (threads > 0) {
+            setSpellCheckThreads(threads);
+        }
+
+        SpellCheckCache cache = spellCheckCaches.get(editor);
+        if (cache == null) {
+            cache = new SpellCheckCache();
+            editor.attach(cache);
+            spellCheckCaches.put(editor, cache);
+        }
+
         StringBuilder result = new StringBuilder();
-        result.append("拼写检查结果:\n");
-        
+        Consumer<String> emit = output != null ? output : line -> result.append(line).append("\n");
+        emit.accept("拼写检查结果:");
+        boolean complete = true;
+
+        // 错误边检查边输出，检查器在每一批内部并行
+        int limit = max;
+        int[] found = {0};
         if (editor.isTextEditor()) {
-            // 文本文件拼写检查
-            TextEditor textEditor = (TextEditor) editor;
-            List<String> lines = textEditor.getLines();
-            StringBuilder text = new StringBuilder();
-            for (String line : lines) {
-                text.append(line).append("\n");
-            }
-            
-            List<SpellError> errors = spellChecker.checkSpelling(text.toString());
-            if (errors.isEmpty()) {
-                result.append("未发现拼写错误");
-            } else {
-                for (SpellError error : errors) {
-                    result.append("第").append(error.getLine())
-                          .append("行，第").append(error.getColumn())
-                          .append("列: \"").append(error.getWord())
-                          .append("\" -> 建议: ").append(error.getSuggestion()).append("\n");
+            // 文本文件拼写检查，只重新检查编辑过的行
+            TextBuffer buffer = ((TextEditor) editor).getBuffer();
+            complete = cache.check(buffer, spellChecker, error -> {
+                if (found[0] == limit) {
+                    // 找到第 limit+1 个错误才说明确实超出了上限
+                    return false;
                 }
-            }
+                emit.accept(formatSpellError(error));
+                found[0]++;
+                return true;
+            });
         } else if (editor.isXmlEditor()) {
             // XML文件拼写检查（只检查元素文本内容）
             XmlEditor xmlEditor = (XmlEditor) editor;
-            List<com.editor.spellcheck.XmlSpellError> xmlErrors = new java.util.ArrayList<>();
-            collectXmlTextErrors(xmlEditor.getRoot(), xmlErrors);
-            
-            if (xmlErrors.isEmpty()) {
-                result.append("未发现拼写错误");
-            } else {
-                for (com.editor.spellcheck.XmlSpellError error : xmlErrors) {
-                    result.append("元素 ").append(error.getElementId())
-                          .append(": \"").append(error.getWord())
-                          .append("\" -> 建议: ").append(error.getSuggestion()).append("\n");
+            complete = cache.check(xmlEditor.getRoot(), spellChecker, error -> {
+                if (found[0] == limit) {
+                    return false;
                 }
-            }
+                emit.accept(formatSpellError(error));
+                found[0]++;
+                return true;
+            });
+        } else if (editor instanceof ReadOnlyXmlEditor) {
+            XmlDocument document = ((ReadOnlyXmlEditor) editor).getDocument();
+            complete = cache.check(document, spellChecker, error -> {
+                if (found[0] == limit) {
+                    return false;
+                }
+                emit.accept(formatSpellError(error));
+                found[0]++;
+                return true;
+            });
         }
-        
-        return result.toString();
-    }
+        int count = found[0];
 
-    private void collectXmlTextErrors(XmlElement element, List<com.editor.spellcheck.XmlSpellError> errors) {
-        if (element == null) {
-            return;
-        }
-        
-        if (element.hasTextContent()) {
-            String text = element.getTextContent();
-            List<SpellError> textErrors = spellChecker.checkSpelling(text);
-            for (SpellError error : textErrors) {
-                errors.add(new com.editor.spellcheck.XmlSpellError(
-                    element.getId(), 
-                    error.getWord(), 
-                    error.getSuggestion()
-                ));
-            }
-        }
-        
-        for (XmlElement child : element.getChildren()) {
-            collectXmlTextErrors(child, errors);
+        String summary = "";
+        if (count == 0) {
+            summary = "未发现拼写错误";
+        } else if (!complete) {
+            summary = "已达到显示上限（" + max + "个），检查已停止";
         }
+        return output != null ? summary : result.append(summary).toString();
     }
-}
 
+    private String formatSpellError(SpellError error) {
+        return "第" + error.getLine() + "行，第" + error.getColumn() + "列: \"" + error.getWord()
+                + "\" -> 建议: " + error.getSuggestion();
+    }
+
+    private String formatSpellError(XmlSpellError error) {
+        return "元素 " + error.getElementId() + ": \"" + error.getWord() + "\" -> 建议: " + error.getSuggestion();
+    }
+}
@@ -1,7 +1,7 @@
 package com.editor.command;
 
+import com.editor.editor.TextBuffer;
 import com.editor.editor.TextEditor;
-import java.util.List;
 
 /**
  * 删除命令
@@ -12,6 +12,8 @@ public class DeleteCommand implements Command {
     private final int col;
     private final int len;
     private String deletedText;
+    // 执行前的快照
+    private TextBuffer.Snapshot before;
 
     public DeleteCommand(TextEditor editor, int line, int col, int len) {
         this.editor = editor;
@@ -22,32 +24,66 @@ public class DeleteCommand implements Command {
 
     @Override
     public void execute() {
-        List<String> lines = editor.getMutableLines();
-        if (line <= lines.size()) {
-            String currentLine = lines.get(line - 1);
-            int endPos = Math.min(col - 1 + len, currentLine.length());
-            deletedText = currentLine.substring(col - 1, endPos);
+        before = editor.snapshot();
+        TextBuffer buffer = editor.getBuffer();
+        if (buffer.hasLine(line - 1)) {
+            deletedText = buffer.getText(line - 1, col - 1, len);
         }
         editor.delete(line, col, len);
     }
 
     @Override
     public void undo() {
+        if (editor.restoreSnapshot(before)) {
+            return;
+        }
         if (deletedText != null) {
-            List<String> lines = editor.getMutableLines();
-            if (line <= lines.size()) {
-                String currentLine = lines.get(line - 1);
-                String newLine = currentLine.substring(0, col - 1) + deletedText + 
-                               currentLine.substring(col - 1);
-                lines.set(line - 1, newLine);
+            TextBuffer buffer = editor.getBuffer();
+            if (buffer.hasLine(line - 1)) {
+                buffer.insert(line - 1, col - 1, deletedText);
                 editor.setModified(true);
             }
         }
     }
 
+    @Override
+    public String getName() {
+        return "delete";
+    }
+
     @Override
     public boolean canUndo() {
         return deletedText != null;
     }
+
+    @Override
+    public long estimateSize() {
+        return 48 + 2L * (deletedText == null ? 0 : deletedText.length());
+    }
+
+    int getLine() {
+        return line;
+    }
+
+    int getCol() {
+        return col;
+    }
+
+    int getLen() {
+        return len;
+    }
+
+    String getDeletedText() {
+        return deletedText;
+    }
+
+    /**
+     * 从撤销日志恢复已执行过的命令
+     */
+    static DeleteCommand restore(TextEditor editor, int line, int col, int len, String deletedText) {
+        DeleteCommand command = new DeleteCommand(editor, line, col, len);
+        command.deletedText = deletedText;
+        return command;
+    }
 }
 
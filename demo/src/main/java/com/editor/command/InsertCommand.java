@@ -1,7 +1,7 @@
 package com.editor.command;
 
+import com.editor.editor.TextBuffer;
 import com.editor.editor.TextEditor;
-import java.util.List;
 
 /**
  * 插入命令
@@ -10,7 +10,10 @@ public class InsertCommand implements Command {
     private final TextEditor editor;
     private final int line;
     private final int col;
-    private final String text;
+    private String text;
+    private boolean newLine;
+    // 执行前的快照，撤销时直接恢复；从撤销日志恢复的命令没有快照，按记录的文本撤销
+    private TextBuffer.Snapshot before;
 
     public InsertCommand(TextEditor editor, int line, int col, String text) {
         this.editor = editor;
@@ -21,29 +24,95 @@ public class InsertCommand implements Command {
 
     @Override
     public void execute() {
+        before = editor.snapshot();
+        // 行号超出末尾时 insert 会追加新行，撤销时需要整行删除
+        newLine = !editor.getBuffer().hasLine(line - 1);
         editor.insert(line, col, text);
     }
 
     @Override
     public void undo() {
-        List<String> lines = editor.getMutableLines();
-        if (line <= lines.size()) {
-            String currentLine = lines.get(line - 1);
-            if (col <= currentLine.length() && col + text.length() <= currentLine.length()) {
-                String newLine = currentLine.substring(0, col - 1) + 
-                               currentLine.substring(col - 1 + text.length());
-                lines.set(line - 1, newLine);
-            } else if (line > lines.size() - 1) {
-                // 如果是新行，删除它
-                lines.remove(lines.size() - 1);
+        if (editor.restoreSnapshot(before)) {
+            return;
+        }
+        TextBuffer buffer = editor.getBuffer();
+        if (buffer.hasLine(line - 1)) {
+            if (newLine) {
+                // 如果是新行，删除它；文本中的每个 '\n' 又多追加了一行
+                for (int i = countLineBreaks(text); i >= 0 && buffer.hasLine(line - 1); i--) {
+                    buffer.removeLine(line - 1);
+                }
+            } else {
+                buffer.deleteText(line - 1, col - 1, text);
             }
             editor.setModified(true);
         }
     }
 
+    @Override
+    public String getName() {
+        return "insert";
+    }
+
     @Override
     public boolean canUndo() {
         return true;
     }
+
+    @Override
+    public long estimateSize() {
+        return 48 + 2L * text.length();
+    }
+
+    /**
+     * 紧接在本次插入文本之后的插入（连续输入）合并为一条；包含换行的插入不合并
+     */
+    @Override
+    public boolean merge(Command next) {
+        if (!(next instanceof InsertCommand)) {
+            return false;
+        }
+        InsertCommand other = (InsertCommand) next;
+        if (newLine || other.newLine || other.editor != editor || other.line != line
+                || text.indexOf('\n') >= 0 || other.text.indexOf('\n') >= 0
+                || other.col != col + text.length()) {
+            return false;
+        }
+        text = text + other.text;
+        return true;
+    }
+
+    static int countLineBreaks(String text) {
+        int count = 0;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    int getLine() {
+        return line;
+    }
+
+    int getCol() {
+        return col;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    boolean isNewLine() {
+        return newLine;
+    }
+
+    /**
+     * 从撤销日志恢复已执行过的命令
+     */
+    static InsertCommand restore(TextEditor editor, int line, int col, String text, boolean newLine) {
+        InsertCommand command = new InsertCommand(editor, line, col, text);
+        command.newLine = newLine;
+        return command;
+    }
 }
 
@@ -1,7 +1,7 @@
 package com.editor.command;
 
+import com.editor.editor.TextBuffer;
 import com.editor.editor.TextEditor;
-import java.util.List;
 
 /**
  * 替换命令
@@ -13,6 +13,8 @@ public class ReplaceCommand implements Command {
     private final int len;
     private final String newText;
     private String originalText;
+    // 执行前的快照
+    private TextBuffer.Snapshot before;
 
     public ReplaceCommand(TextEditor editor, int line, int col, int len, String newText) {
         this.editor = editor;
@@ -24,33 +26,71 @@ public class ReplaceCommand implements Command {
 
     @Override
     public void execute() {
-        List<String> lines = editor.getMutableLines();
-        if (line <= lines.size()) {
-            String currentLine = lines.get(line - 1);
-            int endPos = Math.min(col - 1 + len, currentLine.length());
-            originalText = currentLine.substring(col - 1, endPos);
+        before = editor.snapshot();
+        TextBuffer buffer = editor.getBuffer();
+        if (buffer.hasLine(line - 1)) {
+            originalText = buffer.getText(line - 1, col - 1, len);
         }
         editor.replace(line, col, len, newText);
     }
 
     @Override
     public void undo() {
+        if (editor.restoreSnapshot(before)) {
+            return;
+        }
         if (originalText != null) {
-            List<String> lines = editor.getMutableLines();
-            if (line <= lines.size()) {
-                String currentLine = lines.get(line - 1);
-                int newTextLen = newText.length();
-                String newLine = currentLine.substring(0, col - 1) + originalText + 
-                               currentLine.substring(col - 1 + newTextLen);
-                lines.set(line - 1, newLine);
+            TextBuffer buffer = editor.getBuffer();
+            if (buffer.hasLine(line - 1)) {
+                buffer.deleteText(line - 1, col - 1, newText);
+                buffer.insert(line - 1, col - 1, originalText);
                 editor.setModified(true);
             }
         }
     }
 
+    @Override
+    public String getName() {
+        return "replace";
+    }
+
     @Override
     public boolean canUndo() {
         return originalText != null;
     }
+
+    @Override
+    public long estimateSize() {
+        return 56 + 2L * (newText.length() + (originalText == null ? 0 : originalText.length()));
+    }
+
+    int getLine() {
+        return line;
+    }
+
+    int getCol() {
+        return col;
+    }
+
+    int getLen() {
+        return len;
+    }
+
+    String getNewText() {
+        return newText;
+    }
+
+    String getOriginalText() {
+        return originalText;
+    }
+
+    /**
+     * 从撤销日志恢复已执行过的命令
+     */
+    static ReplaceCommand restore(TextEditor editor, int line, int col, int len, String newText, String originalText) {
+        ReplaceCommand command = new ReplaceCommand(editor, line, col, len, newText);
+        command.originalText = originalText;
+        return command;
+    }
 }
 
@@ -0,0 +1,50 @@
+package com.editor.command;
+
+import com.editor.editor.TextBuffer;
+import com.editor.editor.TextEditor;
+import com.editor.observer.Event;
+
+/**
+ * 回到历史版本的命令，执行和撤销都是直接切换快照
+ */
+public class RevertCommand implements Command {
+    private final TextEditor editor;
+    private final TextBuffer.Snapshot target;
+    private final int version;
+    private TextBuffer.Snapshot before;
+
+    public RevertCommand(TextEditor editor, TextBuffer.Snapshot target, int version) {
+        this.editor = editor;
+        this.target = target;
+        this.version = version;
+    }
+
+    @Override
+    public void execute() {
+        // 直接取缓冲区的快照，批量执行中也能整体恢复
+        before = editor.getBuffer().snapshot();
+        if (!editor.restoreSnapshot(target)) {
+            throw new IllegalArgumentException("版本已失效: " + version);
+        }
+        editor.notifyObservers(new Event("EDIT", "revert", editor.getFilePath()));
+    }
+
+    @Override
+    public void undo() {
+        editor.restoreSnapshot(before);
+    }
+
+    @Override
+    public String getName() {
+        return "revert " + version;
+    }
+
+    @Override
+    public boolean canUndo() {
+        return before != null;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,151 @@
+package com.editor.command;
+
+import com.editor.editor.TextEditor;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文本编辑命令的撤销日志编码，恢复时重新绑定到同一个编辑器
+ */
+public class TextCommandCodec implements CommandHistory.Codec {
+    private static final byte INSERT = 1;
+    private static final byte APPEND = 2;
+    private static final byte DELETE = 3;
+    private static final byte REPLACE = 4;
+    private static final byte BATCH = 5;
+
+    private final TextEditor editor;
+
+    public TextCommandCodec(TextEditor editor) {
+        this.editor = editor;
+    }
+
+    @Override
+    public boolean canEncode(Command command) {
+        if (command instanceof BatchCommand) {
+            for (Command child : ((BatchCommand) command).getCommands()) {
+                if (!canEncode(child)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return command instanceof InsertCommand || command instanceof AppendCommand
+                || command instanceof DeleteCommand || command instanceof ReplaceCommand;
+    }
+
+    @Override
+    public void encode(Command command, DataOutput out) throws IOException {
+        if (command instanceof InsertCommand) {
+            InsertCommand insert = (InsertCommand) command;
+            out.writeByte(INSERT);
+            out.writeInt(insert.getLine());
+            out.writeInt(insert.getCol());
+            writeString(out, insert.getText());
+            out.writeBoolean(insert.isNewLine());
+        } else if (command instanceof AppendCommand) {
+            List<String> texts = ((AppendCommand) command).getTexts();
+            out.writeByte(APPEND);
+            out.writeInt(texts.size());
+            for (String text : texts) {
+                writeString(out, text);
+            }
+        } else if (command instanceof DeleteCommand) {
+            DeleteCommand delete = (DeleteCommand) command;
+            out.writeByte(DELETE);
+            out.writeInt(delete.getLine());
+            out.writeInt(delete.getCol());
+            out.writeInt(delete.getLen());
+            writeString(out, delete.getDeletedText());
+        } else if (command instanceof ReplaceCommand) {
+            ReplaceCommand replace = (ReplaceCommand) command;
+            out.writeByte(REPLACE);
+            out.writeInt(replace.getLine());
+            out.writeInt(replace.getCol());
+            out.writeInt(replace.getLen());
+            writeString(out, replace.getNewText());
+            writeString(out, replace.getOriginalText());
+        } else if (command instanceof BatchCommand) {
+            List<Command> commands = ((BatchCommand) command).getCommands();
+            out.writeByte(BATCH);
+            out.writeInt(commands.size());
+            for (Command child : commands) {
+                encode(child, out);
+            }
+        } else {
+            throw new IllegalArgumentException("不支持的命令类型: " + command.getClass().getSimpleName());
+        }
+    }
+
+    @Override
+    public Command decode(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case INSERT: {
+                int line = in.readInt();
+                int col = in.readInt();
+                String text = readString(in);
+                return InsertCommand.restore(editor, line, col, text, in.readBoolean());
+            }
+            case APPEND: {
+                int count = in.readInt();
+                List<String> texts = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    texts.add(readString(in));
+                }
+                return AppendCommand.restore(editor, texts);
+            }
+            case DELETE: {
+                int line = in.readInt();
+                int col = in.readInt();
+                int len = in.readInt();
+                return DeleteCommand.restore(editor, line, col, len, readString(in));
+            }
+            case BATCH: {
+                int count = in.readInt();
+                List<Command> commands = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    commands.add(decode(in));
+                }
+                return new BatchCommand(commands);
+            }
+            case REPLACE: {
+                int line = in.readInt();
+                int col = in.readInt();
+                int len = in.readInt();
+                String newText = readString(in);
+                return ReplaceCommand.restore(editor, line, col, len, newText, readString(in));
+            }
+            default:
+                throw new IOException("撤销日志损坏: 未知的记录类型 " + type);
+        }
+    }
+
+    /**
+     * writeUTF 有 64KB 的限制，这里用长度加 UTF-16 字符保存，-1 表示 null
+     */
+    private static void writeString(DataOutput out, String text) throws IOException {
+        if (text == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(text.length());
+        out.writeChars(text);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = in.readChar();
+        }
+        return new String(chars);
+    }
+}
@@ -20,13 +20,13 @@ public class XmlAppendChildCommand implements Command {
     @Override
     public void execute() {
         parent.addChild(newElement);
-        editor.updateIdMapping(null, newElement.getId(), newElement);
+        editor.elementAdded(newElement, parent.getChildCount() - 1);
     }
 
     @Override
     public void undo() {
         parent.removeChild(newElement);
-        editor.updateIdMapping(newElement.getId(), null, null);
+        editor.elementRemoved(newElement);
     }
 
     @Override
@@ -26,7 +26,7 @@ public class XmlDeleteElementCommand implements Command {
     public void execute() {
         if (parent != null) {
             parent.removeChild(element);
-            editor.updateIdMapping(element.getId(), null, null);
+            editor.elementRemoved(element);
         }
     }
 
@@ -34,13 +34,15 @@ public class XmlDeleteElementCommand implements Command {
     public void undo() {
         if (parent != null) {
             // 恢复元素到原来的位置
+            int at;
             if (index >= 0 && index < parent.getChildren().size()) {
                 XmlElement refChild = parent.getChildren().get(index);
-                parent.insertBefore(element, refChild);
+                at = parent.insertBefore(element, refChild);
             } else {
                 parent.addChild(element);
+                at = parent.getChildCount() - 1;
             }
-            editor.updateIdMapping(null, element.getId(), element);
+            editor.elementAdded(element, at);
         }
     }
 
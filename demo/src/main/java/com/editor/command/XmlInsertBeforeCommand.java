@@ -21,14 +21,14 @@ public class XmlInsertBeforeCommand implements Command {
 
     @Override
     public void execute() {
-        parent.insertBefore(newElement, refElement);
-        editor.updateIdMapping(null, newElement.getId(), newElement);
+        int index = parent.insertBefore(newElement, refElement);
+        editor.elementAdded(newElement, index);
     }
 
     @Override
     public void undo() {
         parent.removeChild(newElement);
-        editor.updateIdMapping(newElement.getId(), null, null);
+        editor.elementRemoved(newElement);
     }
 
     @Override
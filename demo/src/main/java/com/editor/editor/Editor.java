@@ -1,6 +1,7 @@
 package com.editor.editor;
 
 import com.editor.command.Command;
+import com.editor.command.CommandHistory;
 import com.editor.observer.Subject;
 
 /**
@@ -28,6 +29,22 @@ public interface Editor extends Subject {
      */
     void executeCommand(Command command);
 
+    /**
+     * 开始批量执行：此后 executeCommand 执行的命令暂存起来，编辑事件暂不通知观察者
+     * @throws IllegalStateException 已经在批量执行中
+     */
+    void beginBatch();
+
+    /**
+     * 结束批量执行：暂存的命令作为一条复合命令加入撤销栈，并发出一个合并的 EDIT 事件
+     */
+    void endBatch();
+
+    /**
+     * 放弃批量执行：按相反顺序撤销暂存的命令
+     */
+    void abortBatch();
+
     /**
      * 撤销操作
      */
@@ -38,6 +55,11 @@ public interface Editor extends Subject {
      */
     boolean redo();
 
+    /**
+     * 获取撤销/重做历史，可调整其内存预算
+     */
+    CommandHistory getHistory();
+
     /**
      * 检查是否可以撤销
      */
@@ -66,6 +88,13 @@ public interface Editor extends Subject {
     default boolean isXmlEditor() {
         return this instanceof XmlEditor;
     }
+
+    /**
+     * 检查是否以只读方式打开，只读时不能执行编辑命令
+     */
+    default boolean isReadOnly() {
+        return false;
+    }
 }
 
 
@@ -0,0 +1,90 @@
+package com.editor.editor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于行列表的简单文本缓冲区，每次修改都会重建所在行，适合小文件
+ */
+public class LineListBuffer implements TextBuffer {
+    private final List<String> lines;
+
+    public LineListBuffer() {
+        this.lines = new ArrayList<>();
+    }
+
+    public LineListBuffer(List<String> lines) {
+        this.lines = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            this.lines.addAll(split(line));
+        }
+    }
+
+    @Override
+    public int getLineCount() {
+        return lines.size();
+    }
+
+    @Override
+    public String getLine(int index) {
+        return lines.get(index);
+    }
+
+    @Override
+    public void insert(int index, int col, String text) {
+        String currentLine = lines.get(index);
+        replaceLine(index, currentLine.substring(0, col) + text + currentLine.substring(col));
+    }
+
+    @Override
+    public void delete(int index, int col, int len) {
+        String currentLine = lines.get(index);
+        int endPos = Math.min(col + len, currentLine.length());
+        lines.set(index, currentLine.substring(0, col) + currentLine.substring(endPos));
+    }
+
+    @Override
+    public void insertLine(int index, String text) {
+        lines.addAll(index, split(text));
+    }
+
+    @Override
+    public void removeLine(int index) {
+        lines.remove(index);
+    }
+
+    @Override
+    public void setLine(int index, String text) {
+        replaceLine(index, text);
+    }
+
+    @Override
+    public List<String> getLines() {
+        return new ArrayList<>(lines);
+    }
+
+    /**
+     * 用 text 替换第 index 行，text 中有换行时拆成多行
+     */
+    private void replaceLine(int index, String text) {
+        if (text.indexOf('\n') < 0) {
+            lines.set(index, text);
+            return;
+        }
+        List<String> parts = split(text);
+        lines.set(index, parts.get(0));
+        lines.addAll(index + 1, parts.subList(1, parts.size()));
+    }
+
+    private static List<String> split(String text) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = text.indexOf('\n', start)) >= 0) {
+            parts.add(text.substring(start, end));
+            start = end + 1;
+        }
+        parts.add(text.substring(start));
+        return parts;
+    }
+}
@@ -0,0 +1,144 @@
+package com.editor.editor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 内存映射的 UTF-8 文件的字符视图，供 {@link XmlParser} 扫描超大文件而不把整个文件读成字符串
+ * 打开时先完整解码一遍得到字符数并检查编码，之后只保留当前位置附近一个窗口的解码结果：
+ * 向后访问时窗口向前滑动并保留最近的一段，向回访问超出窗口时从文件开头重新解码。
+ * 适合顺序扫描，不是线程安全的。
+ */
+final class MappedCharSequence implements CharSequence {
+    private static final int WINDOW = 1 << 16;
+    // 窗口滑动时保留的已解码字符数，覆盖标签名、实体等短距离回看
+    private static final int HISTORY = 1 << 12;
+
+    private final ByteBuffer bytes;
+    private final CharsetDecoder decoder;
+    private final int length;
+    // 已解码的字符 [windowStart, windowStart + window.position())
+    private final CharBuffer window;
+    private int windowStart;
+    // 下一个未解码的字节
+    private ByteBuffer input;
+
+    private MappedCharSequence(ByteBuffer bytes) throws CharacterCodingException {
+        this.bytes = bytes;
+        this.decoder = StandardCharsets.UTF_8.newDecoder();
+        this.window = CharBuffer.allocate(WINDOW);
+        this.length = count();
+        rewind();
+    }
+
+    /**
+     * 映射整个文件，编码错误时抛出 CharacterCodingException
+     */
+    static MappedCharSequence open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("文件过大，无法解析: " + path);
+            }
+            return new MappedCharSequence(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    private int count() throws CharacterCodingException {
+        decoder.reset();
+        ByteBuffer in = bytes.duplicate();
+        long total = 0;
+        while (true) {
+            window.clear();
+            CoderResult result = decoder.decode(in, window, true);
+            total += window.position();
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (result.isUnderflow()) {
+                break;
+            }
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new CharacterCodingException();
+        }
+        return (int) total;
+    }
+
+    private void rewind() {
+        decoder.reset();
+        input = bytes.duplicate();
+        window.clear();
+        windowStart = 0;
+    }
+
+    /**
+     * 解码到窗口包含第 index 个字符为止
+     */
+    private void moveTo(int index) {
+        if (index < windowStart) {
+            rewind();
+        }
+        while (index >= windowStart + window.position()) {
+            if (window.remaining() < 2) {
+                // 窗口满了（代理对需要两个位置）：只保留最后一段，腾出位置继续解码
+                int drop = window.position() - HISTORY;
+                window.flip();
+                window.position(drop);
+                window.compact();
+                windowStart += drop;
+            }
+            CoderResult result = decoder.decode(input, window, true);
+            if (result.isError()) {
+                // 打开时已经完整解码过一遍，不会走到这里
+                throw new IllegalStateException("文件在解析期间被修改");
+            }
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        moveTo(index);
+        return window.get(index - windowStart);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || start > end || end > length) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        if (start == end) {
+            return "";
+        }
+        moveTo(end - 1);
+        if (start >= windowStart) {
+            return new String(window.array(), start - windowStart, end - start);
+        }
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            sb.append(charAt(i));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+}
@@ -0,0 +1,610 @@
+package com.editor.editor;
+
+import com.editor.util.AtomicFileSaver;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * 基于内存映射的只读文件 + 行级修改覆盖层的文本缓冲区，用于打开超大文件
+ * 行偏移索引由后台线程构建，只记录每 64 行一个检查点，其余行从最近的检查点向后扫描定位，
+ * 顺序访问时沿用上一次定位的位置；只有被访问到的行才会解码成字符串；
+ * 未修改的行直接从映射中读取，修改过的行保存在覆盖层中；覆盖层是按行数定位的 treap，
+ * 定位和拆分都是 O(log n)，只有访问到的行才需要等待索引。
+ * 保存时未修改的行区间直接从原文件按字节拷贝，只有修改过的行需要重新编码，并沿用原文件的换行符。
+ */
+public class MappedTextBuffer implements TextBuffer, Closeable {
+    // 单个映射区域的最大字节数（MappedByteBuffer 以 int 寻址）
+    private static final long CHUNK_SIZE = 1L << 30;
+    // 后台索引每扫描这么多行发布一次进度
+    private static final int PUBLISH_INTERVAL = 1 << 16;
+    // 每隔这么多行记录一个检查点（2的幂）
+    private static final int CHECKPOINT_SHIFT = 6;
+    private static final int CHECKPOINT_LINES = 1 << CHECKPOINT_SHIFT;
+
+    private final Path path;
+    private FileChannel channel;
+    private long fileSize;
+    private MappedByteBuffer[] chunks;
+    private final Object indexLock = new Object();
+    // 第 i * CHECKPOINT_LINES 行的起始偏移
+    private long[] checkpoints;
+    private int indexedLines;
+    private boolean indexComplete;
+    // 后台索引失败的原因，等待索引的调用方会收到它
+    private Throwable indexFailure;
+    // 最近一次定位到的行及其起始偏移，顺序读取时不必回到检查点
+    private final long[] cursor = {-1, 0};
+    private boolean endsWithNewline;
+    // 原文件使用的换行符，修改过的行按它写出，保存后不会出现混合换行
+    private String lineSeparator;
+
+    // 逻辑文档 = 按行数定位的 treap（原始文件的连续行或修改后的一行）+ 尚未拆分的原始文件尾部
+    // 尾部从原始第 tailOrigin 行一直到文件末尾，长度在索引完成前未知
+    private Node root;
+    private int tailOrigin;
+    private int seed = 0x2545F491;
+    private volatile boolean closed;
+
+    private MappedTextBuffer(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * 映射文件并在后台开始构建行索引
+     */
+    public static MappedTextBuffer open(Path path) throws IOException {
+        MappedTextBuffer buffer = new MappedTextBuffer(path);
+        buffer.map();
+        buffer.startIndex();
+        return buffer;
+    }
+
+    private void map() throws IOException {
+        FileChannel opened = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = opened.size();
+            int chunkCount = (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            MappedByteBuffer[] mapped = new MappedByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                long position = i * CHUNK_SIZE;
+                mapped[i] = opened.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(CHUNK_SIZE, size - position));
+            }
+            channel = opened;
+            fileSize = size;
+            chunks = mapped;
+        } catch (IOException | RuntimeException e) {
+            opened.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 清空覆盖层，在后台重新构建行索引
+     */
+    private void startIndex() {
+        synchronized (indexLock) {
+            checkpoints = new long[1024];
+            indexedLines = 0;
+            indexComplete = false;
+            indexFailure = null;
+        }
+        synchronized (cursor) {
+            cursor[0] = -1;
+        }
+        root = null;
+        tailOrigin = 0;
+        Thread indexer = new Thread(this::buildIndex, "line-index-" + path.getFileName());
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+    /**
+     * 原子保存到源文件。替换前关闭映射的通道，替换后映射新文件继续编辑；
+     * 替换失败时重新映射原文件，覆盖层中的修改保留。
+     * 映射区域要到 MappedByteBuffer 被回收时才解除，关闭通道并不能解除映射，
+     * 因此在 Windows 等不允许替换仍被映射的文件的平台上，替换会失败并抛出 IOException。
+     */
+    public void save() throws IOException {
+        if (closed) {
+            throw new IOException("文件已关闭: " + path);
+        }
+        boolean replaced = false;
+        try {
+            AtomicFileSaver.save(path, this::writeTo, channel::close);
+            replaced = true;
+        } finally {
+            if (!channel.isOpen()) {
+                map();
+                if (replaced) {
+                    startIndex();
+                }
+            }
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * 行索引是否已经构建完成
+     */
+    public boolean isIndexComplete() {
+        synchronized (indexLock) {
+            return indexComplete;
+        }
+    }
+
+    /**
+     * 原文件的换行符（以第一个换行为准），文件中没有换行时使用系统换行符；需要等待索引构建完成
+     */
+    public String getLineSeparator() {
+        synchronized (indexLock) {
+            while (!indexComplete) {
+                awaitIndex();
+            }
+            return lineSeparator;
+        }
+    }
+
+    /**
+     * 总行数，需要等待索引构建完成
+     */
+    @Override
+    public int getLineCount() {
+        return size(root) + Math.max(0, totalOriginalLines() - tailOrigin);
+    }
+
+    /**
+     * 只等待索引构建到所需的行
+     */
+    @Override
+    public boolean hasLine(int index) {
+        if (index < 0) {
+            return false;
+        }
+        int known = size(root);
+        return index < known || hasOriginalLine(tailOrigin + index - known);
+    }
+
+    @Override
+    public String getLine(int index) {
+        checkLine(index);
+        int known = size(root);
+        if (index >= known) {
+            return decodeLine(tailOrigin + index - known);
+        }
+        Node t = root;
+        while (true) {
+            int leftSize = size(t.left);
+            if (index < leftSize) {
+                t = t.left;
+            } else if (index < leftSize + t.count) {
+                return t.text != null ? t.text : decodeLine(t.origin + index - leftSize);
+            } else {
+                index -= leftSize + t.count;
+                t = t.right;
+            }
+        }
+    }
+
+    @Override
+    public void insert(int index, int col, String text) {
+        String line = getLine(index);
+        setLine(index, line.substring(0, col) + text + line.substring(col));
+    }
+
+    @Override
+    public void delete(int index, int col, int len) {
+        String line = getLine(index);
+        int endPos = Math.min(col + len, line.length());
+        setLine(index, line.substring(0, col) + line.substring(endPos));
+    }
+
+    @Override
+    public void setLine(int index, String text) {
+        checkLine(index);
+        detachTail(index + 1);
+        Node[] head = split(root, index);
+        Node[] rest = split(head[1], 1);
+        root = merge(merge(head[0], edited(text)), rest[1]);
+    }
+
+    @Override
+    public void insertLine(int index, String text) {
+        if (index < 0 || (index > 0 && !hasLine(index - 1))) {
+            throw new IndexOutOfBoundsException("行号超出范围: " + index);
+        }
+        detachTail(index);
+        Node[] parts = split(root, index);
+        root = merge(merge(parts[0], edited(text)), parts[1]);
+    }
+
+    @Override
+    public void removeLine(int index) {
+        checkLine(index);
+        detachTail(index + 1);
+        Node[] head = split(root, index);
+        Node[] rest = split(head[1], 1);
+        root = merge(head[0], rest[1]);
+    }
+
+    @Override
+    public void writeTo(FileChannel out) throws IOException {
+        Writer writer = new BufferedWriter(Channels.newWriter(out, StandardCharsets.UTF_8.newEncoder(), 8192));
+        int total = totalOriginalLines();
+        String separator = getLineSeparator();
+        // 相邻的原始行区间合并后一次拷贝
+        int rangeStart = -1;
+        int rangeEnd = -1;
+        Deque<Node> stack = new ArrayDeque<>();
+        Node t = root;
+        while (t != null || !stack.isEmpty()) {
+            while (t != null) {
+                stack.push(t);
+                t = t.left;
+            }
+            t = stack.pop();
+            if (t.text == null && t.origin == rangeEnd) {
+                rangeEnd += t.count;
+            } else {
+                writeOriginal(rangeStart, rangeEnd, total, writer, out, separator);
+                rangeStart = t.text == null ? t.origin : -1;
+                rangeEnd = t.text == null ? t.origin + t.count : -1;
+                if (t.text != null) {
+                    writer.write(t.text);
+                    writer.write(separator);
+                }
+            }
+            t = t.right;
+        }
+        if (tailOrigin == rangeEnd) {
+            rangeEnd = total;
+        } else {
+            writeOriginal(rangeStart, rangeEnd, total, writer, out, separator);
+            rangeStart = tailOrigin;
+            rangeEnd = total;
+        }
+        writeOriginal(rangeStart, rangeEnd, total, writer, out, separator);
+        writer.flush();
+    }
+
+    /**
+     * 直接从原文件拷贝第 from 行到第 to 行（不含）的字节
+     */
+    private void writeOriginal(int from, int to, int total, Writer writer, FileChannel out, String separator)
+            throws IOException {
+        if (from < 0 || from >= to) {
+            return;
+        }
+        // 先把已编码的内容写出，再直接拷贝原文件区间，保证顺序
+        writer.flush();
+        boolean toEnd = to >= total;
+        transfer(lineStart(from), toEnd ? fileSize : lineStart(to), out);
+        if (toEnd && !endsWithNewline) {
+            writer.write(separator);
+        }
+    }
+
+    private void transfer(long start, long end, FileChannel out) throws IOException {
+        long position = start;
+        while (position < end) {
+            position += channel.transferTo(position, end - position, out);
+        }
+    }
+
+    /**
+     * 关闭文件并停止后台索引；映射区域在缓冲区被回收后解除
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    // ========== 段操作 ==========
+
+    private void checkLine(int index) {
+        if (!hasLine(index)) {
+            throw new IndexOutOfBoundsException("行号超出范围: " + index);
+        }
+    }
+
+    /**
+     * 把尾部开头的原始行移入 treap，使前 index 行都在 treap 中；调用方已确认这些行存在
+     */
+    private void detachTail(int index) {
+        int count = index - size(root);
+        if (count > 0) {
+            root = merge(root, newNode(tailOrigin, count, null));
+            tailOrigin += count;
+        }
+    }
+
+    /**
+     * 修改后的文本，每个 '\n' 拆出一行
+     */
+    private Node edited(String text) {
+        Node result = null;
+        int start = 0;
+        for (int end = text.indexOf('\n'); end >= 0; end = text.indexOf('\n', start)) {
+            result = merge(result, newNode(-1, 1, text.substring(start, end)));
+            start = end + 1;
+        }
+        return merge(result, newNode(-1, 1, text.substring(start)));
+    }
+
+    /**
+     * 按行数拆分为前 k 行和其余部分，必要时把一个原始行区间切成两段
+     */
+    private Node[] split(Node t, int k) {
+        if (t == null) {
+            return new Node[2];
+        }
+        int leftSize = size(t.left);
+        if (k <= leftSize) {
+            Node[] parts = split(t.left, k);
+            t.left = parts[1];
+            update(t);
+            parts[1] = t;
+            return parts;
+        }
+        if (k >= leftSize + t.count) {
+            Node[] parts = split(t.right, k - leftSize - t.count);
+            t.right = parts[0];
+            update(t);
+            parts[0] = t;
+            return parts;
+        }
+        int offset = k - leftSize;
+        return new Node[]{
+                merge(t.left, newNode(t.origin, offset, null)),
+                merge(newNode(t.origin + offset, t.count - offset, null), t.right)};
+    }
+
+    private static Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private Node newNode(int origin, int count, String text) {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        Node node = new Node(origin, count, text, seed);
+        update(node);
+        return node;
+    }
+
+    private static int size(Node t) {
+        return t == null ? 0 : t.size;
+    }
+
+    private static void update(Node t) {
+        t.size = size(t.left) + t.count + size(t.right);
+    }
+
+    // ========== 行索引 ==========
+
+    /**
+     * 后台线程：扫描换行符记录检查点；失败（包括内存不足）时记下原因并唤醒所有等待者
+     */
+    private void buildIndex() {
+        try {
+            scanLines();
+        } catch (Throwable e) {
+            synchronized (indexLock) {
+                indexFailure = e;
+                indexLock.notifyAll();
+            }
+        }
+    }
+
+    private void scanLines() {
+        long[] starts = new long[1024];
+        int count = 0;
+        long firstBreak = -1;
+        if (fileSize > 0) {
+            starts[0] = 0;
+            count = 1;
+        }
+        long position = 0;
+        for (MappedByteBuffer chunk : chunks) {
+            int limit = chunk.limit();
+            for (int i = 0; i < limit; i++) {
+                if (chunk.get(i) != '\n') {
+                    continue;
+                }
+                if (firstBreak < 0) {
+                    firstBreak = position + i;
+                }
+                if (position + i + 1 < fileSize) {
+                    if ((count & (CHECKPOINT_LINES - 1)) == 0) {
+                        int slot = count >>> CHECKPOINT_SHIFT;
+                        if (slot == starts.length) {
+                            starts = Arrays.copyOf(starts, slot * 2);
+                        }
+                        starts[slot] = position + i + 1;
+                    }
+                    count++;
+                    if (count % PUBLISH_INTERVAL == 0) {
+                        if (closed) {
+                            throw new IllegalStateException("文件已关闭: " + path);
+                        }
+                        publish(starts, count, -1, false);
+                    }
+                }
+            }
+            position += limit;
+        }
+        publish(starts, count, firstBreak, true);
+    }
+
+    private void publish(long[] starts, int count, long firstBreak, boolean complete) {
+        synchronized (indexLock) {
+            checkpoints = starts;
+            indexedLines = count;
+            if (complete) {
+                endsWithNewline = fileSize > 0 && byteAt(fileSize - 1) == '\n';
+                if (firstBreak < 0) {
+                    lineSeparator = System.lineSeparator();
+                } else {
+                    lineSeparator = firstBreak > 0 && byteAt(firstBreak - 1) == '\r' ? "\r\n" : "\n";
+                }
+                indexComplete = true;
+            }
+            indexLock.notifyAll();
+        }
+    }
+
+    /**
+     * 等待索引构建到指定行，返回原始文件中是否存在该行
+     */
+    private boolean hasOriginalLine(int line) {
+        synchronized (indexLock) {
+            while (!indexComplete && indexedLines <= line) {
+                awaitIndex();
+            }
+            return line < indexedLines;
+        }
+    }
+
+    private int totalOriginalLines() {
+        synchronized (indexLock) {
+            while (!indexComplete) {
+                awaitIndex();
+            }
+            return indexedLines;
+        }
+    }
+
+    /**
+     * 在 indexLock 上等待索引的进展；索引已经失败时抛出 IllegalStateException
+     */
+    private void awaitIndex() {
+        if (indexFailure != null) {
+            throw new IllegalStateException("行索引构建失败: " + indexFailure, indexFailure);
+        }
+        try {
+            indexLock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待行索引时被中断", e);
+        }
+    }
+
+    /**
+     * 原始第 line 行的起始偏移：从所在的检查点（或更近的上次位置）向后数换行
+     */
+    private long lineStart(int line) {
+        long position;
+        synchronized (indexLock) {
+            while (!indexComplete && indexedLines <= line) {
+                awaitIndex();
+            }
+            position = checkpoints[line >>> CHECKPOINT_SHIFT];
+        }
+        int from = line & -CHECKPOINT_LINES;
+        synchronized (cursor) {
+            if (cursor[0] >= from && cursor[0] <= line) {
+                from = (int) cursor[0];
+                position = cursor[1];
+            }
+        }
+        for (int i = from; i < line; i++) {
+            position = lineEnd(position) + 1;
+        }
+        return position;
+    }
+
+    /**
+     * 从 position 开始的第一个换行符的位置，没有时返回文件长度
+     */
+    private long lineEnd(long position) {
+        while (position < fileSize) {
+            MappedByteBuffer chunk = chunks[(int) (position / CHUNK_SIZE)];
+            long base = position - position % CHUNK_SIZE;
+            int limit = chunk.limit();
+            for (int i = (int) (position - base); i < limit; i++) {
+                if (chunk.get(i) == '\n') {
+                    return base + i;
+                }
+            }
+            position = base + limit;
+        }
+        return fileSize;
+    }
+
+    private String decodeLine(int line) {
+        long start = lineStart(line);
+        long end = lineEnd(start);
+        // 下一行从这里开始，顺序读取时不必重新扫描
+        synchronized (cursor) {
+            cursor[0] = line + 1;
+            cursor[1] = end + 1;
+        }
+        if (end > start && byteAt(end - 1) == '\r') {
+            end--;
+        }
+        byte[] bytes = new byte[(int) (end - start)];
+        int copied = 0;
+        while (copied < bytes.length) {
+            long position = start + copied;
+            MappedByteBuffer chunk = chunks[(int) (position / CHUNK_SIZE)];
+            int chunkOffset = (int) (position % CHUNK_SIZE);
+            int length = Math.min(bytes.length - copied, chunk.limit() - chunkOffset);
+            chunk.get(chunkOffset, bytes, copied, length);
+            copied += length;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte byteAt(long position) {
+        return chunks[(int) (position / CHUNK_SIZE)].get((int) (position % CHUNK_SIZE));
+    }
+
+    /**
+     * treap 节点：原始文件从 origin 开始的 count 行，或者一行修改后的文本
+     */
+    private static class Node {
+        final int origin;
+        final int count;
+        final String text;
+        final int priority;
+        Node left;
+        Node right;
+        int size;
+
+        Node(int origin, int count, String text, int priority) {
+            this.origin = origin;
+            this.count = count;
+            this.text = text;
+            this.priority = priority;
+        }
+    }
+}
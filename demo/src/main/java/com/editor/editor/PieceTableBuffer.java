@@ -0,0 +1,431 @@
+package com.editor.editor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基于片段表（piece table）的文本缓冲区
+ * 原始内容只读保存，新增内容只追加到 added 缓冲区，文档由一组片段拼接而成。
+ * 片段保存在以长度为隐式键的 treap 中，每个节点维护子树的字符数和换行数，
+ * 因此按行列定位、插入和删除都是 O(log n)，且不会重建整行字符串。
+ * treap 是持久化的：修改时只复制从根到修改位置路径上的节点，旧的根仍表示修改前的文档，
+ * 所以 snapshot() 只需记下当前的根，是 O(1) 的。
+ */
+public class PieceTableBuffer implements TextBuffer {
+    private final String original;
+    private final int[] originalBreaks; // original 中每个 '\n' 的位置
+    private final StringBuilder added;
+    private int[] addedBreaks; // added 中每个 '\n' 的位置
+    private int addedBreakCount;
+    private Node root;
+    private boolean hasLines; // 区分“没有行”和“只有一个空行”
+    private int seed;
+
+    // split 的结果，避免每次拆分都分配数组
+    private Node splitLeft;
+    private Node splitRight;
+
+    public PieceTableBuffer() {
+        this(new ArrayList<>());
+    }
+
+    public PieceTableBuffer(List<String> lines) {
+        this.original = String.join("\n", lines);
+        this.originalBreaks = scanBreaks(original);
+        this.added = new StringBuilder();
+        this.addedBreaks = new int[16];
+        this.addedBreakCount = 0;
+        this.hasLines = !lines.isEmpty();
+        this.seed = 0x2545F491;
+        if (!original.isEmpty()) {
+            root = newNode(false, 0, original.length(), originalBreaks.length);
+        }
+    }
+
+    @Override
+    public int getLineCount() {
+        return hasLines ? lineFeeds(root) + 1 : 0;
+    }
+
+    @Override
+    public String getLine(int index) {
+        checkLine(index);
+        int start = lineStart(index);
+        int end = lineEnd(index);
+        StringBuilder sb = new StringBuilder(end - start);
+        appendRange(root, start, end, sb);
+        return sb.toString();
+    }
+
+    @Override
+    public int getLineLength(int index) {
+        checkLine(index);
+        return lineEnd(index) - lineStart(index);
+    }
+
+    @Override
+    public String getText(int index, int col, int len) {
+        checkLine(index);
+        int start = lineStart(index);
+        int end = lineEnd(index);
+        int from = Math.min(start + col, end);
+        int to = Math.min(from + len, end);
+        StringBuilder sb = new StringBuilder(to - from);
+        appendRange(root, from, to, sb);
+        return sb.toString();
+    }
+
+    @Override
+    public void insert(int index, int col, String text) {
+        checkLine(index);
+        if (col < 0 || col > getLineLength(index)) {
+            throw new IndexOutOfBoundsException("列号超出范围: " + col);
+        }
+        insertAt(lineStart(index) + col, text, false, false);
+    }
+
+    @Override
+    public void delete(int index, int col, int len) {
+        checkLine(index);
+        int start = lineStart(index);
+        int end = lineEnd(index);
+        int from = Math.min(start + col, end);
+        int to = Math.min(from + len, end);
+        deleteRange(from, to);
+    }
+
+    @Override
+    public void insertLine(int index, String text) {
+        int count = getLineCount();
+        if (index < 0 || index > count) {
+            throw new IndexOutOfBoundsException("行号超出范围: " + index);
+        }
+        if (count == 0) {
+            hasLines = true;
+            insertAt(0, text, false, false);
+        } else if (index == count) {
+            insertAt(length(root), text, true, false);
+        } else {
+            insertAt(lineStart(index), text, false, true);
+        }
+    }
+
+    @Override
+    public void removeLine(int index) {
+        checkLine(index);
+        int count = getLineCount();
+        if (count == 1) {
+            root = null;
+            hasLines = false;
+        } else if (index == count - 1) {
+            // 最后一行：连同它前面的换行符一起删除
+            deleteRange(lineStart(index) - 1, length(root));
+        } else {
+            deleteRange(lineStart(index), lineStart(index + 1));
+        }
+    }
+
+    @Override
+    public TextBuffer.Snapshot snapshot() {
+        return new Snapshot(this, root, hasLines);
+    }
+
+    @Override
+    public boolean restore(TextBuffer.Snapshot snapshot) {
+        if (!(snapshot instanceof Snapshot) || ((Snapshot) snapshot).owner != this) {
+            return false;
+        }
+        // 新增缓冲区只追加不修改，快照中的片段仍然有效
+        root = ((Snapshot) snapshot).root;
+        hasLines = ((Snapshot) snapshot).hasLines;
+        return true;
+    }
+
+    @Override
+    public List<String> getLines() {
+        List<String> lines = new ArrayList<>(getLineCount());
+        if (!hasLines) {
+            return lines;
+        }
+        StringBuilder sb = new StringBuilder(length(root));
+        appendRange(root, 0, length(root), sb);
+        int start = 0;
+        for (int i = 0; i < sb.length(); i++) {
+            if (sb.charAt(i) == '\n') {
+                lines.add(sb.substring(start, i));
+                start = i + 1;
+            }
+        }
+        lines.add(sb.substring(start));
+        return lines;
+    }
+
+    // ========== 片段操作 ==========
+
+    private void insertAt(int offset, String text, boolean leadingBreak, boolean trailingBreak) {
+        int start = added.length();
+        if (leadingBreak) {
+            appendAdded('\n');
+        }
+        for (int i = 0; i < text.length(); i++) {
+            appendAdded(text.charAt(i));
+        }
+        if (trailingBreak) {
+            appendAdded('\n');
+        }
+        int len = added.length() - start;
+        if (len == 0) {
+            return;
+        }
+        Node piece = newNode(true, start, len, countBreaks(true, start, len));
+        split(root, offset);
+        Node left = splitLeft;
+        Node right = splitRight;
+        root = merge(merge(left, piece), right);
+    }
+
+    private void deleteRange(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        split(root, to);
+        Node right = splitRight;
+        split(splitLeft, from);
+        root = merge(splitLeft, right);
+    }
+
+    private void appendAdded(char c) {
+        if (c == '\n') {
+            if (addedBreakCount == addedBreaks.length) {
+                addedBreaks = Arrays.copyOf(addedBreaks, addedBreakCount * 2);
+            }
+            addedBreaks[addedBreakCount++] = added.length();
+        }
+        added.append(c);
+    }
+
+    /**
+     * 按字符偏移拆分子树，结果放入 splitLeft（前 offset 个字符）和 splitRight
+     * 不修改已有节点，路径上的节点都复制一份
+     */
+    private void split(Node t, int offset) {
+        if (t == null || offset <= 0) {
+            splitLeft = null;
+            splitRight = t;
+            return;
+        }
+        if (offset >= t.totalLength) {
+            splitLeft = t;
+            splitRight = null;
+            return;
+        }
+        int leftLen = length(t.left);
+        if (offset <= leftLen) {
+            split(t.left, offset);
+            splitRight = withChildren(t, splitRight, t.right);
+        } else if (offset >= leftLen + t.length) {
+            split(t.right, offset - leftLen - t.length);
+            splitLeft = withChildren(t, t.left, splitLeft);
+        } else {
+            // 偏移落在当前片段内部，把片段一分为二
+            int inner = offset - leftLen;
+            int headBreaks = countBreaks(t.add, t.start, inner);
+            Node head = new Node(t.add, t.start, inner, headBreaks, t.priority);
+            head.left = t.left;
+            update(head);
+            Node tail = newNode(t.add, t.start + inner, t.length - inner, t.lineFeeds - headBreaks);
+            splitLeft = head;
+            splitRight = merge(tail, t.right);
+        }
+    }
+
+    private Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            return withChildren(a, a.left, merge(a.right, b));
+        }
+        return withChildren(b, merge(a, b.left), b.right);
+    }
+
+    /**
+     * 复制节点并替换子节点
+     */
+    private static Node withChildren(Node t, Node left, Node right) {
+        Node copy = new Node(t.add, t.start, t.length, t.lineFeeds, t.priority);
+        copy.left = left;
+        copy.right = right;
+        update(copy);
+        return copy;
+    }
+
+    private void appendRange(Node t, int from, int to, StringBuilder sb) {
+        if (t == null || from >= to) {
+            return;
+        }
+        int leftLen = length(t.left);
+        if (from < leftLen) {
+            appendRange(t.left, from, Math.min(to, leftLen), sb);
+        }
+        int pieceFrom = Math.max(from, leftLen);
+        int pieceTo = Math.min(to, leftLen + t.length);
+        if (pieceFrom < pieceTo) {
+            sb.append(source(t.add), t.start + pieceFrom - leftLen, t.start + pieceTo - leftLen);
+        }
+        int rightBase = leftLen + t.length;
+        if (to > rightBase) {
+            appendRange(t.right, Math.max(0, from - rightBase), to - rightBase, sb);
+        }
+    }
+
+    // ========== 行定位 ==========
+
+    private int lineStart(int index) {
+        return index == 0 ? 0 : breakOffset(index) + 1;
+    }
+
+    private int lineEnd(int index) {
+        return index + 1 < getLineCount() ? breakOffset(index + 1) : length(root);
+    }
+
+    /**
+     * 第 k 个换行符（从1开始计数）在文档中的偏移
+     */
+    private int breakOffset(int k) {
+        Node t = root;
+        int base = 0;
+        while (t != null) {
+            int leftBreaks = lineFeeds(t.left);
+            if (k <= leftBreaks) {
+                t = t.left;
+                continue;
+            }
+            k -= leftBreaks;
+            int leftLen = length(t.left);
+            if (k <= t.lineFeeds) {
+                int[] breaks = t.add ? addedBreaks : originalBreaks;
+                int count = t.add ? addedBreakCount : originalBreaks.length;
+                int pos = breaks[lowerBound(breaks, count, t.start) + k - 1];
+                return base + leftLen + pos - t.start;
+            }
+            k -= t.lineFeeds;
+            base += leftLen + t.length;
+            t = t.right;
+        }
+        throw new IllegalStateException("换行符索引损坏: " + k);
+    }
+
+    private void checkLine(int index) {
+        if (index < 0 || index >= getLineCount()) {
+            throw new IndexOutOfBoundsException("行号超出范围: " + index);
+        }
+    }
+
+    // ========== 工具方法 ==========
+
+    private Node newNode(boolean add, int start, int length, int lineFeeds) {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        Node node = new Node(add, start, length, lineFeeds, seed);
+        update(node);
+        return node;
+    }
+
+    private CharSequence source(boolean add) {
+        return add ? added : original;
+    }
+
+    private int countBreaks(boolean add, int start, int len) {
+        int[] breaks = add ? addedBreaks : originalBreaks;
+        int count = add ? addedBreakCount : originalBreaks.length;
+        return lowerBound(breaks, count, start + len) - lowerBound(breaks, count, start);
+    }
+
+    private static int lowerBound(int[] values, int count, int key) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int[] scanBreaks(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        int[] breaks = new int[count];
+        int j = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                breaks[j++] = i;
+            }
+        }
+        return breaks;
+    }
+
+    private static int length(Node t) {
+        return t == null ? 0 : t.totalLength;
+    }
+
+    private static int lineFeeds(Node t) {
+        return t == null ? 0 : t.totalLineFeeds;
+    }
+
+    private static void update(Node t) {
+        t.totalLength = length(t.left) + t.length + length(t.right);
+        t.totalLineFeeds = lineFeeds(t.left) + t.lineFeeds + lineFeeds(t.right);
+    }
+
+    /**
+     * 文档快照，持有某一时刻的根节点
+     */
+    private static final class Snapshot implements TextBuffer.Snapshot {
+        final PieceTableBuffer owner;
+        final Node root;
+        final boolean hasLines;
+
+        Snapshot(PieceTableBuffer owner, Node root, boolean hasLines) {
+            this.owner = owner;
+            this.root = root;
+            this.hasLines = hasLines;
+        }
+    }
+
+    /**
+     * treap 节点，一个节点对应一个片段；节点创建后其子树不再变化，可以被多个版本共享
+     */
+    private static class Node {
+        final boolean add;
+        final int start;
+        final int length;
+        final int lineFeeds;
+        final int priority;
+        Node left;
+        Node right;
+        int totalLength;
+        int totalLineFeeds;
+
+        Node(boolean add, int start, int length, int lineFeeds, int priority) {
+            this.add = add;
+            this.start = start;
+            this.length = length;
+            this.lineFeeds = lineFeeds;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.editor.editor;
+
+import com.editor.command.Command;
+import com.editor.command.CommandHistory;
+import com.editor.observer.Event;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 只读的XML编辑器，用于超大XML文件
+ * 文档解析为紧凑的 {@link XmlDocument}，不建立 XmlElement 树和索引，
+ * 支持 xml-tree、find、query 和 spell-check，不能编辑。
+ */
+public class ReadOnlyXmlEditor implements Editor {
+    private final String filePath;
+    private XmlDocument document;
+    private final CommandHistory history;
+    private final List<com.editor.observer.Observer> observers;
+
+    public ReadOnlyXmlEditor(String filePath) {
+        this.filePath = filePath;
+        this.document = XmlDocument.fromElement(null);
+        this.history = new CommandHistory();
+        this.observers = new ArrayList<>();
+    }
+
+    @Override
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public XmlDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * 从文件加载XML：直接在内存映射的文件上按需解码解析，不先把整个文件读成字符串
+     */
+    public void loadFromFile() throws IOException {
+        Path path = Paths.get(filePath);
+        if (!Files.exists(path)) {
+            throw new IOException("文件不存在: " + filePath);
+        }
+        this.document = XmlDocument.parse(MappedCharSequence.open(path));
+    }
+
+    /**
+     * 根元素有 log="true" 属性时启用日志
+     */
+    public boolean isLogEnabled() {
+        return document.size() > 0 && "true".equals(document.getAttribute(document.getRoot(), "log"));
+    }
+
+    /**
+     * 标签名（为 null 时不限）和全部属性都匹配的元素，按文档顺序排列
+     * 没有索引，逐个检查所有元素。
+     */
+    public List<XmlDocument.Node> find(String tagName, Map<String, String> attributes) {
+        List<XmlDocument.Node> result = new ArrayList<>();
+        for (int node = 0; node < document.size(); node++) {
+            if (tagName != null && !tagName.equals(document.getTagName(node))) {
+                continue;
+            }
+            boolean matches = true;
+            for (Map.Entry<String, String> condition : attributes.entrySet()) {
+                if (!condition.getValue().equals(document.getAttribute(node, condition.getKey()))) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                result.add(document.node(node));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public boolean isModified() {
+        return false;
+    }
+
+    @Override
+    public void setModified(boolean modified) {
+        // 内容不会改变
+    }
+
+    @Override
+    public void executeCommand(Command command) {
+        throw new IllegalStateException("文件以只读方式打开: " + filePath);
+    }
+
+    @Override
+    public void beginBatch() {
+        // 没有可以暂存的命令
+    }
+
+    @Override
+    public void endBatch() {
+        // 没有可以暂存的命令
+    }
+
+    @Override
+    public void abortBatch() {
+        // 没有可以暂存的命令
+    }
+
+    @Override
+    public boolean undo() {
+        return false;
+    }
+
+    @Override
+    public boolean redo() {
+        return false;
+    }
+
+    @Override
+    public CommandHistory getHistory() {
+        return history;
+    }
+
+    @Override
+    public boolean canUndo() {
+        return false;
+    }
+
+    @Override
+    public boolean canRedo() {
+        return false;
+    }
+
+    @Override
+    public void save() {
+        // 内容与文件相同，不需要写回
+    }
+
+    @Override
+    public void attach(com.editor.observer.Observer observer) {
+        observers.add(observer);
+    }
+
+    @Override
+    public void detach(com.editor.observer.Observer observer) {
+        observers.remove(observer);
+    }
+
+    @Override
+    public void notifyObservers(Event event) {
+        for (com.editor.observer.Observer observer : observers) {
+            observer.update(event);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.editor.editor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文本缓冲区接口，TextEditor 通过它存取内容，便于替换不同的底层实现
+ * 行号和列号均从0开始。
+ * '\n' 是行分隔符，不会出现在行内容中：insert、insertLine 和 setLine 的文本中每个 '\n'
+ * 都把内容拆成新的一行，例如在 "ab" 的第1列插入 "x\ny" 得到 "ax" 和 "yb" 两行。
+ */
+public interface TextBuffer {
+    /**
+     * 获取行数
+     */
+    int getLineCount();
+
+    /**
+     * 第 index 行是否存在。超大文件的实现只需确认到这一行，不必先算出总行数
+     */
+    default boolean hasLine(int index) {
+        return index >= 0 && index < getLineCount();
+    }
+
+    /**
+     * 获取指定行的内容
+     */
+    String getLine(int index);
+
+    /**
+     * 获取指定行的长度
+     */
+    default int getLineLength(int index) {
+        return getLine(index).length();
+    }
+
+    /**
+     * 获取指定行从 col 开始的 len 个字符，超出行尾的部分忽略
+     */
+    default String getText(int index, int col, int len) {
+        String line = getLine(index);
+        int from = Math.min(col, line.length());
+        return line.substring(from, Math.min(from + len, line.length()));
+    }
+
+    /**
+     * 在指定行的指定列插入文本，文本中的 '\n' 会拆出新行
+     */
+    void insert(int index, int col, String text);
+
+    /**
+     * 删除指定行从指定列开始的 len 个字符
+     */
+    void delete(int index, int col, int len);
+
+    /**
+     * 删除之前用 insert 在指定位置插入的 text：text 中每个 '\n' 对应跨过一个行尾，
+     * 删除后该位置前后的内容重新合并为一行
+     */
+    default void deleteText(int index, int col, String text) {
+        int breaks = 0;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+            breaks++;
+        }
+        if (breaks == 0) {
+            delete(index, col, text.length());
+            return;
+        }
+        // 插入的最后一段之后是原来该位置之后的内容
+        String last = getLine(index + breaks);
+        String tail = last.substring(Math.min(text.length() - text.lastIndexOf('\n') - 1, last.length()));
+        for (int i = 0; i < breaks; i++) {
+            removeLine(index + 1);
+        }
+        delete(index, col, getLineLength(index) - col);
+        insert(index, col, tail);
+    }
+
+    /**
+     * 在指定位置插入一整行（文本中有 '\n' 时插入多行），index 等于行数时追加到末尾
+     */
+    void insertLine(int index, String text);
+
+    /**
+     * 删除指定行
+     */
+    void removeLine(int index);
+
+    /**
+     * 替换指定行的内容
+     */
+    default void setLine(int index, String text) {
+        delete(index, 0, getLineLength(index));
+        insert(index, 0, text);
+    }
+
+    /**
+     * 在末尾追加一行
+     */
+    default void appendLine(String text) {
+        insertLine(getLineCount(), text);
+    }
+
+    /**
+     * 获取当前内容的不可变快照，不支持快照的实现返回 null
+     */
+    default Snapshot snapshot() {
+        return null;
+    }
+
+    /**
+     * 恢复到本缓冲区之前的快照
+     * @return 快照不属于本缓冲区时返回 false，内容不变
+     */
+    default boolean restore(Snapshot snapshot) {
+        return false;
+    }
+
+    /**
+     * 获取所有行的副本
+     */
+    default List<String> getLines() {
+        int count = getLineCount();
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add(getLine(i));
+        }
+        return lines;
+    }
+
+    /**
+     * 把内容写入通道，每行以系统换行符结尾
+     */
+    default void writeTo(FileChannel channel) throws IOException {
+        Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), 8192));
+        String separator = System.lineSeparator();
+        int count = getLineCount();
+        for (int i = 0; i < count; i++) {
+            writer.write(getLine(i));
+            writer.write(separator);
+        }
+        // 通道由调用方负责关闭
+        writer.flush();
+    }
+
+    /**
+     * 文本缓冲区的快照，只能恢复到创建它的缓冲区
+     */
+    interface Snapshot {
+    }
+}
@@ -1,31 +1,56 @@
 package com.editor.editor;
 
+import com.editor.command.BatchCommand;
 import com.editor.command.Command;
+import com.editor.command.CommandHistory;
+import com.editor.command.RevertCommand;
+import com.editor.command.TextCommandCodec;
 import com.editor.observer.Event;
 import com.editor.observer.Subject;
+import com.editor.util.AtomicFileSaver;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Stack;
 
 /**
  * 文本编辑器类
  */
 public class TextEditor implements Editor {
+    // 最多保留的历史版本数，超出时丢弃最早的版本
+    public static final int MAX_VERSIONS = 1000;
+
     private final String filePath;
-    private List<String> lines;
+    private TextBuffer buffer;
     private boolean modified;
-    private final Stack<Command> undoStack;
-    private final Stack<Command> redoStack;
+    private final CommandHistory history;
     private final List<com.editor.observer.Observer> observers;
+    // 保留的版本放在定长环形数组中，丢弃最早的版本是 O(1)
+    private final Version[] versions;
+    private int versionStart;
+    private int versionCount;
+    private int nextVersion;
+    // 批量执行中暂存的命令，不在批量执行时为 null
+    private List<Command> batch;
+    // 批量开始前的快照和修改状态，中止或撤销整个批量时直接恢复
+    private TextBuffer.Snapshot batchBefore;
+    private boolean batchModified;
+    private boolean eventsSuppressed;
 
     public TextEditor(String filePath) {
+        this(filePath, new PieceTableBuffer());
+    }
+
+    public TextEditor(String filePath, TextBuffer buffer) {
         this.filePath = filePath;
-        this.lines = new ArrayList<>();
+        this.buffer = buffer;
         this.modified = false;
-        this.undoStack = new Stack<>();
-        this.redoStack = new Stack<>();
+        this.history = new CommandHistory();
+        this.history.setCodec(new TextCommandCodec(this));
         this.observers = new ArrayList<>();
+        this.versions = new Version[MAX_VERSIONS];
+        recordVersion("open");
     }
 
     public String getFilePath() {
@@ -41,19 +66,53 @@ public class TextEditor implements Editor {
     }
 
     public List<String> getLines() {
-        return new ArrayList<>(lines);
+        return buffer.getLines();
     }
 
     /**
-     * 获取可修改的行列表（用于命令模式）
+     * 获取底层文本缓冲区（用于命令模式，直接修改不会触发事件）
      */
-    public List<String> getMutableLines() {
-        return lines;
+    public TextBuffer getBuffer() {
+        return buffer;
     }
 
-    public void setLines(List<String> lines) {
-        this.lines = new ArrayList<>(lines);
+    public void setBuffer(TextBuffer buffer) {
+        this.buffer = buffer;
         this.modified = true;
+        // 旧缓冲区的快照不能用于新缓冲区
+        Arrays.fill(versions, null);
+        versionStart = 0;
+        versionCount = 0;
+        nextVersion = 0;
+        recordVersion("open");
+    }
+
+    /**
+     * 获取当前文档的快照，缓冲区不支持快照时返回 null
+     * 批量执行中也返回 null：整个批量只在开始时取一个快照，批内的命令不再各自保留版本
+     */
+    public TextBuffer.Snapshot snapshot() {
+        return batch != null ? null : buffer.snapshot();
+    }
+
+    /**
+     * 把文档恢复到快照（用于命令模式，不会触发事件）
+     * @return 快照不属于当前缓冲区时返回 false
+     */
+    public boolean restoreSnapshot(TextBuffer.Snapshot snapshot) {
+        if (snapshot == null || !buffer.restore(snapshot)) {
+            return false;
+        }
+        modified = true;
+        return true;
+    }
+
+    public void setLines(List<String> lines) {
+        setBuffer(new PieceTableBuffer(lines));
+    }
+
+    public int getLineCount() {
+        return buffer.getLineCount();
     }
 
     /**
@@ -63,16 +122,17 @@ public class TextEditor implements Editor {
         if (text == null) {
             text = "";
         }
-        lines.add(text);
+        buffer.appendLine(text);
         modified = true;
-        notifyObservers(new Event("EDIT", "append", filePath));
+        notifyObservers(new Event("EDIT", "append", filePath, buffer.getLineCount(), 1));
     }
 
     /**
      * 在指定位置插入文本
      */
     public void insert(int line, int col, String text) {
-        if (line < 1 || line > lines.size() + 1) {
+        // 只检查用到的行，避免为了总行数等待超大文件的索引
+        if (line < 1 || (line > 1 && !buffer.hasLine(line - 2))) {
             throw new IllegalArgumentException("行号超出范围: " + line);
         }
         if (col < 1) {
@@ -83,26 +143,26 @@ public class TextEditor implements Editor {
             text = "";
         }
 
-        if (line > lines.size()) {
+        int lineDelta = countLineBreaks(text);
+        if (!buffer.hasLine(line - 1)) {
             // 追加新行
-            lines.add(text);
+            buffer.appendLine(text);
+            lineDelta++;
         } else {
-            String currentLine = lines.get(line - 1);
-            if (col > currentLine.length() + 1) {
+            if (col > buffer.getLineLength(line - 1) + 1) {
                 throw new IllegalArgumentException("列号超出范围: " + col);
             }
-            String newLine = currentLine.substring(0, col - 1) + text + currentLine.substring(col - 1);
-            lines.set(line - 1, newLine);
+            buffer.insert(line - 1, col - 1, text);
         }
         modified = true;
-        notifyObservers(new Event("EDIT", "insert", filePath));
+        notifyObservers(new Event("EDIT", "insert", filePath, line, lineDelta));
     }
 
     /**
      * 删除指定位置的字符
      */
     public void delete(int line, int col, int len) {
-        if (line < 1 || line > lines.size()) {
+        if (line < 1 || !buffer.hasLine(line - 1)) {
             throw new IllegalArgumentException("行号超出范围: " + line);
         }
         if (col < 1) {
@@ -112,16 +172,14 @@ public class TextEditor implements Editor {
             throw new IllegalArgumentException("长度不能为负数: " + len);
         }
 
-        String currentLine = lines.get(line - 1);
-        if (col > currentLine.length() + 1) {
+        if (col > buffer.getLineLength(line - 1) + 1) {
             throw new IllegalArgumentException("列号超出范围: " + col);
         }
 
-        int endPos = Math.min(col - 1 + len, currentLine.length());
-        String newLine = currentLine.substring(0, col - 1) + currentLine.substring(endPos);
-        lines.set(line - 1, newLine);
+        // 删除不会跨越行尾，行数不变
+        buffer.delete(line - 1, col - 1, len);
         modified = true;
-        notifyObservers(new Event("EDIT", "delete", filePath));
+        notifyObservers(new Event("EDIT", "delete", filePath, line, 0));
     }
 
     /**
@@ -134,30 +192,19 @@ public class TextEditor implements Editor {
         // 先删除，再插入
         delete(line, col, len);
         insert(line, col, text);
-        notifyObservers(new Event("EDIT", "replace", filePath));
+        notifyObservers(new Event("EDIT", "replace", filePath, line, 0));
     }
 
     /**
      * 显示指定范围的内容
      */
     public String show(int startLine, int endLine) {
-        if (lines.isEmpty()) {
-            return "";
-        }
-
         if (startLine < 1) {
             startLine = 1;
         }
-        if (endLine < 0 || endLine > lines.size()) {
-            endLine = lines.size();
-        }
-        if (startLine > endLine) {
-            return "";
-        }
-
         StringBuilder sb = new StringBuilder();
-        for (int i = startLine; i <= endLine; i++) {
-            sb.append(i).append(": ").append(lines.get(i - 1)).append("\n");
+        for (int i = startLine; (endLine < 0 || i <= endLine) && buffer.hasLine(i - 1); i++) {
+            sb.append(i).append(": ").append(buffer.getLine(i - 1)).append("\n");
         }
         return sb.toString();
     }
@@ -167,21 +214,66 @@ public class TextEditor implements Editor {
      */
     public void executeCommand(Command command) {
         command.execute();
-        undoStack.push(command);
-        redoStack.clear();
+        if (batch != null) {
+            batch.add(command);
+            return;
+        }
+        history.push(command);
+        recordVersion(command.getName());
+    }
+
+    @Override
+    public void beginBatch() {
+        if (batch != null) {
+            throw new IllegalStateException("已经在批量执行中");
+        }
+        batch = new ArrayList<>();
+        batchBefore = buffer.snapshot();
+        batchModified = modified;
+    }
+
+    @Override
+    public void endBatch() {
+        List<Command> commands = batch;
+        TextBuffer.Snapshot before = batchBefore;
+        batch = null;
+        batchBefore = null;
+        if (commands == null || commands.isEmpty()) {
+            return;
+        }
+        TextBuffer.Snapshot after = buffer.snapshot();
+        history.push(new BatchCommand(commands, () -> restoreSnapshot(before), () -> restoreSnapshot(after)));
+        recordVersion("batch");
+        notifyObservers(new Event("EDIT", "batch", filePath));
+    }
+
+    @Override
+    public void abortBatch() {
+        List<Command> commands = batch;
+        TextBuffer.Snapshot before = batchBefore;
+        batch = null;
+        batchBefore = null;
+        if (commands == null) {
+            return;
+        }
+        if (!restoreSnapshot(before)) {
+            for (int i = commands.size() - 1; i >= 0; i--) {
+                commands.get(i).undo();
+            }
+        }
+        // 全部回滚后文档与批量开始前相同
+        modified = batchModified;
     }
 
     /**
      * 撤销操作
      */
     public boolean undo() {
-        if (undoStack.isEmpty()) {
+        if (!history.undo()) {
             return false;
         }
-        Command command = undoStack.pop();
-        command.undo();
-        redoStack.push(command);
         modified = true;
+        recordVersion("undo");
         notifyObservers(new Event("EDIT", "undo", filePath));
         return true;
     }
@@ -190,29 +282,125 @@ public class TextEditor implements Editor {
      * 重做操作
      */
     public boolean redo() {
-        if (redoStack.isEmpty()) {
+        // 重做时命令本身发出的事件由下面一个 redo 事件代替
+        eventsSuppressed = true;
+        boolean redone;
+        try {
+            redone = history.redo();
+        } finally {
+            eventsSuppressed = false;
+        }
+        if (!redone) {
             return false;
         }
-        Command command = redoStack.pop();
-        command.execute();
-        undoStack.push(command);
         modified = true;
+        recordVersion("redo");
         notifyObservers(new Event("EDIT", "redo", filePath));
         return true;
     }
 
+    /**
+     * 回到指定版本的内容，作为一条可撤销的命令执行
+     * @throws IllegalArgumentException 版本不存在或已被丢弃
+     */
+    public void revertTo(int number) {
+        Version target = getVersion(number);
+        if (target == null) {
+            throw new IllegalArgumentException("版本不存在: " + number);
+        }
+        executeCommand(new RevertCommand(this, target.getSnapshot(), number));
+    }
+
+    /**
+     * 回到指定时刻的内容，即该时刻之前最后一个版本
+     * @return 回到的版本号
+     * @throws IllegalArgumentException 该时刻之前没有保留的版本
+     */
+    public int revertToTime(long timestamp) {
+        for (int i = versionCount - 1; i >= 0; i--) {
+            Version version = versionAt(i);
+            if (version.getTimestamp() <= timestamp) {
+                revertTo(version.getNumber());
+                return version.getNumber();
+            }
+        }
+        throw new IllegalArgumentException("该时间之前没有版本");
+    }
+
+    /**
+     * 获取保留的历史版本，按版本号递增排列，最后一个是当前版本
+     */
+    public List<Version> getVersions() {
+        return new AbstractList<Version>() {
+            @Override
+            public Version get(int index) {
+                if (index < 0 || index >= versionCount) {
+                    throw new IndexOutOfBoundsException("版本下标超出范围: " + index);
+                }
+                return versionAt(index);
+            }
+
+            @Override
+            public int size() {
+                return versionCount;
+            }
+        };
+    }
+
+    /**
+     * 获取指定版本，不存在时返回 null
+     */
+    public Version getVersion(int number) {
+        if (versionCount == 0) {
+            return null;
+        }
+        // 版本号连续，可以直接定位
+        int index = number - versionAt(0).getNumber();
+        return index >= 0 && index < versionCount ? versionAt(index) : null;
+    }
+
+    private Version versionAt(int index) {
+        return versions[(versionStart + index) % MAX_VERSIONS];
+    }
+
+    private void recordVersion(String description) {
+        TextBuffer.Snapshot snapshot = buffer.snapshot();
+        if (snapshot == null) {
+            // 缓冲区不支持快照（如映射的大文件），不记录版本
+            return;
+        }
+        Version version = new Version(nextVersion++, System.currentTimeMillis(), description, snapshot);
+        if (versionCount == MAX_VERSIONS) {
+            // 覆盖最早的版本
+            versions[versionStart] = version;
+            versionStart = (versionStart + 1) % MAX_VERSIONS;
+        } else {
+            versions[(versionStart + versionCount) % MAX_VERSIONS] = version;
+            versionCount++;
+        }
+    }
+
+    @Override
+    public CommandHistory getHistory() {
+        return history;
+    }
+
     public boolean canUndo() {
-        return !undoStack.isEmpty();
+        return history.canUndo();
     }
 
     public boolean canRedo() {
-        return !redoStack.isEmpty();
+        return history.canRedo();
     }
 
     @Override
     public void save() throws java.io.IOException {
-        java.nio.file.Path path = java.nio.file.Paths.get(filePath);
-        java.nio.file.Files.write(path, lines, java.nio.charset.StandardCharsets.UTF_8);
+        if (buffer instanceof MappedTextBuffer) {
+            // 映射缓冲区要在替换前关闭源文件，替换后重新映射
+            ((MappedTextBuffer) buffer).save();
+        } else {
+            AtomicFileSaver.save(java.nio.file.Paths.get(filePath), buffer::writeTo);
+        }
         modified = false;
     }
 
@@ -228,9 +416,20 @@ public class TextEditor implements Editor {
 
     @Override
     public void notifyObservers(Event event) {
+        if (batch != null || eventsSuppressed) {
+            return;
+        }
         for (com.editor.observer.Observer observer : observers) {
             observer.update(event);
         }
     }
+
+    private static int countLineBreaks(String text) {
+        int count = 0;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+            count++;
+        }
+        return count;
+    }
 }
 
@@ -0,0 +1,40 @@
+package com.editor.editor;
+
+/**
+ * 文本编辑器的一个历史版本：每次执行命令、撤销或重做后记录一次，保存当时文档的快照
+ */
+public class Version {
+    private final int number;
+    private final long timestamp;
+    private final String description;
+    private final TextBuffer.Snapshot snapshot;
+
+    Version(int number, long timestamp, String description, TextBuffer.Snapshot snapshot) {
+        this.number = number;
+        this.timestamp = timestamp;
+        this.description = description;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * 版本号，打开文件时为0，之后依次递增
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * 产生该版本的操作，如 insert、undo
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    TextBuffer.Snapshot getSnapshot() {
+        return snapshot;
+    }
+}
@@ -0,0 +1,569 @@
+package com.editor.editor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 紧凑的只读XML文档模型，用于只需读取、查找和导出的超大文档
+ * 整棵树保存在按节点编号的平行 int 数组中（父节点、第一个子节点、下一个兄弟节点），
+ * 标签名和属性名驻留为整数编号，属性值和文本内容连续存放在同一个字符数组里。
+ * 每个元素只占几十个字节，没有 XmlElement 那样的 HashMap、ArrayList 和字符串对象；
+ * {@link Node} 只是（文档, 编号）的轻量视图，需要时才创建。
+ * 节点按文档顺序编号，根节点为0。需要编辑时用 {@link #toElement(int)} 展开成 XmlElement 树。
+ */
+public final class XmlDocument {
+    public static final int NONE = -1;
+
+    // 属性名编号0固定是 id，每个元素的第一个属性槽就是它的 id
+    private static final int ID = 0;
+
+    private final int size;
+    private final int[] parent;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] tag;
+    // 元素的属性占用槽 [attrStart, attrStart + attrCount)
+    private final int[] attrStart;
+    private final int[] attrCount;
+    // 文本内容所在的槽，没有文本时为 NONE
+    private final int[] textSlot;
+
+    // 槽 k 的内容是 chars[slotStart[k], slotStart[k + 1])，slotName 是属性名编号（文本槽为 NONE）
+    private final int[] slotName;
+    private final int[] slotStart;
+    private final char[] chars;
+
+    private final String[] symbols;
+
+    // id -> 节点的开放寻址散列表，第一次按 id 查找时建立
+    private int[] idTable;
+
+    private XmlDocument(Builder builder) {
+        this.size = builder.size;
+        this.parent = Arrays.copyOf(builder.parent, size);
+        this.firstChild = Arrays.copyOf(builder.firstChild, size);
+        this.nextSibling = Arrays.copyOf(builder.nextSibling, size);
+        this.tag = Arrays.copyOf(builder.tag, size);
+        this.attrStart = Arrays.copyOf(builder.attrStart, size);
+        this.attrCount = Arrays.copyOf(builder.attrCount, size);
+        this.textSlot = Arrays.copyOf(builder.textSlot, size);
+        this.slotName = Arrays.copyOf(builder.slotName, builder.slots);
+        this.slotStart = Arrays.copyOf(builder.slotStart, builder.slots + 1);
+        this.chars = Arrays.copyOf(builder.chars, builder.charCount);
+        this.symbols = builder.symbols.toArray(new String[0]);
+    }
+
+    /**
+     * 解析XML文本
+     */
+    public static XmlDocument parse(CharSequence input) {
+        return new XmlParser(input).parseDocument();
+    }
+
+    /**
+     * 把 XmlElement 树压缩为紧凑模型
+     */
+    public static XmlDocument fromElement(XmlElement root) {
+        Builder builder = new Builder();
+        if (root != null) {
+            root.accept(new XmlElement.Visitor() {
+                @Override
+                public boolean enter(XmlElement element, int depth) {
+                    builder.start(element.getTagName(), element.getId());
+                    for (Map.Entry<String, String> attribute : element.getAttributes().entrySet()) {
+                        if (!"id".equals(attribute.getKey())) {
+                            builder.attribute(attribute.getKey(), attribute.getValue());
+                        }
+                    }
+                    return true;
+                }
+
+                @Override
+                public void leave(XmlElement element, int depth) {
+                    builder.end(element.getTextContent());
+                }
+            });
+        }
+        return builder.build();
+    }
+
+    /**
+     * 元素个数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 根节点编号，文档为空时为 NONE
+     */
+    public int getRoot() {
+        return size > 0 ? 0 : NONE;
+    }
+
+    public Node node(int node) {
+        check(node);
+        return new Node(this, node);
+    }
+
+    /**
+     * 查询时代表文档本身的占位节点，它唯一的子节点是根元素；只能用于比较，不能读取内容
+     */
+    Node documentNode() {
+        return new Node(this, NONE);
+    }
+
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    public int getFirstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int getNextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    public boolean hasChildren(int node) {
+        return firstChild[node] != NONE;
+    }
+
+    public String getTagName(int node) {
+        return symbols[tag[node]];
+    }
+
+    public String getId(int node) {
+        return slotString(attrStart[node]);
+    }
+
+    /**
+     * 属性个数（包括 id）
+     */
+    public int getAttributeCount(int node) {
+        return attrCount[node];
+    }
+
+    /**
+     * 第 index 个属性的名称，第0个总是 id
+     */
+    public String getAttributeName(int node, int index) {
+        return symbols[slotName[attributeSlot(node, index)]];
+    }
+
+    public String getAttributeValue(int node, int index) {
+        return slotString(attributeSlot(node, index));
+    }
+
+    public String getAttribute(int node, String name) {
+        int start = attrStart[node];
+        for (int slot = start; slot < start + attrCount[node]; slot++) {
+            if (symbols[slotName[slot]].equals(name)) {
+                return slotString(slot);
+            }
+        }
+        return null;
+    }
+
+    public String getTextContent(int node) {
+        int slot = textSlot[node];
+        return slot == NONE ? null : slotString(slot);
+    }
+
+    public boolean hasTextContent(int node) {
+        int slot = textSlot[node];
+        if (slot == NONE) {
+            return false;
+        }
+        for (int i = slotStart[slot]; i < slotStart[slot + 1]; i++) {
+            if (!Character.isWhitespace(chars[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按 id 查找节点，找不到时返回 NONE；id 重复时返回文档中靠后的一个（与 XmlEditor 一致）
+     */
+    public int findById(String id) {
+        if (idTable == null) {
+            idTable = buildIdTable();
+        }
+        int mask = idTable.length - 1;
+        for (int i = hash(id) & mask; idTable[i] != NONE; i = (i + 1) & mask) {
+            if (slotEquals(attrStart[idTable[i]], id)) {
+                return idTable[i];
+            }
+        }
+        return NONE;
+    }
+
+    private int[] buildIdTable() {
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+        int[] table = new int[capacity];
+        Arrays.fill(table, NONE);
+        int mask = capacity - 1;
+        for (int node = 0; node < size; node++) {
+            int slot = attrStart[node];
+            int i = slotHash(slot) & mask;
+            while (table[i] != NONE && !sameSlotContent(attrStart[table[i]], slot)) {
+                i = (i + 1) & mask;
+            }
+            table[i] = node;
+        }
+        return table;
+    }
+
+    /**
+     * 把以 node 为根的子树展开成可编辑的 XmlElement 树
+     */
+    public XmlElement toElement(int node) {
+        check(node);
+        XmlElement top = createElement(node);
+        XmlElement current = top;
+        int at = node;
+        while (true) {
+            if (firstChild[at] != NONE) {
+                at = firstChild[at];
+                XmlElement child = createElement(at);
+                current.addChild(child);
+                current = child;
+                continue;
+            }
+            // 向上回到还有下一个兄弟的祖先
+            while (at != node && nextSibling[at] == NONE) {
+                at = parent[at];
+                current = current.getParent();
+            }
+            if (at == node) {
+                return top;
+            }
+            at = nextSibling[at];
+            XmlElement sibling = createElement(at);
+            current.getParent().addChild(sibling);
+            current = sibling;
+        }
+    }
+
+    private XmlElement createElement(int node) {
+        XmlElement element = new XmlElement(getTagName(node), getId(node));
+        for (int i = 1; i < attrCount[node]; i++) {
+            element.setAttribute(getAttributeName(node, i), getAttributeValue(node, i));
+        }
+        String text = getTextContent(node);
+        if (text != null) {
+            element.setTextContent(text);
+        }
+        return element;
+    }
+
+    /**
+     * 估算占用的内存（字节），不含对象头
+     */
+    public long estimateSize() {
+        long bytes = 7L * 4 * size;
+        bytes += 4L * slotName.length + 4L * slotStart.length + 2L * chars.length;
+        for (String symbol : symbols) {
+            bytes += 40 + symbol.length();
+        }
+        if (idTable != null) {
+            bytes += 4L * idTable.length;
+        }
+        return bytes;
+    }
+
+    // ========== 供 XmlWriter 直接读取字符，不创建字符串 ==========
+
+    char[] chars() {
+        return chars;
+    }
+
+    int slotBegin(int slot) {
+        return slotStart[slot];
+    }
+
+    int slotEnd(int slot) {
+        return slotStart[slot + 1];
+    }
+
+    int attributeSlot(int node, int index) {
+        if (index < 0 || index >= attrCount[node]) {
+            throw new IndexOutOfBoundsException("属性下标越界: " + index);
+        }
+        return attrStart[node] + index;
+    }
+
+    int textSlot(int node) {
+        return textSlot[node];
+    }
+
+    // ========== 槽 ==========
+
+    private String slotString(int slot) {
+        return new String(chars, slotStart[slot], slotStart[slot + 1] - slotStart[slot]);
+    }
+
+    private boolean slotEquals(int slot, String value) {
+        int start = slotStart[slot];
+        int length = slotStart[slot + 1] - start;
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chars[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean sameSlotContent(int a, int b) {
+        int length = slotStart[a + 1] - slotStart[a];
+        return length == slotStart[b + 1] - slotStart[b]
+                && Arrays.equals(chars, slotStart[a], slotStart[a + 1], chars, slotStart[b], slotStart[b + 1]);
+    }
+
+    /**
+     * 与 String.hashCode 相同的算法，再打散高位
+     */
+    private int slotHash(int slot) {
+        int h = 0;
+        for (int i = slotStart[slot]; i < slotStart[slot + 1]; i++) {
+            h = 31 * h + chars[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(String value) {
+        int h = value.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private void check(int node) {
+        if (node < 0 || node >= size) {
+            throw new IllegalArgumentException("节点不存在: " + node);
+        }
+    }
+
+    /**
+     * 文档中一个元素的轻量视图，相等性由文档和节点编号决定
+     */
+    public static final class Node {
+        private final XmlDocument document;
+        private final int index;
+
+        private Node(XmlDocument document, int index) {
+            this.document = document;
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getTagName() {
+            return document.getTagName(index);
+        }
+
+        public String getId() {
+            return document.getId(index);
+        }
+
+        public String getAttribute(String name) {
+            return document.getAttribute(index, name);
+        }
+
+        public String getTextContent() {
+            return document.getTextContent(index);
+        }
+
+        /**
+         * 父元素，根元素返回 null
+         */
+        public Node getParent() {
+            return wrap(document.parent[index]);
+        }
+
+        public Node getFirstChild() {
+            return wrap(document.firstChild[index]);
+        }
+
+        public Node getNextSibling() {
+            return wrap(document.nextSibling[index]);
+        }
+
+        public List<Node> getChildren() {
+            List<Node> children = new ArrayList<>();
+            for (int child = document.firstChild[index]; child != NONE; child = document.nextSibling[child]) {
+                children.add(new Node(document, child));
+            }
+            return children;
+        }
+
+        private Node wrap(int node) {
+            return node == NONE ? null : new Node(document, node);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Node)) {
+                return false;
+            }
+            Node other = (Node) o;
+            return document == other.document && index == other.index;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(document) * 31 + index;
+        }
+
+        @Override
+        public String toString() {
+            return getTagName() + "#" + getId();
+        }
+    }
+
+    /**
+     * 按文档顺序追加元素，构建完成后数组裁剪到实际大小
+     */
+    static final class Builder implements XmlParser.Handler {
+        private int size;
+        private int[] parent = new int[64];
+        private int[] firstChild = new int[64];
+        private int[] nextSibling = new int[64];
+        private int[] tag = new int[64];
+        private int[] attrStart = new int[64];
+        private int[] attrCount = new int[64];
+        private int[] textSlot = new int[64];
+
+        private int slots;
+        private int[] slotName = new int[128];
+        private int[] slotStart = new int[129];
+        private char[] chars = new char[1024];
+        private int charCount;
+
+        private final List<String> symbols = new ArrayList<>();
+        private final Map<String, Integer> symbolIds = new HashMap<>();
+
+        // 尚未结束的元素，以及它们当前的最后一个子元素
+        private int[] open = new int[16];
+        private int[] lastChild = new int[16];
+        private int depth;
+
+        Builder() {
+            intern("id");
+        }
+
+        @Override
+        public void startElement(String tagName, List<String> attrNames, List<String> attrValues, String id) {
+            start(tagName, id);
+            for (int i = 0; i < attrNames.size(); i++) {
+                if (!"id".equals(attrNames.get(i))) {
+                    attribute(attrNames.get(i), attrValues.get(i));
+                }
+            }
+        }
+
+        @Override
+        public void endElement(String text) {
+            end(text);
+        }
+
+        void start(String tagName, String id) {
+            if (size == parent.length) {
+                int capacity = size * 2;
+                parent = Arrays.copyOf(parent, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                tag = Arrays.copyOf(tag, capacity);
+                attrStart = Arrays.copyOf(attrStart, capacity);
+                attrCount = Arrays.copyOf(attrCount, capacity);
+                textSlot = Arrays.copyOf(textSlot, capacity);
+            }
+            if (depth == 0 && size > 0) {
+                throw new IllegalArgumentException("文档只能有一个根元素");
+            }
+            int node = size++;
+            tag[node] = intern(tagName);
+            firstChild[node] = NONE;
+            nextSibling[node] = NONE;
+            textSlot[node] = NONE;
+            attrStart[node] = slots;
+            attrCount[node] = 0;
+            if (depth == 0) {
+                parent[node] = NONE;
+            } else {
+                int up = open[depth - 1];
+                parent[node] = up;
+                if (lastChild[depth - 1] == NONE) {
+                    firstChild[up] = node;
+                } else {
+                    nextSibling[lastChild[depth - 1]] = node;
+                }
+                lastChild[depth - 1] = node;
+            }
+            if (depth == open.length) {
+                open = Arrays.copyOf(open, depth * 2);
+                lastChild = Arrays.copyOf(lastChild, depth * 2);
+            }
+            open[depth] = node;
+            lastChild[depth] = NONE;
+            depth++;
+            attribute(ID, id);
+        }
+
+        void attribute(String name, String value) {
+            attribute(intern(name), value);
+        }
+
+        private void attribute(int name, String value) {
+            addSlot(name, value);
+            attrCount[open[depth - 1]]++;
+        }
+
+        void end(String text) {
+            int node = open[--depth];
+            if (text != null) {
+                textSlot[node] = addSlot(NONE, text);
+            }
+        }
+
+        private int addSlot(int name, String value) {
+            if (slots + 1 == slotStart.length) {
+                slotName = Arrays.copyOf(slotName, slots * 2);
+                slotStart = Arrays.copyOf(slotStart, slots * 2 + 1);
+            }
+            if (charCount + value.length() > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, charCount + value.length()));
+            }
+            value.getChars(0, value.length(), chars, charCount);
+            charCount += value.length();
+            int slot = slots++;
+            slotName[slot] = name;
+            slotStart[slot + 1] = charCount;
+            return slot;
+        }
+
+        private int intern(String name) {
+            Integer id = symbolIds.get(name);
+            if (id == null) {
+                id = symbols.size();
+                symbols.add(name);
+                symbolIds.put(name, id);
+            }
+            return id;
+        }
+
+        XmlDocument build() {
+            if (depth != 0) {
+                throw new IllegalStateException("还有未结束的元素");
+            }
+            return new XmlDocument(this);
+        }
+    }
+}
@@ -1,36 +1,45 @@
 package com.editor.editor;
 
+import com.editor.command.BatchCommand;
 import com.editor.command.Command;
+import com.editor.command.CommandHistory;
 import com.editor.observer.Event;
 import com.editor.observer.Subject;
+import com.editor.util.AtomicFileSaver;
 
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * XML编辑器类
  */
 public class XmlEditor implements Editor {
+    private static final int SAVE_BUFFER_SIZE = 64 * 1024;
+
     private final String filePath;
     private XmlElement root;
     private final Map<String, XmlElement> idMap; // id -> element 映射
+    private final XmlIndex index; // 标签名、属性 -> elements 索引
     private boolean modified;
-    private final Stack<Command> undoStack;
-    private final Stack<Command> redoStack;
+    private final CommandHistory history;
     private final List<com.editor.observer.Observer> observers;
     private boolean logEnabled;
+    // 批量执行中暂存的命令，不在批量执行时为 null
+    private List<Command> batch;
+    // 批量开始前的修改状态，中止时恢复
+    private boolean batchModified;
 
     public XmlEditor(String filePath) {
         this.filePath = filePath;
         this.idMap = new HashMap<>();
+        this.index = new XmlIndex();
         this.modified = false;
-        this.undoStack = new Stack<>();
-        this.redoStack = new Stack<>();
+        this.history = new CommandHistory();
         this.observers = new ArrayList<>();
         this.logEnabled = false;
     }
@@ -79,9 +88,8 @@ public class XmlEditor implements Editor {
         if (!Files.exists(path)) {
             throw new IOException("文件不存在: " + filePath);
         }
-        List<String> lines = Files.readAllLines(path, java.nio.charset.StandardCharsets.UTF_8);
-        String content = String.join("\n", lines);
-        this.root = parseXml(content);
+        String content = Files.readString(path, java.nio.charset.StandardCharsets.UTF_8);
+        this.root = new XmlParser(content).parse();
         rebuildIdMap();
         
         // 检查根元素是否有 log="true" 属性
@@ -93,222 +101,101 @@ public class XmlEditor implements Editor {
     }
 
     /**
-     * 简单的XML解析器（适配器模式的基础）
-     */
-    private XmlElement parseXml(String content) {
-        // 移除XML声明
-        content = content.replaceFirst("<\\?xml[^>]*\\?>", "").trim();
-        
-        if (content.isEmpty()) {
-            return null;
-        }
-
-        // 使用简单的正则表达式解析（实际项目中应使用专业的XML解析器）
-        return parseElement(content, 0).element;
-    }
-
-    private ParseResult parseElement(String content, int start) {
-        // 跳过空白
-        while (start < content.length() && Character.isWhitespace(content.charAt(start))) {
-            start++;
-        }
-        
-        if (start >= content.length() || content.charAt(start) != '<') {
-            return new ParseResult(null, start);
-        }
-
-        // 解析开始标签
-        int tagEnd = content.indexOf('>', start);
-        if (tagEnd == -1) {
-            throw new IllegalArgumentException("XML格式错误: 未找到标签结束符");
-        }
-
-        String tagContent = content.substring(start + 1, tagEnd);
-        boolean isSelfClosing = tagContent.endsWith("/");
-        if (isSelfClosing) {
-            tagContent = tagContent.substring(0, tagContent.length() - 1).trim();
-        }
-
-        // 解析标签名和属性
-        String[] parts = tagContent.split("\\s+", 2);
-        String tagName = parts[0];
-        Map<String, String> attrs = new HashMap<>();
-        String id = null;
-
-        if (parts.length > 1) {
-            // 解析属性
-            Pattern attrPattern = Pattern.compile("(\\w+)=\"([^\"]+)\"");
-            Matcher matcher = attrPattern.matcher(parts[1]);
-            while (matcher.find()) {
-                String attrName = matcher.group(1);
-                String attrValue = matcher.group(2);
-                attrs.put(attrName, attrValue);
-                if ("id".equals(attrName)) {
-                    id = attrValue;
-                }
-            }
-        }
-
-        if (id == null) {
-            throw new IllegalArgumentException("XML元素缺少必需的id属性: " + tagName);
-        }
-
-        XmlElement element = new XmlElement(tagName, id);
-        for (Map.Entry<String, String> entry : attrs.entrySet()) {
-            element.setAttribute(entry.getKey(), entry.getValue());
-        }
-
-        if (isSelfClosing) {
-            return new ParseResult(element, tagEnd + 1);
-        }
-
-        // 查找结束标签
-        int nextStart = tagEnd + 1;
-        String endTag = "</" + tagName + ">";
-        int endTagPos = content.indexOf(endTag, nextStart);
-
-        if (endTagPos == -1) {
-            throw new IllegalArgumentException("XML格式错误: 未找到结束标签 " + endTag);
-        }
-
-        // 检查是否有子元素或文本内容
-        String innerContent = content.substring(nextStart, endTagPos).trim();
-        
-        if (innerContent.isEmpty()) {
-            // 空元素
-            return new ParseResult(element, endTagPos + endTag.length());
-        }
-
-        if (innerContent.startsWith("<")) {
-            // 有子元素
-            int pos = 0;
-            while (pos < innerContent.length()) {
-                ParseResult childResult = parseElement(innerContent, pos);
-                if (childResult.element == null) {
-                    break;
-                }
-                element.addChild(childResult.element);
-                pos = childResult.nextPos;
-            }
-        } else {
-            // 只有文本内容
-            element.setTextContent(innerContent);
-        }
-
-        return new ParseResult(element, endTagPos + endTag.length());
-    }
-
-    private static class ParseResult {
-        XmlElement element;
-        int nextPos;
-
-        ParseResult(XmlElement element, int nextPos) {
-            this.element = element;
-            this.nextPos = nextPos;
-        }
-    }
-
-    /**
-     * 重建id映射
+     * 重建id映射和索引
      */
     private void rebuildIdMap() {
         idMap.clear();
+        index.clear();
         if (root != null) {
             buildIdMap(root);
+            index.addSubtree(root);
         }
     }
 
     private void buildIdMap(XmlElement element) {
-        idMap.put(element.getId(), element);
-        for (XmlElement child : element.getChildren()) {
-            buildIdMap(child);
-        }
+        element.accept((current, depth) -> {
+            idMap.put(current.getId(), current);
+            return true;
+        });
     }
 
     /**
      * 序列化为XML字符串
      */
     public String toXmlString() {
-        if (root == null) {
-            return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
-        }
-        StringBuilder sb = new StringBuilder();
-        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-        serializeElement(root, sb, 0);
-        return sb.toString();
-    }
-
-    private void serializeElement(XmlElement element, StringBuilder sb, int indent) {
-        // 缩进
-        for (int i = 0; i < indent; i++) {
-            sb.append("  ");
-        }
-
-        // 开始标签
-        sb.append("<").append(element.getTagName());
-        
-        // 属性
-        Map<String, String> attrs = element.getAttributes();
-        for (Map.Entry<String, String> entry : attrs.entrySet()) {
-            sb.append(" ").append(entry.getKey()).append("=\"").append(escapeXml(entry.getValue())).append("\"");
-        }
-
-        if (element.hasChildren()) {
-            // 有子元素
-            sb.append(">\n");
-            for (XmlElement child : element.getChildren()) {
-                serializeElement(child, sb, indent + 1);
-            }
-            // 缩进
-            for (int i = 0; i < indent; i++) {
-                sb.append("  ");
-            }
-            sb.append("</").append(element.getTagName()).append(">\n");
-        } else if (element.hasTextContent()) {
-            // 有文本内容
-            sb.append(">").append(escapeXml(element.getTextContent())).append("</").append(element.getTagName()).append(">\n");
-        } else {
-            // 空元素
-            sb.append("/>\n");
+        java.io.StringWriter out = new java.io.StringWriter();
+        try (XmlWriter writer = new XmlWriter(out)) {
+            writer.writeDocument(root);
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException(e);
         }
-    }
-
-    private String escapeXml(String text) {
-        if (text == null) {
-            return "";
-        }
-        return text.replace("&", "&amp;")
-                  .replace("<", "&lt;")
-                  .replace(">", "&gt;")
-                  .replace("\"", "&quot;")
-                  .replace("'", "&apos;");
+        return out.toString();
     }
 
     @Override
     public void save() throws IOException {
         Path path = Paths.get(filePath);
-        String xmlContent = toXmlString();
-        Files.write(path, xmlContent.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        // 直接编码到通道的字节缓冲区，不在内存中拼出整个文档
+        AtomicFileSaver.save(path, channel -> {
+            XmlWriter writer = new XmlWriter(Channels.newWriter(channel,
+                    StandardCharsets.UTF_8.newEncoder(), SAVE_BUFFER_SIZE));
+            writer.writeDocument(root);
+            writer.flush();
+        });
         modified = false;
     }
 
     @Override
     public void executeCommand(Command command) {
         command.execute();
-        undoStack.push(command);
-        redoStack.clear();
         modified = true;
+        if (batch != null) {
+            batch.add(command);
+            return;
+        }
+        history.push(command);
         notifyObservers(new Event("EDIT", "xml-command", filePath));
     }
 
+    @Override
+    public void beginBatch() {
+        if (batch != null) {
+            throw new IllegalStateException("已经在批量执行中");
+        }
+        batch = new ArrayList<>();
+        batchModified = modified;
+    }
+
+    @Override
+    public void endBatch() {
+        List<Command> commands = batch;
+        batch = null;
+        if (commands == null || commands.isEmpty()) {
+            return;
+        }
+        history.push(new BatchCommand(commands));
+        notifyObservers(new Event("EDIT", "batch", filePath));
+    }
+
+    @Override
+    public void abortBatch() {
+        List<Command> commands = batch;
+        batch = null;
+        if (commands == null) {
+            return;
+        }
+        for (int i = commands.size() - 1; i >= 0; i--) {
+            commands.get(i).undo();
+        }
+        // 全部回滚后文档与批量开始前相同
+        modified = batchModified;
+    }
+
     @Override
     public boolean undo() {
-        if (undoStack.isEmpty()) {
+        if (!history.undo()) {
             return false;
         }
-        Command command = undoStack.pop();
-        command.undo();
-        redoStack.push(command);
         modified = true;
         notifyObservers(new Event("EDIT", "undo", filePath));
         return true;
@@ -316,25 +203,27 @@ public class XmlEditor implements Editor {
 
     @Override
     public boolean redo() {
-        if (redoStack.isEmpty()) {
+        if (!history.redo()) {
             return false;
         }
-        Command command = redoStack.pop();
-        command.execute();
-        undoStack.push(command);
         modified = true;
         notifyObservers(new Event("EDIT", "redo", filePath));
         return true;
     }
 
+    @Override
+    public CommandHistory getHistory() {
+        return history;
+    }
+
     @Override
     public boolean canUndo() {
-        return !undoStack.isEmpty();
+        return history.canUndo();
     }
 
     @Override
     public boolean canRedo() {
-        return !redoStack.isEmpty();
+        return history.canRedo();
     }
 
     /**
@@ -349,6 +238,76 @@ public class XmlEditor implements Editor {
         }
     }
 
+    /**
+     * 元素（连同它的子树）加入文档树后调用，更新id映射和索引
+     */
+    public void elementAdded(XmlElement element) {
+        buildIdMap(element);
+        index.addSubtree(element);
+    }
+
+    /**
+     * 同上，调用方已知元素是父元素的第 childIndex 个子元素，索引不必再查找它的位置
+     */
+    public void elementAdded(XmlElement element, int childIndex) {
+        buildIdMap(element);
+        index.addSubtree(element, childIndex);
+    }
+
+    /**
+     * 元素（连同它的子树）从文档树移除后调用，更新id映射和索引
+     */
+    public void elementRemoved(XmlElement element) {
+        element.accept((current, depth) -> {
+            idMap.remove(current.getId(), current);
+            return true;
+        });
+        index.removeSubtree(element);
+    }
+
+    /**
+     * 按标签名查找元素，按文档顺序排列
+     */
+    public List<XmlElement> findByTag(String tagName) {
+        return new ArrayList<>(index.byTag(tagName));
+    }
+
+    /**
+     * 按属性值查找元素
+     */
+    public List<XmlElement> findByAttribute(String name, String value) {
+        return find(null, Collections.singletonMap(name, value));
+    }
+
+    /**
+     * 查找标签名（为 null 时不限）和全部属性都匹配的元素，按索引查找，不遍历文档树
+     * 条件中有 id 时直接用id映射。
+     */
+    public List<XmlElement> find(String tagName, Map<String, String> attributes) {
+        String id = attributes.get("id");
+        if (id == null) {
+            return index.find(tagName, attributes);
+        }
+        List<XmlElement> result = new ArrayList<>();
+        XmlElement element = idMap.get(id);
+        if (element != null && (tagName == null || tagName.equals(element.getTagName()))) {
+            for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                if (!attribute.getValue().equals(element.getAttribute(attribute.getKey()))) {
+                    return result;
+                }
+            }
+            result.add(element);
+        }
+        return result;
+    }
+
+    /**
+     * 编译并执行 XPath 子集查询，见 {@link XmlQuery}
+     */
+    public java.util.stream.Stream<XmlElement> select(String expression) {
+        return XmlQuery.compile(expression).select(this);
+    }
+
     @Override
     public void attach(com.editor.observer.Observer observer) {
         observers.add(observer);
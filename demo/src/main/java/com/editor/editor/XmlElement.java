@@ -12,6 +12,8 @@ public class XmlElement {
     private String textContent;
     private List<XmlElement> children;
     private XmlElement parent;
+    // 文档顺序标号，由所在编辑器的索引维护，用于把索引查到的元素按文档顺序排列
+    long order;
 
     public XmlElement(String tagName, String id) {
         this.tagName = tagName;
@@ -40,8 +42,11 @@ public class XmlElement {
         this.attributes.put("id", id);
     }
 
+    /**
+     * 属性的只读视图（包括 id），不复制，随元素的修改而变化
+     */
     public Map<String, String> getAttributes() {
-        return new HashMap<>(attributes);
+        return Collections.unmodifiableMap(attributes);
     }
 
     public void setAttribute(String name, String value) {
@@ -73,8 +78,16 @@ public class XmlElement {
         this.textContent = textContent;
     }
 
+    /**
+     * 子元素的只读视图，不复制，随元素的修改而变化
+     * 遍历期间需要增删子元素时先自行复制一份。
+     */
     public List<XmlElement> getChildren() {
-        return new ArrayList<>(children);
+        return Collections.unmodifiableList(children);
+    }
+
+    public int getChildCount() {
+        return children.size();
     }
 
     public void addChild(XmlElement child) {
@@ -95,7 +108,11 @@ public class XmlElement {
         }
     }
 
-    public void insertBefore(XmlElement newChild, XmlElement refChild) {
+    /**
+     * 把 newChild 插到 refChild 前面，refChild 不是子元素时追加到末尾
+     * @return newChild 在子元素中的位置
+     */
+    public int insertBefore(XmlElement newChild, XmlElement refChild) {
         // 检查混合内容
         if (textContent != null && !textContent.trim().isEmpty()) {
             throw new IllegalArgumentException("XML元素不能同时包含文本和子元素（混合内容）");
@@ -107,9 +124,10 @@ public class XmlElement {
         int index = children.indexOf(refChild);
         if (index >= 0) {
             children.add(index, newChild);
-        } else {
-            children.add(newChild);
+            return index;
         }
+        children.add(newChild);
+        return children.size() - 1;
     }
 
     public XmlElement getParent() {
@@ -130,5 +148,57 @@ public class XmlElement {
     public boolean hasMixedContent() {
         return hasTextContent() && hasChildren();
     }
+
+    /**
+     * 按文档顺序遍历以本元素为根的子树
+     * 用显式栈代替递归，不为每个节点复制子元素列表，遍历期间不能修改这棵子树。
+     */
+    public void accept(Visitor visitor) {
+        XmlElement[] path = new XmlElement[16];
+        int[] next = new int[16];
+        path[0] = this;
+        if (!visitor.enter(this, 0)) {
+            visitor.leave(this, 0);
+            return;
+        }
+        int depth = 0;
+        while (depth >= 0) {
+            XmlElement current = path[depth];
+            if (next[depth] < current.children.size()) {
+                XmlElement child = current.children.get(next[depth]++);
+                if (!visitor.enter(child, depth + 1)) {
+                    visitor.leave(child, depth + 1);
+                    continue;
+                }
+                depth++;
+                if (depth == path.length) {
+                    path = Arrays.copyOf(path, depth * 2);
+                    next = Arrays.copyOf(next, depth * 2);
+                }
+                path[depth] = child;
+                next[depth] = 0;
+            } else {
+                visitor.leave(current, depth);
+                path[depth--] = null;
+            }
+        }
+    }
+
+    /**
+     * 子树遍历的回调，depth 是相对于遍历起点的深度（起点为0）
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        /**
+         * 先序进入元素，返回 false 时跳过它的子元素
+         */
+        boolean enter(XmlElement element, int depth);
+
+        /**
+         * 元素的子元素都访问完后调用，跳过子元素的元素也会调用
+         */
+        default void leave(XmlElement element, int depth) {
+        }
+    }
 }
 
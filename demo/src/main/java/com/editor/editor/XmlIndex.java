@@ -0,0 +1,257 @@
+package com.editor.editor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * XML文档的二级索引：标签名 -> 元素，属性名 -> 属性值 -> 元素
+ * id 属性不进索引，按 id 查找由编辑器的 id 映射负责。
+ * 索引只跟随元素的加入和移除更新，元素在树中时直接修改标签名或属性不会反映到索引中。
+ * 元素加入时按前序遍历的位置分配递增的顺序标号：新子树取前后相邻元素标号之间的值，
+ * 间隔用完时只给标号区间足够宽的最近祖先的子树重新编号。重新编号不改变元素之间的先后，
+ * 所以每个索引集合一直按标号有序，查询结果直接就是文档顺序。
+ */
+class XmlIndex {
+    // 重新编号时相邻元素标号的间隔
+    private static final long GAP = 1L << 32;
+    // 局部重新编号时相邻标号至少要留出的间隔，不够时扩大到上一层祖先
+    private static final long MIN_GAP = 1L << 16;
+    private static final Comparator<XmlElement> DOCUMENT_ORDER = Comparator.comparingLong(element -> element.order);
+
+    private final Map<String, Set<XmlElement>> byTag;
+    private final Map<String, Map<String, Set<XmlElement>>> byAttribute;
+
+    XmlIndex() {
+        this.byTag = new HashMap<>();
+        this.byAttribute = new HashMap<>();
+    }
+
+    void clear() {
+        byTag.clear();
+        byAttribute.clear();
+    }
+
+    /**
+     * 把元素及其全部后代加入索引，元素必须已经挂到文档树上
+     */
+    void addSubtree(XmlElement element) {
+        XmlElement parent = element.getParent();
+        addSubtree(element, parent == null ? 0 : parent.getChildren().indexOf(element));
+    }
+
+    /**
+     * 同上，调用方已知元素是父元素的第 index 个子元素，不必再查找
+     */
+    void addSubtree(XmlElement element, int index) {
+        assignOrder(element, index);
+        element.accept((current, depth) -> {
+            add(current);
+            return true;
+        });
+    }
+
+    /**
+     * 把元素及其全部后代从索引中移除
+     */
+    void removeSubtree(XmlElement element) {
+        element.accept((current, depth) -> {
+            remove(current);
+            return true;
+        });
+    }
+
+    private void add(XmlElement element) {
+        byTag.computeIfAbsent(element.getTagName(), k -> new TreeSet<>(DOCUMENT_ORDER)).add(element);
+        for (Map.Entry<String, String> attribute : element.getAttributes().entrySet()) {
+            if (!"id".equals(attribute.getKey())) {
+                byAttribute.computeIfAbsent(attribute.getKey(), k -> new HashMap<>())
+                        .computeIfAbsent(attribute.getValue(), k -> new TreeSet<>(DOCUMENT_ORDER))
+                        .add(element);
+            }
+        }
+    }
+
+    private void remove(XmlElement element) {
+        Set<XmlElement> tagged = byTag.get(element.getTagName());
+        if (tagged != null && tagged.remove(element) && tagged.isEmpty()) {
+            byTag.remove(element.getTagName());
+        }
+        for (Map.Entry<String, String> attribute : element.getAttributes().entrySet()) {
+            Map<String, Set<XmlElement>> values = byAttribute.get(attribute.getKey());
+            if (values == null) {
+                continue;
+            }
+            Set<XmlElement> matched = values.get(attribute.getValue());
+            if (matched != null && matched.remove(element) && matched.isEmpty()) {
+                values.remove(attribute.getValue());
+                if (values.isEmpty()) {
+                    byAttribute.remove(attribute.getKey());
+                }
+            }
+        }
+    }
+
+    // ========== 顺序标号 ==========
+
+    /**
+     * 给新加入的子树分配标号：位于前序遍历中它前面的元素和它后面的元素之间
+     */
+    private void assignOrder(XmlElement element, int index) {
+        XmlElement parent = element.getParent();
+        if (parent == null) {
+            renumber(element, 0, GAP);
+            return;
+        }
+        List<XmlElement> siblings = parent.getChildren();
+        long low = index == 0 ? parent.order : lastDescendant(siblings.get(index - 1)).order;
+        XmlElement next = index + 1 < siblings.size() ? siblings.get(index + 1) : nextAfterSubtree(parent);
+        int size = size(element);
+        long step = next == null
+                ? Math.min(GAP, (Long.MAX_VALUE - low) / (size + 1))
+                : (next.order - low) / (size + 1);
+        if (step < 1) {
+            // 两个标号之间已经放不下，给附近的一段重新编号
+            relabel(parent);
+            return;
+        }
+        renumber(element, low + step, step);
+    }
+
+    /**
+     * 从 window 开始向上找标号区间能以 MIN_GAP 放下整棵子树的祖先，把它的子树均匀重新编号
+     * 子树的标号仍落在原来的区间内，与区间外元素的先后不变。
+     */
+    private static void relabel(XmlElement window) {
+        while (true) {
+            XmlElement next = nextAfterSubtree(window);
+            int size = size(window);
+            long step = next == null
+                    ? Math.min(GAP, (Long.MAX_VALUE - window.order) / size)
+                    : (next.order - window.order) / size;
+            if (step >= MIN_GAP || window.getParent() == null) {
+                renumber(window, window.order, step);
+                return;
+            }
+            window = window.getParent();
+        }
+    }
+
+    private static void renumber(XmlElement root, long first, long step) {
+        long[] order = {first};
+        root.accept((current, depth) -> {
+            current.order = order[0];
+            order[0] += step;
+            return true;
+        });
+    }
+
+    private static int size(XmlElement element) {
+        int[] size = {0};
+        element.accept((current, depth) -> {
+            size[0]++;
+            return true;
+        });
+        return size[0];
+    }
+
+    private static XmlElement lastDescendant(XmlElement element) {
+        while (element.hasChildren()) {
+            element = element.getChildren().get(element.getChildCount() - 1);
+        }
+        return element;
+    }
+
+    /**
+     * 前序遍历中紧跟在元素子树之后的元素，没有时返回 null；元素必须已有标号
+     */
+    private static XmlElement nextAfterSubtree(XmlElement element) {
+        XmlElement current = element;
+        XmlElement parent = current.getParent();
+        while (parent != null) {
+            List<XmlElement> siblings = parent.getChildren();
+            int index = indexOf(siblings, current);
+            if (index + 1 < siblings.size()) {
+                return siblings.get(index + 1);
+            }
+            current = parent;
+            parent = current.getParent();
+        }
+        return null;
+    }
+
+    /**
+     * 兄弟元素按标号递增排列，二分查找元素的位置
+     */
+    private static int indexOf(List<XmlElement> siblings, XmlElement element) {
+        int low = 0;
+        int high = siblings.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long order = siblings.get(mid).order;
+            if (order < element.order) {
+                low = mid + 1;
+            } else if (order > element.order) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return siblings.indexOf(element);
+    }
+
+    Set<XmlElement> byTag(String tagName) {
+        Set<XmlElement> elements = byTag.get(tagName);
+        return elements != null ? elements : Collections.emptySet();
+    }
+
+    Set<XmlElement> byAttribute(String name, String value) {
+        Map<String, Set<XmlElement>> values = byAttribute.get(name);
+        if (values == null) {
+            return Collections.emptySet();
+        }
+        Set<XmlElement> elements = values.get(value);
+        return elements != null ? elements : Collections.emptySet();
+    }
+
+    /**
+     * 同时满足标签名（为 null 时不限）和全部属性条件的元素，按文档顺序排列
+     * 从最小的候选集合出发逐个过滤，代价与最小集合的大小成正比；集合本身有序，不必再排序。
+     */
+    List<XmlElement> find(String tagName, Map<String, String> attributes) {
+        Set<XmlElement> candidates = tagName != null ? byTag(tagName) : null;
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            Set<XmlElement> matched = byAttribute(attribute.getKey(), attribute.getValue());
+            if (candidates == null || matched.size() < candidates.size()) {
+                candidates = matched;
+            }
+        }
+        if (candidates == null) {
+            throw new IllegalArgumentException("至少需要一个查询条件");
+        }
+        List<XmlElement> result = new ArrayList<>();
+        for (XmlElement element : candidates) {
+            if (matches(element, tagName, attributes)) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    private static boolean matches(XmlElement element, String tagName, Map<String, String> attributes) {
+        if (tagName != null && !tagName.equals(element.getTagName())) {
+            return false;
+        }
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            if (!attribute.getValue().equals(element.getAttribute(attribute.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,420 @@
+package com.editor.editor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 单遍扫描的XML解析器
+ * 用字符游标顺序扫描输入，显式栈维护尚未闭合的元素，一次线性遍历构建 XmlElement 树
+ * 或紧凑的 XmlDocument，不切分中间子串；出错时报告行号和列号。
+ */
+public class XmlParser {
+    private final CharSequence input;
+    private final int length;
+    private int pos;
+    private final StringBuilder text; // 当前元素的文本内容，复用
+    private String tagName; // 最近读到的开始标签名
+    private final List<String> attrNames;
+    private final List<String> attrValues;
+
+    public XmlParser(CharSequence input) {
+        this.input = input;
+        this.length = input.length();
+        this.pos = 0;
+        this.text = new StringBuilder();
+        this.attrNames = new ArrayList<>();
+        this.attrValues = new ArrayList<>();
+    }
+
+    /**
+     * 解析整个文档，返回根元素；文档为空时返回 null
+     */
+    public XmlElement parse() {
+        ElementBuilder builder = new ElementBuilder();
+        parse(builder);
+        return builder.root;
+    }
+
+    /**
+     * 解析为紧凑的只读文档模型，见 {@link XmlDocument}
+     */
+    public XmlDocument parseDocument() {
+        XmlDocument.Builder builder = new XmlDocument.Builder();
+        parse(builder);
+        return builder.build();
+    }
+
+    /**
+     * 解析时的回调，由它构建具体的文档模型
+     */
+    interface Handler {
+        /**
+         * 开始一个元素，attrNames 与 attrValues 一一对应（包括 id）
+         */
+        void startElement(String tagName, List<String> attrNames, List<String> attrValues, String id);
+
+        /**
+         * 结束最近开始的元素，没有文本内容时 text 为 null
+         */
+        void endElement(String text);
+    }
+
+    private void parse(Handler handler) {
+        // 尚未闭合的元素的标签名，以及它们是否已经有子元素
+        Deque<String> stack = new ArrayDeque<>();
+        BitSet withChildren = new BitSet();
+        boolean rootSeen = false;
+        while (pos < length) {
+            char c = input.charAt(pos);
+            if (c != '<') {
+                if (stack.isEmpty()) {
+                    if (!Character.isWhitespace(c)) {
+                        throw error("根元素之外不能有文本", pos);
+                    }
+                    pos++;
+                } else {
+                    readText();
+                }
+            } else if (startsWith("<?")) {
+                skipPast("?>");
+            } else if (startsWith("<!--")) {
+                skipPast("-->");
+            } else if (startsWith("<![CDATA[")) {
+                if (stack.isEmpty()) {
+                    throw error("根元素之外不能有CDATA", pos);
+                }
+                readCData();
+            } else if (startsWith("<!")) {
+                skipPast(">");
+            } else if (startsWith("</")) {
+                readEndTag(stack, withChildren.get(stack.size()), handler);
+            } else {
+                int tagPos = pos;
+                boolean selfClosing = readStartTag();
+                if (stack.isEmpty()) {
+                    if (rootSeen) {
+                        throw error("文档只能有一个根元素", tagPos);
+                    }
+                    rootSeen = true;
+                } else {
+                    if (!isBlank(text)) {
+                        throw error("XML元素不能同时包含文本和子元素（混合内容）: " + stack.peek(), tagPos);
+                    }
+                    withChildren.set(stack.size());
+                }
+                handler.startElement(tagName, attrNames, attrValues, requireId(tagPos));
+                text.setLength(0);
+                if (selfClosing) {
+                    handler.endElement(null);
+                } else {
+                    stack.push(tagName);
+                    withChildren.clear(stack.size());
+                }
+            }
+        }
+        if (!stack.isEmpty()) {
+            throw error("未找到结束标签 </" + stack.peek() + ">", length);
+        }
+    }
+
+    /**
+     * 构建 XmlElement 树
+     */
+    private static class ElementBuilder implements Handler {
+        private final Deque<XmlElement> stack = new ArrayDeque<>();
+        private XmlElement root;
+
+        @Override
+        public void startElement(String tagName, List<String> attrNames, List<String> attrValues, String id) {
+            XmlElement element = new XmlElement(tagName, id);
+            for (int i = 0; i < attrNames.size(); i++) {
+                element.setAttribute(attrNames.get(i), attrValues.get(i));
+            }
+            if (stack.isEmpty()) {
+                root = element;
+            } else {
+                stack.peek().addChild(element);
+            }
+            stack.push(element);
+        }
+
+        @Override
+        public void endElement(String text) {
+            XmlElement element = stack.pop();
+            if (text != null) {
+                element.setTextContent(text);
+            }
+        }
+    }
+
+    // ========== 标签 ==========
+
+    /**
+     * 读取开始标签（游标位于 '<'），标签名存到 tagName，属性暂存到 attrNames/attrValues，返回是否自闭合
+     */
+    private boolean readStartTag() {
+        pos++;
+        attrNames.clear();
+        attrValues.clear();
+        tagName = readName();
+        while (true) {
+            skipWhitespace();
+            if (pos >= length) {
+                throw error("未找到标签结束符", pos);
+            }
+            char c = input.charAt(pos);
+            if (c == '>') {
+                pos++;
+                return false;
+            }
+            if (c == '/') {
+                pos++;
+                expect('>');
+                return true;
+            }
+            String name = readName();
+            skipWhitespace();
+            expect('=');
+            skipWhitespace();
+            attrNames.add(name);
+            attrValues.add(readAttributeValue());
+        }
+    }
+
+    private String requireId(int tagPos) {
+        String id = null;
+        for (int i = 0; i < attrNames.size(); i++) {
+            if ("id".equals(attrNames.get(i))) {
+                id = attrValues.get(i);
+            }
+        }
+        if (id == null) {
+            throw error("XML元素缺少必需的id属性: " + tagName, tagPos);
+        }
+        return id;
+    }
+
+    private void readEndTag(Deque<String> stack, boolean hasChildren, Handler handler) {
+        int tagPos = pos;
+        pos += 2;
+        String name = readName();
+        skipWhitespace();
+        expect('>');
+        if (stack.isEmpty()) {
+            throw error("多余的结束标签 </" + name + ">", tagPos);
+        }
+        String open = stack.pop();
+        if (!open.equals(name)) {
+            throw error("结束标签不匹配: 期望 </" + open + ">，实际 </" + name + ">", tagPos);
+        }
+        String content = null;
+        if (!isBlank(text)) {
+            if (hasChildren) {
+                throw error("XML元素不能同时包含文本和子元素（混合内容）: " + name, tagPos);
+            }
+            content = trimmed(text);
+        }
+        text.setLength(0);
+        handler.endElement(content);
+    }
+
+    private String readName() {
+        int start = pos;
+        while (pos < length) {
+            char c = input.charAt(pos);
+            if (Character.isWhitespace(c) || c == '/' || c == '>' || c == '=' || c == '<') {
+                break;
+            }
+            pos++;
+        }
+        if (pos == start) {
+            throw error("缺少名称", start);
+        }
+        return input.subSequence(start, pos).toString();
+    }
+
+    private String readAttributeValue() {
+        if (pos >= length || (input.charAt(pos) != '"' && input.charAt(pos) != '\'')) {
+            throw error("属性值必须用引号括起来", pos);
+        }
+        char quote = input.charAt(pos++);
+        StringBuilder value = new StringBuilder();
+        while (pos < length && input.charAt(pos) != quote) {
+            char c = input.charAt(pos);
+            if (c == '&') {
+                readEntity(value);
+            } else if (c == '<') {
+                throw error("属性值中不能包含 '<'", pos);
+            } else {
+                value.append(c);
+                pos++;
+            }
+        }
+        if (pos >= length) {
+            throw error("属性值缺少结束引号", pos);
+        }
+        pos++;
+        return value.toString();
+    }
+
+    // ========== 文本 ==========
+
+    private void readText() {
+        while (pos < length) {
+            char c = input.charAt(pos);
+            if (c == '<') {
+                return;
+            }
+            if (c == '&') {
+                readEntity(text);
+            } else {
+                text.append(c);
+                pos++;
+            }
+        }
+    }
+
+    private void readCData() {
+        int start = pos;
+        pos += "<![CDATA[".length();
+        while (pos < length) {
+            if (startsWith("]]>")) {
+                pos += 3;
+                return;
+            }
+            text.append(input.charAt(pos++));
+        }
+        throw error("CDATA 未结束", start);
+    }
+
+    private void readEntity(StringBuilder out) {
+        int start = pos;
+        int end = pos + 1;
+        while (end < length && end - start <= 10 && input.charAt(end) != ';') {
+            end++;
+        }
+        if (end >= length || input.charAt(end) != ';') {
+            throw error("无效的实体引用", start);
+        }
+        if (regionEquals(start + 1, end, "lt")) {
+            out.append('<');
+        } else if (regionEquals(start + 1, end, "gt")) {
+            out.append('>');
+        } else if (regionEquals(start + 1, end, "amp")) {
+            out.append('&');
+        } else if (regionEquals(start + 1, end, "quot")) {
+            out.append('"');
+        } else if (regionEquals(start + 1, end, "apos")) {
+            out.append('\'');
+        } else if (end > start + 2 && input.charAt(start + 1) == '#') {
+            boolean hex = input.charAt(start + 2) == 'x';
+            int first = start + (hex ? 3 : 2);
+            if (first == end) {
+                throw error("无效的字符引用", start);
+            }
+            int code = 0;
+            for (int i = first; i < end; i++) {
+                int digit = Character.digit(input.charAt(i), hex ? 16 : 10);
+                if (digit < 0) {
+                    throw error("无效的字符引用", start);
+                }
+                code = code * (hex ? 16 : 10) + digit;
+                // 逐位检查上限，避免 int 溢出
+                if (code > Character.MAX_CODE_POINT) {
+                    throw error("字符引用超出 Unicode 范围", start);
+                }
+            }
+            if (code == 0 || (code >= Character.MIN_SURROGATE && code <= Character.MAX_SURROGATE)) {
+                throw error("字符引用不是合法字符", start);
+            }
+            out.appendCodePoint(code);
+        } else {
+            throw error("未知的实体引用", start);
+        }
+        pos = end + 1;
+    }
+
+    // ========== 工具方法 ==========
+
+    private boolean startsWith(String prefix) {
+        return regionEquals(pos, Math.min(length, pos + prefix.length()), prefix);
+    }
+
+    private boolean regionEquals(int from, int to, String expected) {
+        if (to - from != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (input.charAt(from + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipPast(String terminator) {
+        int start = pos;
+        while (pos < length) {
+            if (startsWith(terminator)) {
+                pos += terminator.length();
+                return;
+            }
+            pos++;
+        }
+        throw error("未找到 " + terminator, start);
+    }
+
+    private void skipWhitespace() {
+        while (pos < length && Character.isWhitespace(input.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private void expect(char c) {
+        if (pos >= length || input.charAt(pos) != c) {
+            throw error("期望 '" + c + "'", pos);
+        }
+        pos++;
+    }
+
+    private static boolean isBlank(StringBuilder sb) {
+        for (int i = 0; i < sb.length(); i++) {
+            if (!Character.isWhitespace(sb.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String trimmed(StringBuilder sb) {
+        int start = 0;
+        int end = sb.length();
+        while (start < end && Character.isWhitespace(sb.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(sb.charAt(end - 1))) {
+            end--;
+        }
+        return sb.substring(start, end);
+    }
+
+    /**
+     * 生成带行列号的错误，行列号只在出错时才计算
+     */
+    private IllegalArgumentException error(String message, int at) {
+        int line = 1;
+        int column = 1;
+        for (int i = 0; i < at && i < length; i++) {
+            if (input.charAt(i) == '\n') {
+                line++;
+                column = 1;
+            } else {
+                column++;
+            }
+        }
+        return new IllegalArgumentException("XML格式错误（第" + line + "行，第" + column + "列）: " + message);
+    }
+}
@@ -0,0 +1,566 @@
+package com.editor.editor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 编译后的 XPath 子集查询，编译一次后可以对不同的文档反复执行
+ * 支持的语法：
+ * <pre>
+ *   /a/b          从文档根开始的子元素路径
+ *   //a  a//b     后代元素
+ *   a/b           相对于上下文元素
+ *   *             任意标签
+ *   [@k] [@k="v"] [@k!="v"]   属性存在、等于、不等于（值可用单引号或双引号）
+ *   [text()="v"]  文本内容等于
+ *   [2] [last()]  在同一上下文中的位置（从1开始）
+ * </pre>
+ * 既可以在 XmlElement 树上执行，也可以在紧凑的只读 XmlDocument 上执行。
+ * 结果是惰性的 Stream，只在消费时遍历文档树；同一元素只出现一次，按文档顺序排列。
+ * 上下文元素可能互相嵌套时（后代步骤之后还有步骤，或后代步骤带位置条件），
+ * 各上下文的结果会交错，这时先收集全部结果再按文档顺序排序。
+ */
+public final class XmlQuery {
+    private final String expression;
+    private final boolean absolute;
+    private final List<Step> steps;
+    // 结果是否需要重新按文档顺序排序
+    private final boolean reorder;
+
+    private XmlQuery(String expression, boolean absolute, List<Step> steps) {
+        this.expression = expression;
+        this.absolute = absolute;
+        this.steps = steps;
+        boolean nested = false;
+        boolean reorder = false;
+        for (Step step : steps) {
+            if (nested || (step.descendant && step.hasPosition())) {
+                reorder = true;
+            }
+            nested |= step.descendant;
+        }
+        this.reorder = reorder;
+    }
+
+    /**
+     * 编译查询表达式，语法错误时抛出 IllegalArgumentException
+     */
+    public static XmlQuery compile(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            throw new IllegalArgumentException("查询表达式不能为空");
+        }
+        return new Compiler(expression.trim()).compile();
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    public boolean isAbsolute() {
+        return absolute;
+    }
+
+    /**
+     * 在元素上执行查询：相对路径以该元素为上下文，绝对路径从它所在文档的根开始
+     */
+    public Stream<XmlElement> select(XmlElement context) {
+        if (context == null) {
+            return Stream.empty();
+        }
+        if (!absolute) {
+            return evaluate(ELEMENTS, Stream.of(context), 0, ELEMENTS::children, () -> treeOrder(context));
+        }
+        XmlElement top = context;
+        while (top.getParent() != null) {
+            top = top.getParent();
+        }
+        XmlElement root = top;
+        return selectFromDocument(root, () -> treeOrder(root));
+    }
+
+    /**
+     * 在编辑器的文档上执行查询
+     * 绝对路径的第一步是不带位置条件的后代步骤（如 //book[@category="cooking"]）时，
+     * 候选元素直接从编辑器的索引中取（已按文档顺序排列），不遍历文档树。
+     */
+    public Stream<XmlElement> select(XmlEditor editor) {
+        XmlElement root = editor.getRoot();
+        if (root == null) {
+            return Stream.empty();
+        }
+        if (!absolute) {
+            return evaluate(ELEMENTS, Stream.of(root), 0, ELEMENTS::children, XmlQuery::indexOrder);
+        }
+        Step first = steps.get(0);
+        if (first.descendant && !first.hasPosition()) {
+            Map<String, String> attributes = first.equalityConditions();
+            if (first.name != null || !attributes.isEmpty()) {
+                Stream<XmlElement> candidates = editor.find(first.name, attributes).stream();
+                return evaluate(ELEMENTS, first.filter(ELEMENTS, candidates), 1, ELEMENTS::children,
+                        XmlQuery::indexOrder);
+            }
+        }
+        return selectFromDocument(root, XmlQuery::indexOrder);
+    }
+
+    /**
+     * 在紧凑的只读文档上执行查询，相对路径以根元素为上下文
+     * 没有索引，总是从根元素开始遍历。
+     */
+    public Stream<XmlDocument.Node> select(XmlDocument document) {
+        if (document.size() == 0) {
+            return Stream.empty();
+        }
+        XmlDocument.Node root = document.node(document.getRoot());
+        if (!absolute) {
+            return evaluate(NODES, Stream.of(root), 0, NODES::children, XmlQuery::nodeOrder);
+        }
+        XmlDocument.Node top = document.documentNode();
+        List<XmlDocument.Node> rootOnly = Collections.singletonList(root);
+        return evaluate(NODES, Stream.of(top), 0, node -> node.equals(top) ? rootOnly : NODES.children(node),
+                XmlQuery::nodeOrder);
+    }
+
+    private Stream<XmlElement> selectFromDocument(XmlElement root, Supplier<Comparator<XmlElement>> order) {
+        // 文档节点用一个不在树中的占位元素表示，它唯一的子元素是根元素
+        XmlElement document = new XmlElement("", null);
+        List<XmlElement> top = Collections.singletonList(root);
+        return evaluate(ELEMENTS, Stream.of(document), 0,
+                element -> element == document ? top : ELEMENTS.children(element), order);
+    }
+
+    /**
+     * 从第 from 步开始，对每个上下文元素依次执行剩余的步骤
+     * @param order 需要重新排序时才取得的文档顺序比较器
+     */
+    private <E> Stream<E> evaluate(Model<E> model, Stream<E> contexts, int from,
+                                   Function<E, List<E>> children, Supplier<Comparator<E>> order) {
+        Stream<E> current = contexts;
+        for (int i = from; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            current = current.flatMap(context -> step.apply(model, context, children));
+            if (step.descendant && i > 0) {
+                // 嵌套的上下文元素会产生重复的后代
+                Set<E> seen = model.newSet();
+                current = current.filter(seen::add);
+            }
+        }
+        if (reorder) {
+            current = current.sorted(order.get());
+        }
+        return current;
+    }
+
+    /**
+     * 编辑器维护的顺序标号（见 XmlIndex），只适用于挂在编辑器文档树上的元素
+     */
+    private static Comparator<XmlElement> indexOrder() {
+        return Comparator.comparingLong(element -> element.order);
+    }
+
+    /**
+     * 紧凑文档中节点按文档顺序编号
+     */
+    private static Comparator<XmlDocument.Node> nodeOrder() {
+        return Comparator.comparingInt(XmlDocument.Node::getIndex);
+    }
+
+    /**
+     * 不在编辑器中的元素树没有顺序标号，先序遍历一次记下每个元素的位置
+     */
+    private static Comparator<XmlElement> treeOrder(XmlElement root) {
+        Map<XmlElement, Integer> positions = new IdentityHashMap<>();
+        Iterator<XmlElement> elements = new Descendants<>(root, ELEMENTS::children, true);
+        while (elements.hasNext()) {
+            positions.put(elements.next(), positions.size());
+        }
+        return Comparator.comparingInt(positions::get);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * 查询用到的文档模型操作，XmlElement 树和 XmlDocument 各有一个实现
+     */
+    private interface Model<E> {
+        List<E> children(E element);
+
+        String tagName(E element);
+
+        String attribute(E element, String name);
+
+        String textContent(E element);
+
+        /**
+         * 用于去重的集合
+         */
+        Set<E> newSet();
+    }
+
+    private static final Model<XmlElement> ELEMENTS = new Model<XmlElement>() {
+        @Override
+        public List<XmlElement> children(XmlElement element) {
+            return element.getChildren();
+        }
+
+        @Override
+        public String tagName(XmlElement element) {
+            return element.getTagName();
+        }
+
+        @Override
+        public String attribute(XmlElement element, String name) {
+            return element.getAttribute(name);
+        }
+
+        @Override
+        public String textContent(XmlElement element) {
+            return element.getTextContent();
+        }
+
+        @Override
+        public Set<XmlElement> newSet() {
+            return Collections.newSetFromMap(new IdentityHashMap<>());
+        }
+    };
+
+    // Node 是按需创建的视图，按（文档, 编号）判断相等
+    private static final Model<XmlDocument.Node> NODES = new Model<XmlDocument.Node>() {
+        @Override
+        public List<XmlDocument.Node> children(XmlDocument.Node node) {
+            return node.getChildren();
+        }
+
+        @Override
+        public String tagName(XmlDocument.Node node) {
+            return node.getTagName();
+        }
+
+        @Override
+        public String attribute(XmlDocument.Node node, String name) {
+            return node.getAttribute(name);
+        }
+
+        @Override
+        public String textContent(XmlDocument.Node node) {
+            return node.getTextContent();
+        }
+
+        @Override
+        public Set<XmlDocument.Node> newSet() {
+            return new HashSet<>();
+        }
+    };
+
+    /**
+     * 查询中的一步：轴、标签名（null 表示任意标签）和条件
+     */
+    private static final class Step {
+        final boolean descendant;
+        final String name;
+        final List<Condition> conditions;
+
+        Step(boolean descendant, String name, List<Condition> conditions) {
+            this.descendant = descendant;
+            this.name = name;
+            this.conditions = conditions;
+        }
+
+        boolean hasPosition() {
+            for (Condition condition : conditions) {
+                if (condition.position != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 可以交给索引的属性相等条件
+         */
+        Map<String, String> equalityConditions() {
+            Map<String, String> attributes = new LinkedHashMap<>();
+            for (Condition condition : conditions) {
+                if (condition.kind == Condition.ATTRIBUTE && condition.value != null && !condition.negated) {
+                    attributes.put(condition.name, condition.value);
+                }
+            }
+            return attributes;
+        }
+
+        <E> Stream<E> apply(Model<E> model, E context, Function<E, List<E>> children) {
+            if (!descendant) {
+                return filter(model, children.apply(context).stream());
+            }
+            if (hasPosition()) {
+                // a//b[2] 表示每个后代（含自身）的第2个 b 子元素
+                return stream(new Descendants<>(context, children, true))
+                        .flatMap(element -> filter(model, children.apply(element).stream()));
+            }
+            return filter(model, stream(new Descendants<>(context, children, false)));
+        }
+
+        <E> Stream<E> filter(Model<E> model, Stream<E> candidates) {
+            Stream<E> result = name == null ? candidates
+                    : candidates.filter(element -> name.equals(model.tagName(element)));
+            for (Condition condition : conditions) {
+                result = condition.apply(model, result);
+            }
+            return result;
+        }
+
+        private static <E> Stream<E> stream(Iterator<E> iterator) {
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                    Spliterator.ORDERED | Spliterator.NONNULL), false);
+        }
+    }
+
+    /**
+     * 方括号中的条件
+     */
+    private static final class Condition {
+        static final int ATTRIBUTE = 0;
+        static final int TEXT = 1;
+        static final int POSITION = 2;
+
+        final int kind;
+        final String name;
+        // 为 null 时只要求属性存在
+        final String value;
+        final boolean negated;
+        // 从1开始的位置，-1 表示 last()，其他条件为0
+        final int position;
+
+        Condition(int kind, String name, String value, boolean negated, int position) {
+            this.kind = kind;
+            this.name = name;
+            this.value = value;
+            this.negated = negated;
+            this.position = position;
+        }
+
+        <E> Stream<E> apply(Model<E> model, Stream<E> elements) {
+            if (kind == POSITION) {
+                if (position < 0) {
+                    return elements.reduce((a, b) -> b).stream();
+                }
+                return elements.skip(position - 1).limit(1);
+            }
+            return elements.filter(element -> matches(model, element));
+        }
+
+        private <E> boolean matches(Model<E> model, E element) {
+            String actual = kind == TEXT ? model.textContent(element) : model.attribute(element, name);
+            if (value == null) {
+                return actual != null;
+            }
+            if (kind == TEXT && actual == null) {
+                actual = "";
+            }
+            return negated ? !value.equals(actual) : value.equals(actual);
+        }
+    }
+
+    /**
+     * 按文档顺序（先序）惰性遍历后代，用显式栈代替递归
+     */
+    private static final class Descendants<E> implements Iterator<E> {
+        private final Function<E, List<E>> children;
+        private final ArrayDeque<E> stack;
+
+        Descendants(E context, Function<E, List<E>> children, boolean includeSelf) {
+            this.children = children;
+            this.stack = new ArrayDeque<>();
+            if (includeSelf) {
+                stack.push(context);
+            } else {
+                pushChildren(context);
+            }
+        }
+
+        private void pushChildren(E element) {
+            List<E> list = children.apply(element);
+            for (int i = list.size() - 1; i >= 0; i--) {
+                stack.push(list.get(i));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public E next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            E element = stack.pop();
+            pushChildren(element);
+            return element;
+        }
+    }
+
+    /**
+     * 手写的递归下降解析，出错时报告字符位置
+     */
+    private static final class Compiler {
+        private final String input;
+        private int position;
+
+        Compiler(String input) {
+            this.input = input;
+        }
+
+        XmlQuery compile() {
+            boolean absolute = input.startsWith("/");
+            List<Step> steps = new ArrayList<>();
+            boolean descendant = false;
+            if (absolute) {
+                descendant = input.startsWith("//");
+                position = descendant ? 2 : 1;
+            }
+            while (true) {
+                steps.add(step(descendant));
+                if (position >= input.length()) {
+                    break;
+                }
+                expect('/');
+                descendant = position < input.length() && input.charAt(position) == '/';
+                if (descendant) {
+                    position++;
+                }
+            }
+            return new XmlQuery(input, absolute, Collections.unmodifiableList(steps));
+        }
+
+        private Step step(boolean descendant) {
+            String name;
+            if (position < input.length() && input.charAt(position) == '*') {
+                position++;
+                name = null;
+            } else {
+                name = name();
+            }
+            List<Condition> conditions = new ArrayList<>();
+            while (position < input.length() && input.charAt(position) == '[') {
+                position++;
+                conditions.add(condition());
+                expect(']');
+            }
+            return new Step(descendant, name, conditions);
+        }
+
+        private Condition condition() {
+            char c = peek();
+            if (c == '@') {
+                position++;
+                String attribute = name();
+                if (peek() == ']') {
+                    return new Condition(Condition.ATTRIBUTE, attribute, null, false, 0);
+                }
+                boolean negated = comparison();
+                return new Condition(Condition.ATTRIBUTE, attribute, literal(), negated, 0);
+            }
+            if (input.startsWith("text()", position)) {
+                position += "text()".length();
+                boolean negated = comparison();
+                return new Condition(Condition.TEXT, null, literal(), negated, 0);
+            }
+            if (input.startsWith("last()", position)) {
+                position += "last()".length();
+                return new Condition(Condition.POSITION, null, null, false, -1);
+            }
+            if (c >= '0' && c <= '9') {
+                int value = 0;
+                while (position < input.length() && Character.isDigit(input.charAt(position))) {
+                    value = value * 10 + (input.charAt(position++) - '0');
+                    if (value > 1_000_000_000) {
+                        throw error("位置过大");
+                    }
+                }
+                if (value < 1) {
+                    throw error("位置从1开始");
+                }
+                return new Condition(Condition.POSITION, null, null, false, value);
+            }
+            throw error("无法识别的条件");
+        }
+
+        /**
+         * 读取 = 或 !=，返回是否为不等于
+         */
+        private boolean comparison() {
+            boolean negated = false;
+            if (peek() == '!') {
+                position++;
+                negated = true;
+            }
+            expect('=');
+            return negated;
+        }
+
+        private String literal() {
+            char quote = peek();
+            if (quote != '"' && quote != '\'') {
+                throw error("应为带引号的值");
+            }
+            int end = input.indexOf(quote, position + 1);
+            if (end < 0) {
+                throw error("引号不匹配");
+            }
+            String value = input.substring(position + 1, end);
+            position = end + 1;
+            return value;
+        }
+
+        private String name() {
+            int start = position;
+            while (position < input.length() && isNameChar(input.charAt(position))) {
+                position++;
+            }
+            if (start == position) {
+                throw error("应为名称");
+            }
+            return input.substring(start, position);
+        }
+
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.' || c == ':';
+        }
+
+        private char peek() {
+            return position < input.length() ? input.charAt(position) : '\0';
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("应为 '" + c + "'");
+            }
+            position++;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("查询语法错误: " + message + "（位置 " + (position + 1) + "）: " + input);
+        }
+    }
+}
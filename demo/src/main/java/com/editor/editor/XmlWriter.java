@@ -0,0 +1,289 @@
+package com.editor.editor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * 流式XML序列化器
+ * 边遍历元素树边写出，字符先进入固定大小的缓冲区，满了再交给底层 Writer，
+ * 转义在同一次扫描中完成，额外内存与文档大小无关。
+ * 遍历不使用递归，任意深度的嵌套都不会栈溢出。
+ */
+public class XmlWriter implements Closeable {
+    private static final int BUFFER_SIZE = 8192;
+    private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+    // 默认缩进到这一层为止，正常文档的输出与逐层缩进相同；
+    // 极深的嵌套超过它后与它对齐，否则输出大小随深度平方增长
+    public static final int DEFAULT_MAX_INDENT = 1000;
+    private static final char[] INDENT = " ".repeat(128).toCharArray();
+
+    private final Writer out;
+    private final char[] buffer;
+    private int count;
+    private int maxIndent;
+
+    public XmlWriter(Writer out) {
+        this.out = out;
+        this.buffer = new char[BUFFER_SIZE];
+        this.count = 0;
+        this.maxIndent = DEFAULT_MAX_INDENT;
+    }
+
+    /**
+     * 设置最多缩进的层数，更深的元素与这一层对齐
+     */
+    public void setMaxIndent(int levels) {
+        if (levels < 0) {
+            throw new IllegalArgumentException("缩进层数不能为负数: " + levels);
+        }
+        this.maxIndent = levels;
+    }
+
+    /**
+     * 写出XML声明和整棵元素树
+     */
+    public void writeDocument(XmlElement root) throws IOException {
+        write(DECLARATION);
+        if (root == null) {
+            return;
+        }
+        try {
+            root.accept(new XmlElement.Visitor() {
+                @Override
+                public boolean enter(XmlElement element, int depth) {
+                    try {
+                        writeStartTag(element, depth);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return true;
+                }
+
+                @Override
+                public void leave(XmlElement element, int depth) {
+                    if (!element.hasChildren()) {
+                        return;
+                    }
+                    try {
+                        writeIndent(depth);
+                        writeEndTag(element);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 写出XML声明和紧凑文档，沿 第一个子节点/下一个兄弟 指针迭代遍历，
+     * 属性值和文本直接从文档的字符数组转义写出
+     */
+    public void writeDocument(XmlDocument document) throws IOException {
+        write(DECLARATION);
+        int root = document.getRoot();
+        if (root == XmlDocument.NONE) {
+            return;
+        }
+        char[] chars = document.chars();
+        int node = root;
+        int depth = 0;
+        while (true) {
+            writeIndent(depth);
+            write('<');
+            write(document.getTagName(node));
+            for (int i = 0; i < document.getAttributeCount(node); i++) {
+                int slot = document.attributeSlot(node, i);
+                write(' ');
+                write(document.getAttributeName(node, i));
+                write("=\"");
+                writeEscaped(chars, document.slotBegin(slot), document.slotEnd(slot));
+                write('"');
+            }
+            if (document.hasChildren(node)) {
+                write(">\n");
+                node = document.getFirstChild(node);
+                depth++;
+                continue;
+            }
+            if (document.hasTextContent(node)) {
+                int slot = document.textSlot(node);
+                write('>');
+                writeEscaped(chars, document.slotBegin(slot), document.slotEnd(slot));
+                writeEndTag(document.getTagName(node));
+            } else {
+                write("/>\n");
+            }
+            // 回到还有下一个兄弟的祖先，沿途写出结束标签
+            while (node != root && document.getNextSibling(node) == XmlDocument.NONE) {
+                node = document.getParent(node);
+                depth--;
+                writeIndent(depth);
+                writeEndTag(document.getTagName(node));
+            }
+            if (node == root) {
+                return;
+            }
+            node = document.getNextSibling(node);
+        }
+    }
+
+    /**
+     * 写出开始标签；没有子元素的元素在这里一并写完，有子元素的元素在离开时写结束标签
+     */
+    private void writeStartTag(XmlElement element, int indent) throws IOException {
+        writeIndent(indent);
+
+        // 开始标签
+        write('<');
+        write(element.getTagName());
+
+        // 属性
+        for (Map.Entry<String, String> entry : element.getAttributes().entrySet()) {
+            write(' ');
+            write(entry.getKey());
+            write("=\"");
+            writeEscaped(entry.getValue());
+            write('"');
+        }
+
+        if (element.hasChildren()) {
+            // 有子元素
+            write(">\n");
+        } else if (element.hasTextContent()) {
+            // 有文本内容
+            write('>');
+            writeEscaped(element.getTextContent());
+            writeEndTag(element);
+        } else {
+            // 空元素
+            write("/>\n");
+        }
+    }
+
+    private void writeEndTag(XmlElement element) throws IOException {
+        writeEndTag(element.getTagName());
+    }
+
+    private void writeEndTag(String tagName) throws IOException {
+        write("</");
+        write(tagName);
+        write(">\n");
+    }
+
+    private void writeIndent(int indent) throws IOException {
+        int spaces = 2 * Math.min(indent, maxIndent);
+        while (spaces > 0) {
+            int n = Math.min(spaces, INDENT.length);
+            write(INDENT, 0, n);
+            spaces -= n;
+        }
+    }
+
+    /**
+     * 单遍转义：未转义的连续片段整段拷贝，遇到特殊字符才写实体
+     */
+    private void writeEscaped(String text) throws IOException {
+        if (text == null) {
+            return;
+        }
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String entity = entity(text.charAt(i));
+            if (entity != null) {
+                write(text, start, i);
+                write(entity);
+                start = i + 1;
+            }
+        }
+        write(text, start, text.length());
+    }
+
+    private void writeEscaped(char[] text, int from, int to) throws IOException {
+        int start = from;
+        for (int i = from; i < to; i++) {
+            String entity = entity(text[i]);
+            if (entity != null) {
+                write(text, start, i);
+                write(entity);
+                start = i + 1;
+            }
+        }
+        write(text, start, to);
+    }
+
+    private static String entity(char c) {
+        switch (c) {
+            case '&':
+                return "&amp;";
+            case '<':
+                return "&lt;";
+            case '>':
+                return "&gt;";
+            case '"':
+                return "&quot;";
+            case '\'':
+                return "&apos;";
+            default:
+                return null;
+        }
+    }
+
+    private void write(char c) throws IOException {
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = c;
+    }
+
+    private void write(String s) throws IOException {
+        write(s, 0, s.length());
+    }
+
+    private void write(String s, int from, int to) throws IOException {
+        while (from < to) {
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            int n = Math.min(to - from, buffer.length - count);
+            s.getChars(from, from + n, buffer, count);
+            count += n;
+            from += n;
+        }
+    }
+
+    private void write(char[] s, int from, int to) throws IOException {
+        while (from < to) {
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            int n = Math.min(to - from, buffer.length - count);
+            System.arraycopy(s, from, buffer, count, n);
+            count += n;
+            from += n;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        out.close();
+    }
+}
@@ -0,0 +1,335 @@
+package com.editor.logging;
+
+import com.editor.util.AtomicFileSaver;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 日志的会话索引，保存在日志旁的 .idx 文件中
+ * 首行记录已索引的日志长度，以及这段日志首尾各一块的校验值；之后每行记录一个 "session start" 行的
+ * 字节偏移和时间戳，log-show 据此直接定位，不必读取整个日志。
+ * 日志比已索引的长度短，或首尾校验不一致（日志被截断或重写过）时扫描整个日志重建；
+ * 日志只是变长了时只扫描新增的部分。
+ */
+public class LogIndex {
+    static final String SESSION_PREFIX = "session start at ";
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd HH:mm:ss");
+    private static final int TIMESTAMP_LENGTH = 17;
+    private static final int READ_CHUNK = 64 * 1024;
+    private static final String HEADER = "v2";
+    // 参与校验的首尾块大小
+    private static final int CHECK_BLOCK = 4096;
+
+    private long[] offsets;
+    private long[] timestamps;
+    private int count;
+    // 已扫描过的日志长度，总在行边界上
+    private long indexedLength;
+
+    private LogIndex() {
+        this.offsets = new long[16];
+        this.timestamps = new long[16];
+    }
+
+    static Path indexPath(Path logPath) {
+        return logPath.resolveSibling(logPath.getFileName() + ".idx");
+    }
+
+    /**
+     * 追加一个会话记录，offset 是会话开始行将要写入的位置（即当前日志长度）
+     */
+    static void append(Path logPath, long offset, long timestamp) throws IOException {
+        LogIndex index = read(indexPath(logPath), logPath);
+        if (index == null) {
+            index = new LogIndex();
+        }
+        index.scan(logPath);
+        if (index.count == 0 || offset > index.offsets[index.count - 1]) {
+            index.add(offset, timestamp);
+        }
+        index.write(logPath);
+    }
+
+    /**
+     * 读取索引，先补上日志新增部分中的会话；索引缺失或与日志不一致时重建
+     */
+    public static LogIndex load(Path logPath) throws IOException {
+        LogIndex index = read(indexPath(logPath), logPath);
+        boolean rebuild = index == null;
+        if (rebuild) {
+            index = new LogIndex();
+        }
+        if (index.scan(logPath) || rebuild) {
+            index.write(logPath);
+        }
+        return index;
+    }
+
+    /**
+     * 读取索引文件，格式不对或与日志不一致时返回 null
+     */
+    private static LogIndex read(Path indexPath, Path logPath) throws IOException {
+        if (!Files.exists(indexPath)) {
+            return null;
+        }
+        List<String> lines = Files.readAllLines(indexPath, StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            return null;
+        }
+        LogIndex index = new LogIndex();
+        try {
+            String[] header = lines.get(0).split(" ");
+            if (header.length != 4 || !HEADER.equals(header[0])) {
+                return null;
+            }
+            index.indexedLength = Long.parseLong(header[1]);
+            long head = Long.parseLong(header[2]);
+            long tail = Long.parseLong(header[3]);
+            if (index.indexedLength < 0 || index.indexedLength > Files.size(logPath)
+                    || head != index.headChecksum(logPath) || tail != index.tailChecksum(logPath)) {
+                return null;
+            }
+            for (String line : lines.subList(1, lines.size())) {
+                int space = line.indexOf(' ');
+                if (space <= 0) {
+                    return null;
+                }
+                index.add(Long.parseLong(line.substring(0, space)), Long.parseLong(line.substring(space + 1)));
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return index;
+    }
+
+    /**
+     * 原子地写出索引，读者不会看到写了一半的文件
+     */
+    private void write(Path logPath) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append(HEADER).append(' ').append(indexedLength).append(' ')
+                .append(headChecksum(logPath)).append(' ').append(tailChecksum(logPath)).append('\n');
+        for (int i = 0; i < count; i++) {
+            sb.append(offsets[i]).append(' ').append(timestamps[i]).append('\n');
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        AtomicFileSaver.save(indexPath(logPath), channel -> channel.write(ByteBuffer.wrap(bytes)));
+    }
+
+    private void add(long offset, long timestamp) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            timestamps = Arrays.copyOf(timestamps, count * 2);
+        }
+        offsets[count] = offset;
+        timestamps[count] = timestamp;
+        count++;
+    }
+
+    private long headChecksum(Path logPath) throws IOException {
+        return checksum(logPath, 0, Math.min(CHECK_BLOCK, indexedLength));
+    }
+
+    private long tailChecksum(Path logPath) throws IOException {
+        return checksum(logPath, Math.max(0, indexedLength - CHECK_BLOCK), indexedLength);
+    }
+
+    private static long checksum(Path logPath, long from, long to) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer block = ByteBuffer.allocate((int) (to - from));
+        try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            while (block.hasRemaining() && channel.read(block, from + block.position()) >= 0) {
+                // 读满为止
+            }
+        }
+        block.flip();
+        crc.update(block);
+        return crc.getValue();
+    }
+
+    /**
+     * 顺序扫描已索引长度之后的日志，记录其中每个会话开始行的偏移
+     * 末尾没有换行的不完整行留到下次扫描。
+     * @return 是否扫描到了新的内容
+     */
+    private boolean scan(Path logPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            if (channel.size() <= indexedLength) {
+                return false;
+            }
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(indexedLength)));
+            long offset = indexedLength;
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                String text = line.toString(StandardCharsets.UTF_8);
+                // 会话开始时已经记录过的会话不重复加入
+                if (text.startsWith(SESSION_PREFIX) && (count == 0 || offset > offsets[count - 1])) {
+                    add(offset, lineTimestamp(text));
+                }
+                offset += line.size() + 1;
+                line.reset();
+            }
+            boolean advanced = offset > indexedLength;
+            indexedLength = offset;
+            return advanced;
+        }
+    }
+
+    public int getSessionCount() {
+        return count;
+    }
+
+    public long getOffset(int session) {
+        return offsets[session];
+    }
+
+    public long getTimestamp(int session) {
+        return timestamps[session];
+    }
+
+    /**
+     * 查找开始时间不晚于 time 的最后一个会话，都晚于 time 时返回 0
+     */
+    public int findSession(long time) {
+        int lo = 0;
+        int hi = count - 1;
+        int result = 0;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[mid] <= time) {
+                result = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 解析日志行的时间戳（毫秒），无法解析时返回 -1
+     */
+    static long lineTimestamp(String line) {
+        int start = line.startsWith(SESSION_PREFIX) ? SESSION_PREFIX.length() : 0;
+        if (line.length() < start + TIMESTAMP_LENGTH) {
+            return -1;
+        }
+        try {
+            return LocalDateTime.parse(line.substring(start, start + TIMESTAMP_LENGTH), DATE_FORMAT)
+                    .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 读取日志中 [from, to) 字节区间
+     */
+    static String readRange(Path logPath, long from, long to) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        readRange(logPath, from, to, sb);
+        return sb.toString();
+    }
+
+    /**
+     * 按块解码 [from, to) 字节区间并写入 out，区间大小不受 int 限制
+     */
+    static void readRange(Path logPath, long from, long to, Appendable out) throws IOException {
+        try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            to = Math.min(to, channel.size());
+            if (from >= to) {
+                return;
+            }
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            ByteBuffer bytes = ByteBuffer.allocate(READ_CHUNK);
+            CharBuffer chars = CharBuffer.allocate(READ_CHUNK);
+            long position = from;
+            boolean end = false;
+            while (!end) {
+                bytes.limit(bytes.position() + (int) Math.min(bytes.remaining(), to - position));
+                int read = channel.read(bytes, position);
+                if (read > 0) {
+                    position += read;
+                }
+                end = read < 0 || position >= to;
+                bytes.flip();
+                // 块末尾被截断的多字节字符留在缓冲区里，与下一块一起解码
+                CoderResult result;
+                do {
+                    result = decoder.decode(bytes, chars, end);
+                    out.append(chars.flip());
+                    chars.clear();
+                } while (result.isOverflow());
+                bytes.compact();
+            }
+            decoder.flush(chars);
+            out.append(chars.flip());
+        }
+    }
+
+    /**
+     * 从文件末尾向前按块查找，返回最后 lines 行的起始偏移
+     */
+    static long tailOffset(Path logPath, int lines) throws IOException {
+        try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer block = ByteBuffer.allocate(8192);
+            long position = size;
+            int found = 0;
+            // 末尾的换行不算作一行
+            boolean skipTrailing = true;
+            while (position > 0) {
+                int length = (int) Math.min(block.capacity(), position);
+                position -= length;
+                block.clear().limit(length);
+                while (block.hasRemaining()) {
+                    if (channel.read(block, position + block.position()) < 0) {
+                        break;
+                    }
+                }
+                for (int i = length - 1; i >= 0; i--) {
+                    if (block.get(i) != '\n') {
+                        skipTrailing = false;
+                        continue;
+                    }
+                    if (skipTrailing) {
+                        skipTrailing = false;
+                        continue;
+                    }
+                    if (++found == lines) {
+                        return position + i + 1;
+                    }
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -4,28 +4,87 @@ import com.editor.observer.Event;
 import com.editor.observer.Observer;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 日志记录器，实现观察者模式
+ * 同步模式下每条命令立即写入并刷新；异步模式下命令进入无锁环形队列，
+ * 由后台写线程批量写出，按条数或时间间隔统一刷新（group commit）。
  */
 public class Logger implements Observer {
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd HH:mm:ss").withZone(ZoneId.systemDefault());
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 200;
+    private static final int QUEUE_CAPACITY = 8192;
+
     private final Map<String, Boolean> logEnabled;
-    private final Map<String, PrintWriter> logWriters;
     private final Map<String, Boolean> sessionStarted;
-    private final SimpleDateFormat dateFormat;
+    // 同步模式下在 this 上加锁访问，异步模式下只由写线程访问
+    private final Map<String, LogFile> logFiles;
+    private final boolean async;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final LogRingBuffer<Entry> queue;
+    // 异步模式下第一次提交日志时启动，closeAll 时写完剩余日志后停止
+    private volatile Thread writerThread;
+    private volatile boolean stopping;
+    private volatile boolean syncOnSave;
+
+    // 时间戳按秒缓存，只在写入路径上使用
+    private long cachedSecond = -1;
+    private String cachedTimestamp;
 
     public Logger() {
-        this.logEnabled = new HashMap<>();
-        this.logWriters = new HashMap<>();
-        this.sessionStarted = new HashMap<>();
-        this.dateFormat = new SimpleDateFormat("yyyyMMdd HH:mm:ss");
+        this(false, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    /**
+     * @param async 是否启用异步写入
+     * @param batchSize 异步模式下累计多少条后刷新一次
+     * @param flushIntervalMillis 异步模式下最长多久刷新一次
+     */
+    public Logger(boolean async, int batchSize, long flushIntervalMillis) {
+        if (batchSize < 1 || flushIntervalMillis < 1) {
+            throw new IllegalArgumentException("批大小和刷新间隔必须大于0");
+        }
+        this.logEnabled = new ConcurrentHashMap<>();
+        this.sessionStarted = new ConcurrentHashMap<>();
+        this.logFiles = new HashMap<>();
+        this.async = async;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.queue = async ? new LogRingBuffer<>(QUEUE_CAPACITY) : null;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * 保存文件时是否等待日志写出并落盘，使日志与已保存的文件保持一致
+     */
+    public void setSyncOnSave(boolean syncOnSave) {
+        this.syncOnSave = syncOnSave;
+    }
+
+    public boolean isSyncOnSave() {
+        return syncOnSave;
     }
 
     /**
@@ -49,25 +108,15 @@ public class Logger implements Observer {
      * 检查文件是否启用了日志
      */
     public boolean isLogEnabled(String filePath) {
-        return logEnabled.getOrDefault(filePath, false);
+        return filePath != null && logEnabled.getOrDefault(filePath, false);
     }
 
     /**
      * 开始新的会话
      */
     private void startSession(String filePath) {
-        try {
-            Path logPath = getLogPath(filePath);
-            PrintWriter writer = new PrintWriter(new FileWriter(logPath.toFile(), true));
-            logWriters.put(filePath, writer);
-            sessionStarted.put(filePath, true);
-            
-            String timestamp = dateFormat.format(new Date());
-            writer.println("session start at " + timestamp);
-            writer.flush();
-        } catch (IOException e) {
-            System.err.println("警告: 无法创建日志文件 " + getLogPath(filePath) + ": " + e.getMessage());
-        }
+        sessionStarted.put(filePath, true);
+        submit(new Entry(Entry.SESSION, filePath, System.currentTimeMillis(), null, null));
     }
 
     /**
@@ -77,22 +126,24 @@ public class Logger implements Observer {
         if (!isLogEnabled(filePath)) {
             return;
         }
-
-        try {
-            PrintWriter writer = logWriters.get(filePath);
-            if (writer == null) {
-                startSession(filePath);
-                writer = logWriters.get(filePath);
-            }
-            
-            if (writer != null) {
-                String timestamp = dateFormat.format(new Date());
-                writer.println(timestamp + " " + command);
-                writer.flush();
-            }
-        } catch (Exception e) {
-            System.err.println("警告: 日志记录失败: " + e.getMessage());
+        if (!sessionStarted.getOrDefault(filePath, false)) {
+            startSession(filePath);
         }
+        submit(new Entry(Entry.LINE, filePath, System.currentTimeMillis(), command, null));
+    }
+
+    /**
+     * 等待已提交的日志全部写出并刷新
+     */
+    public void flush() {
+        barrier(Entry.FLUSH);
+    }
+
+    /**
+     * 等待已提交的日志全部写出并同步到磁盘
+     */
+    public void sync() {
+        barrier(Entry.SYNC);
     }
 
     /**
@@ -112,6 +163,7 @@ public class Logger implements Observer {
      * 读取并显示日志内容
      */
     public String readLog(String filePath) {
+        flush();
         try {
             Path logPath = getLogPath(filePath);
             if (!Files.exists(logPath)) {
@@ -124,15 +176,91 @@ public class Logger implements Observer {
     }
 
     /**
-     * 关闭所有日志文件
+     * 显示日志的最后 lines 行，从文件末尾向前定位
      */
-    public void closeAll() {
-        for (PrintWriter writer : logWriters.values()) {
-            if (writer != null) {
-                writer.close();
+    public String readLogTail(String filePath, int lines) {
+        return readIndexed(filePath, logPath -> LogIndex.readRange(logPath,
+                LogIndex.tailOffset(logPath, lines), Long.MAX_VALUE));
+    }
+
+    /**
+     * 显示第 session 个会话（从1开始，负数表示倒数第几个）
+     */
+    public String readLogSession(String filePath, int session) {
+        return readIndexed(filePath, logPath -> {
+            LogIndex index = LogIndex.load(logPath);
+            int count = index.getSessionCount();
+            int target = session > 0 ? session - 1 : count + session;
+            if (session == 0 || target < 0 || target >= count) {
+                return "会话不存在: " + session + "（共" + count + "个会话）";
+            }
+            long end = target + 1 < count ? index.getOffset(target + 1) : Long.MAX_VALUE;
+            return LogIndex.readRange(logPath, index.getOffset(target), end);
+        });
+    }
+
+    /**
+     * 显示指定时间（毫秒）之后的日志，先用索引定位到所在会话再顺序过滤
+     */
+    public String readLogSince(String filePath, long since) {
+        return readIndexed(filePath, logPath -> {
+            LogIndex index = LogIndex.load(logPath);
+            if (index.getSessionCount() == 0) {
+                return "";
+            }
+            long start = index.getOffset(index.findSession(since));
+            StringBuilder sb = new StringBuilder();
+            try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ)) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        Channels.newInputStream(channel.position(start)), StandardCharsets.UTF_8));
+                boolean matched = false;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!matched) {
+                        long timestamp = LogIndex.lineTimestamp(line);
+                        matched = timestamp >= 0 && timestamp >= since;
+                    }
+                    if (matched) {
+                        sb.append(line).append('\n');
+                    }
+                }
+            }
+            return sb.toString();
+        });
+    }
+
+    /**
+     * 刷新未写出的日志后读取
+     */
+    private String readIndexed(String filePath, LogReader reader) {
+        flush();
+        try {
+            Path logPath = getLogPath(filePath);
+            if (!Files.exists(logPath)) {
+                return "日志文件不存在";
             }
+            return reader.read(logPath);
+        } catch (IOException e) {
+            return "读取日志文件失败: " + e.getMessage();
+        }
+    }
+
+    @FunctionalInterface
+    private interface LogReader {
+        String read(Path logPath) throws IOException;
+    }
+
+    /**
+     * 关闭所有日志文件，异步模式下同时停止写线程；之后再记录日志时重新打开
+     * 不应与其他线程的日志记录并发调用
+     */
+    public void closeAll() {
+        if (!async || writerThread != null) {
+            barrier(Entry.CLOSE);
+            stopWriter();
         }
-        logWriters.clear();
+        // 再次记录时重新开始会话
+        sessionStarted.clear();
     }
 
     @Override
@@ -140,18 +268,277 @@ public class Logger implements Observer {
         String filePath = event.getFilePath();
         if (isLogEnabled(filePath)) {
             logCommand(filePath, event.getCommand());
+            if (syncOnSave && "SAVE".equals(event.getType())) {
+                sync();
+            }
+        }
+    }
+
+    // ========== 写入 ==========
+
+    private void submit(Entry entry) {
+        if (!async) {
+            synchronized (this) {
+                process(entry);
+                flushFiles(false);
+            }
+            return;
+        }
+        Thread writer = startWriter();
+        while (!queue.offer(entry)) {
+            // 队列已满：唤醒写线程并稍作等待
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(10_000);
+        }
+    }
+
+    private void barrier(int kind) {
+        if (!async) {
+            synchronized (this) {
+                process(new Entry(kind, null, 0, null, null));
+            }
+            return;
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        submit(new Entry(kind, null, 0, null, done));
+        LockSupport.unpark(writerThread);
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Thread startWriter() {
+        Thread writer = writerThread;
+        if (writer != null) {
+            return writer;
+        }
+        synchronized (this) {
+            if (writerThread == null) {
+                writer = new Thread(this::runWriter, "log-writer");
+                writer.setDaemon(true);
+                writerThread = writer;
+                writer.start();
+            }
+            return writerThread;
+        }
+    }
+
+    /**
+     * 通知写线程写完队列中剩余的日志后退出，并等待它结束
+     */
+    private void stopWriter() {
+        Thread writer;
+        synchronized (this) {
+            writer = writerThread;
+            if (writer == null) {
+                return;
+            }
+            stopping = true;
+        }
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        synchronized (this) {
+            writerThread = null;
+            stopping = false;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 后台写线程：批量写出队列中的日志，累计 batchSize 条或超过刷新间隔时统一刷新
+     */
+    private void runWriter() {
+        int pending = 0;
+        long lastFlush = System.nanoTime();
+        while (true) {
+            Entry entry = queue.poll();
+            if (entry == null) {
+                if (stopping) {
+                    if (pending > 0) {
+                        flushFiles(false);
+                    }
+                    return;
+                }
+                long waited = System.nanoTime() - lastFlush;
+                if (pending > 0 && waited >= flushIntervalNanos) {
+                    flushFiles(false);
+                    pending = 0;
+                    lastFlush = System.nanoTime();
+                } else {
+                    LockSupport.parkNanos(pending > 0 ? flushIntervalNanos - waited : flushIntervalNanos);
+                }
+                continue;
+            }
+            process(entry);
+            if (entry.kind == Entry.LINE || entry.kind == Entry.SESSION) {
+                pending++;
+            } else {
+                pending = 0;
+                lastFlush = System.nanoTime();
+            }
+            if (pending >= batchSize) {
+                flushFiles(false);
+                pending = 0;
+                lastFlush = System.nanoTime();
+            }
         }
     }
-}
 
+    private void process(Entry entry) {
+        switch (entry.kind) {
+            case Entry.SESSION:
+                indexSession(entry.filePath, entry.timestamp);
+                writeLine(entry.filePath, LogIndex.SESSION_PREFIX + formatTimestamp(entry.timestamp));
+                break;
+            case Entry.LINE:
+                writeLine(entry.filePath, formatTimestamp(entry.timestamp) + " " + entry.text);
+                break;
+            case Entry.FLUSH:
+                flushFiles(false);
+                break;
+            case Entry.SYNC:
+                flushFiles(true);
+                break;
+            case Entry.CLOSE:
+                closeFiles();
+                break;
+            default:
+                break;
+        }
+        if (entry.done != null) {
+            entry.done.countDown();
+        }
+    }
 
+    private LogFile openLogFile(String filePath) {
+        LogFile logFile = logFiles.get(filePath);
+        if (logFile == null) {
+            Path logPath = getLogPath(filePath);
+            try {
+                logFile = new LogFile(logPath);
+                logFiles.put(filePath, logFile);
+            } catch (IOException e) {
+                System.err.println("警告: 无法创建日志文件 " + logPath + ": " + e.getMessage());
+            }
+        }
+        return logFile;
+    }
 
+    /**
+     * 在索引中记录会话开始行的字节偏移
+     */
+    private void indexSession(String filePath, long timestamp) {
+        LogFile logFile = openLogFile(filePath);
+        if (logFile == null) {
+            return;
+        }
+        try {
+            logFile.writer.flush();
+            logFile.dirty = false;
+            // 追加模式下通道位置即文件末尾
+            LogIndex.append(getLogPath(filePath), logFile.stream.getChannel().position(), timestamp);
+        } catch (IOException e) {
+            System.err.println("警告: 日志索引更新失败: " + e.getMessage());
+        }
+    }
 
+    private void writeLine(String filePath, String line) {
+        LogFile logFile = openLogFile(filePath);
+        if (logFile == null) {
+            return;
+        }
+        try {
+            logFile.writer.write(line);
+            logFile.writer.newLine();
+            logFile.dirty = true;
+        } catch (IOException e) {
+            System.err.println("警告: 日志记录失败: " + e.getMessage());
+        }
+    }
 
+    private void flushFiles(boolean force) {
+        for (LogFile logFile : logFiles.values()) {
+            try {
+                if (logFile.dirty) {
+                    logFile.writer.flush();
+                    logFile.dirty = false;
+                }
+                if (force) {
+                    logFile.stream.getFD().sync();
+                }
+            } catch (IOException e) {
+                System.err.println("警告: 日志刷新失败: " + e.getMessage());
+            }
+        }
+    }
 
+    private void closeFiles() {
+        for (LogFile logFile : logFiles.values()) {
+            try {
+                logFile.writer.close();
+            } catch (IOException e) {
+                System.err.println("警告: 关闭日志文件失败: " + e.getMessage());
+            }
+        }
+        logFiles.clear();
+    }
 
+    private String formatTimestamp(long millis) {
+        long second = millis / 1000;
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedTimestamp = DATE_FORMAT.format(Instant.ofEpochMilli(millis));
+        }
+        return cachedTimestamp;
+    }
 
+    /**
+     * 一个打开的日志文件
+     */
+    private static class LogFile {
+        final FileOutputStream stream;
+        final BufferedWriter writer;
+        boolean dirty;
 
+        LogFile(Path path) throws IOException {
+            this.stream = new FileOutputStream(path.toFile(), true);
+            this.writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        }
+    }
 
+    /**
+     * 队列中的一条记录：日志行、会话开始，或者刷新/同步/关闭屏障
+     */
+    private static class Entry {
+        static final int LINE = 0;
+        static final int SESSION = 1;
+        static final int FLUSH = 2;
+        static final int SYNC = 3;
+        static final int CLOSE = 4;
 
+        final int kind;
+        final String filePath;
+        final long timestamp;
+        final String text;
+        final CountDownLatch done;
 
+        Entry(int kind, String filePath, long timestamp, String text, CountDownLatch done) {
+            this.kind = kind;
+            this.filePath = filePath;
+            this.timestamp = timestamp;
+            this.text = text;
+            this.done = done;
+        }
+    }
+}
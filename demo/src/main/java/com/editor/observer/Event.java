@@ -8,12 +8,24 @@ public class Event {
     private final String command;
     private final String filePath;
     private final long timestamp;
+    private final int line;
+    private final int lineDelta;
 
     public Event(String type, String command, String filePath) {
+        this(type, command, filePath, 0, 0);
+    }
+
+    /**
+     * @param line 受影响的第一行（从1开始），0表示未知
+     * @param lineDelta 编辑后行数的变化
+     */
+    public Event(String type, String command, String filePath, int line, int lineDelta) {
         this.type = type;
         this.command = command;
         this.filePath = filePath;
         this.timestamp = System.currentTimeMillis();
+        this.line = line;
+        this.lineDelta = lineDelta;
     }
 
     public String getType() {
@@ -31,6 +43,14 @@ public class Event {
     public long getTimestamp() {
         return timestamp;
     }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getLineDelta() {
+        return lineDelta;
+    }
 }
 
 
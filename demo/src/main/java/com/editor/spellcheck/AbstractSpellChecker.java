@@ -0,0 +1,116 @@
+package com.editor.spellcheck;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 拼写检查器的公共部分：分词、定位和大小写处理
+ * 子类只需提供字典查询和拼写建议
+ */
+public abstract class AbstractSpellChecker implements SpellChecker {
+
+    @Override
+    public List<SpellError> checkSpelling(String text) {
+        List<SpellError> errors = new ArrayList<>();
+        if (text != null) {
+            checkSpelling(text, errors::add);
+        }
+        return errors;
+    }
+
+    @Override
+    public boolean checkSpelling(CharSequence text, SpellErrorHandler handler) {
+        return scan(new WordTokenizer(text), handler);
+    }
+
+    @Override
+    public boolean checkSpelling(Reader source, SpellErrorHandler handler) throws IOException {
+        try {
+            return scan(new WordTokenizer(source), handler);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public Iterator<SpellError> errors(CharSequence text) {
+        WordTokenizer tokenizer = new WordTokenizer(text);
+        return new Iterator<SpellError>() {
+            private SpellError next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && tokenizer.next()) {
+                    next = check(tokenizer);
+                }
+                return next != null;
+            }
+
+            @Override
+            public SpellError next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                SpellError error = next;
+                next = null;
+                return error;
+            }
+        };
+    }
+
+    private boolean scan(WordTokenizer tokenizer, SpellErrorHandler handler) {
+        while (tokenizer.next()) {
+            SpellError error = check(tokenizer);
+            if (error != null && !handler.accept(error)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 检查分词器当前的单词，正确时返回 null
+     * 正确的单词只做字符扫描和原地查表，只有拼写错误才创建字符串
+     */
+    private SpellError check(WordTokenizer tokenizer) {
+        int from = tokenizer.getStart();
+        if (isValidWord(tokenizer.getText(), from, from + tokenizer.getLength())) {
+            return null;
+        }
+        String word = tokenizer.getWord();
+        return new SpellError(word, tokenizer.getLine(), tokenizer.getColumn(), getSuggestion(word.toLowerCase()));
+    }
+
+    /**
+     * 检查 text 中 [from, to) 的单词是否有效
+     */
+    protected boolean isValidWord(CharSequence text, int from, int to) {
+        if (to - from < 2) {
+            return true; // 忽略单字符和空字符串
+        }
+        return contains(text, from, to);
+    }
+
+    /**
+     * 检查 text 中 [from, to) 的单词是否在字典中，查找时忽略大小写
+     */
+    protected abstract boolean contains(CharSequence text, int from, int to);
+
+    /**
+     * 保持原单词的大小写格式
+     */
+    protected String capitalize(String original, String suggestion) {
+        if (original.isEmpty()) {
+            return suggestion;
+        }
+        if (Character.isUpperCase(original.charAt(0))) {
+            return suggestion.substring(0, 1).toUpperCase() + suggestion.substring(1);
+        }
+        return suggestion;
+    }
+}
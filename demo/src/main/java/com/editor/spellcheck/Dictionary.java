@@ -0,0 +1,326 @@
+package com.editor.spellcheck;
+
+import com.editor.util.AtomicFileSaver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 不可变的紧凑词典
+ * 所有单词按字典序连续存放在一个 char 数组中，用偏移数组区分，查找使用开放寻址哈希表，
+ * 避免每个单词一个 String 对象的开销。可以保存为二进制文件，启动时直接映射读取。
+ */
+public final class Dictionary {
+    private static final int MAGIC = 0x44494354; // "DICT"
+    private static final int VERSION = 1;
+    // 魔数、版本、词数、字符数、散列表容量
+    private static final int HEADER_BYTES = 5 * Integer.BYTES;
+
+    private final char[] chars;
+    private final int[] offsets;
+    private final long[] frequencies;
+    // 保存单词下标加1，0表示空槽
+    private final int[] table;
+
+    private Dictionary(char[] chars, int[] offsets, long[] frequencies, int[] table) {
+        this.chars = chars;
+        this.offsets = offsets;
+        this.frequencies = frequencies;
+        this.table = table;
+    }
+
+    /**
+     * 由单词列表构建，所有单词词频为1
+     */
+    public static Dictionary of(Collection<String> words) {
+        Map<String, Long> sorted = new TreeMap<>();
+        for (String word : words) {
+            sorted.merge(normalize(word), 1L, Math::max);
+        }
+        return build(sorted);
+    }
+
+    /**
+     * 由单词及词频构建，大小写不同的同一单词词频相加
+     */
+    public static Dictionary of(Map<String, Long> frequencies) {
+        Map<String, Long> sorted = new TreeMap<>();
+        for (Map.Entry<String, Long> entry : frequencies.entrySet()) {
+            sorted.merge(normalize(entry.getKey()), entry.getValue(), Long::sum);
+        }
+        return build(sorted);
+    }
+
+    private static String normalize(String word) {
+        return word.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Dictionary build(Map<String, Long> sorted) {
+        sorted.remove("");
+        int count = sorted.size();
+        int[] offsets = new int[count + 1];
+        long[] frequencies = new long[count];
+        int length = 0;
+        for (String word : sorted.keySet()) {
+            length += word.length();
+        }
+        char[] chars = new char[length];
+        int i = 0;
+        int position = 0;
+        for (Map.Entry<String, Long> entry : sorted.entrySet()) {
+            String word = entry.getKey();
+            word.getChars(0, word.length(), chars, position);
+            offsets[i] = position;
+            frequencies[i] = entry.getValue();
+            position += word.length();
+            i++;
+        }
+        offsets[count] = position;
+
+        int capacity = Integer.highestOneBit(Math.max(count, 1) * 2) << 1;
+        int[] table = new int[capacity];
+        for (i = 0; i < count; i++) {
+            int slot = hash(chars, offsets[i], offsets[i + 1]) & (capacity - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            table[slot] = i + 1;
+        }
+        return new Dictionary(chars, offsets, frequencies, table);
+    }
+
+    /**
+     * 读取词典文件，根据文件头自动识别二进制格式或文本格式
+     * 文本格式每行一个单词，可在空白后跟词频，空行和以 # 开头的行被忽略。
+     */
+    public static Dictionary load(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] header = in.readNBytes(4);
+            if (header.length == 4 && ByteBuffer.wrap(header).getInt() == MAGIC) {
+                return loadBinary(path);
+            }
+        }
+        return loadText(path);
+    }
+
+    private static Dictionary loadText(Path path) throws IOException {
+        Map<String, Long> sorted = new TreeMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                if (parts.length > 2) {
+                    throw new IllegalArgumentException("词典格式错误（第" + lineNumber + "行）: " + line);
+                }
+                long frequency = 1;
+                if (parts.length == 2) {
+                    try {
+                        frequency = Long.parseLong(parts[1]);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("词典格式错误（第" + lineNumber + "行）: 无效的词频 " + parts[1]);
+                    }
+                }
+                sorted.merge(normalize(parts[0]), frequency, Long::sum);
+            }
+        }
+        return build(sorted);
+    }
+
+    private static Dictionary loadBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IllegalArgumentException("词典文件已损坏: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IllegalArgumentException("不支持的词典文件版本: " + path);
+            }
+            int count = buffer.getInt();
+            int length = buffer.getInt();
+            int capacity = buffer.getInt();
+            // 分配数组前先用文件长度校验头部记录的大小
+            boolean valid = count >= 0 && length >= 0 && capacity > count && Integer.bitCount(capacity) == 1
+                    && size == HEADER_BYTES + (count + 1L) * Integer.BYTES + (long) length * Character.BYTES
+                    + (long) count * Long.BYTES + (long) capacity * Integer.BYTES;
+            if (!valid) {
+                throw new IllegalArgumentException("词典文件已损坏: " + path);
+            }
+            int[] offsets = new int[count + 1];
+            char[] chars = new char[length];
+            long[] frequencies = new long[count];
+            int[] table = new int[capacity];
+            buffer.asIntBuffer().get(offsets);
+            buffer.position(buffer.position() + offsets.length * Integer.BYTES);
+            buffer.asCharBuffer().get(chars);
+            buffer.position(buffer.position() + length * Character.BYTES);
+            buffer.asLongBuffer().get(frequencies);
+            buffer.position(buffer.position() + count * Long.BYTES);
+            buffer.asIntBuffer().get(table);
+            if (!isConsistent(offsets, length, table)) {
+                throw new IllegalArgumentException("词典文件已损坏: " + path);
+            }
+            return new Dictionary(chars, offsets, frequencies, table);
+        }
+    }
+
+    /**
+     * 校验读入的数组：单词边界从0开始不递减并止于字符总数，
+     * 散列表每个单词恰好出现一次且至少有一个空槽，否则查找可能越界或停不下来
+     */
+    private static boolean isConsistent(int[] offsets, int length, int[] table) {
+        int count = offsets.length - 1;
+        if (offsets[0] != 0 || offsets[count] != length) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (offsets[i] > offsets[i + 1]) {
+                return false;
+            }
+        }
+        boolean[] seen = new boolean[count];
+        int used = 0;
+        for (int entry : table) {
+            if (entry < 0 || entry > count) {
+                return false;
+            }
+            if (entry != 0) {
+                if (seen[entry - 1]) {
+                    return false;
+                }
+                seen[entry - 1] = true;
+                used++;
+            }
+        }
+        return used == count && used < table.length;
+    }
+
+    /**
+     * 保存为二进制格式
+     */
+    public void save(Path path) throws IOException {
+        int count = size();
+        int bytes = HEADER_BYTES + offsets.length * Integer.BYTES + chars.length * Character.BYTES
+                + count * Long.BYTES + table.length * Integer.BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(chars.length).putInt(table.length);
+        buffer.asIntBuffer().put(offsets);
+        buffer.position(buffer.position() + offsets.length * Integer.BYTES);
+        buffer.asCharBuffer().put(chars);
+        buffer.position(buffer.position() + chars.length * Character.BYTES);
+        buffer.asLongBuffer().put(frequencies);
+        buffer.position(buffer.position() + count * Long.BYTES);
+        buffer.asIntBuffer().put(table);
+        buffer.position(0);
+        AtomicFileSaver.save(path, channel -> {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        });
+    }
+
+    public int size() {
+        return frequencies.length;
+    }
+
+    public String getWord(int index) {
+        return new String(chars, offsets[index], offsets[index + 1] - offsets[index]);
+    }
+
+    public int getWordLength(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    public long getFrequency(int index) {
+        return frequencies[index];
+    }
+
+    /**
+     * 查找单词的下标，不存在时返回 -1
+     */
+    public int indexOf(CharSequence word) {
+        return find(word, 0, word.length(), false);
+    }
+
+    public boolean contains(CharSequence word) {
+        return indexOf(word) >= 0;
+    }
+
+    /**
+     * 查找 text 中 [from, to) 的单词，按小写比较，不创建子串
+     */
+    public int indexOfIgnoreCase(CharSequence text, int from, int to) {
+        return find(text, from, to, true);
+    }
+
+    private int find(CharSequence text, int from, int to, boolean foldCase) {
+        int length = to - from;
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + fold(text.charAt(i), foldCase);
+        }
+        int mask = table.length - 1;
+        int slot = mix(h) & mask;
+        while (table[slot] != 0) {
+            int index = table[slot] - 1;
+            int start = offsets[index];
+            if (offsets[index + 1] - start == length && regionEquals(text, from, start, length, foldCase)) {
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean regionEquals(CharSequence text, int from, int start, int length, boolean foldCase) {
+        for (int i = 0; i < length; i++) {
+            if (chars[start + i] != fold(text.charAt(from + i), foldCase)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char fold(char c, boolean foldCase) {
+        if (!foldCase) {
+            return c;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        return c < 128 ? c : Character.toLowerCase(c);
+    }
+
+    private static int hash(char[] chars, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + chars[i];
+        }
+        return mix(h);
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+}
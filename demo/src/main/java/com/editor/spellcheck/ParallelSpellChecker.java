@@ -0,0 +1,137 @@
+package com.editor.spellcheck;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 并行拼写检查器（装饰器），把多行文本按区间拆分给 fork/join 线程池中的多个线程检查
+ * 结果按原顺序合并。被装饰的检查器必须可以被多个线程同时调用。
+ * 检查器拥有自己的线程池，不再使用时调用 close 关闭。
+ */
+public class ParallelSpellChecker implements SpellChecker, Closeable {
+    // 每个任务至少检查的行数，行数更少时直接在调用线程检查
+    private static final int LEAF_SIZE = 256;
+
+    private final SpellChecker delegate;
+    private final int threads;
+    private final ForkJoinPool pool;
+
+    public ParallelSpellChecker(SpellChecker delegate) {
+        this(delegate, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelSpellChecker(SpellChecker delegate, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("线程数必须大于0: " + threads);
+        }
+        this.delegate = delegate;
+        this.threads = threads;
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    public SpellChecker getDelegate() {
+        return delegate;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    @Override
+    public List<SpellError> checkSpelling(String text) {
+        List<SpellError> errors = new ArrayList<>();
+        if (text == null || text.trim().isEmpty()) {
+            return errors;
+        }
+        List<String> lines = Arrays.asList(text.split("\n"));
+        List<List<SpellError>> results = checkAll(lines);
+        for (int i = 0; i < results.size(); i++) {
+            for (SpellError error : results.get(i)) {
+                errors.add(new SpellError(error.getWord(), i + 1, error.getColumn(), error.getSuggestion()));
+            }
+        }
+        return errors;
+    }
+
+    @Override
+    public List<List<SpellError>> checkAll(List<String> texts) {
+        // 各任务只写入自己区间的位置，不改变列表结构
+        List<List<SpellError>> results = new ArrayList<>(Collections.nCopies(texts.size(), null));
+        if (pool == null || texts.size() <= LEAF_SIZE) {
+            new CheckTask(texts, results, 0, texts.size()).compute();
+        } else {
+            pool.invoke(new CheckTask(texts, results, 0, texts.size()));
+        }
+        return results;
+    }
+
+    @Override
+    public boolean checkSpelling(CharSequence text, SpellErrorHandler handler) {
+        // 流式检查要按顺序交付错误，直接交给被装饰的检查器
+        return delegate.checkSpelling(text, handler);
+    }
+
+    @Override
+    public boolean checkSpelling(Reader source, SpellErrorHandler handler) throws IOException {
+        return delegate.checkSpelling(source, handler);
+    }
+
+    @Override
+    public Iterator<SpellError> errors(CharSequence text) {
+        return delegate.errors(text);
+    }
+
+    @Override
+    public String getSuggestion(String word) {
+        return delegate.getSuggestion(word);
+    }
+
+    /**
+     * 关闭线程池，正在进行的检查会先完成
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 检查 [from, to) 区间的文本，区间过大时对半拆分
+     */
+    private class CheckTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<String> texts;
+        private final transient List<List<SpellError>> results;
+        private final int from;
+        private final int to;
+
+        CheckTask(List<String> texts, List<List<SpellError>> results, int from, int to) {
+            this.texts = texts;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    results.set(i, delegate.checkSpelling(texts.get(i)));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new CheckTask(texts, results, from, mid), new CheckTask(texts, results, mid, to));
+        }
+    }
+}
@@ -1,16 +1,14 @@
 package com.editor.spellcheck;
 
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 /**
  * 简单的拼写检查器实现（适配器）
  * 使用简单的字典进行拼写检查
  */
-public class SimpleSpellChecker implements SpellChecker {
-    private final Set<String> dictionary;
+public class SimpleSpellChecker extends AbstractSpellChecker {
+    private final Dictionary dictionary;
     
     // 常见英语单词字典（简化版）
     private static final String[] COMMON_WORDS = {
@@ -29,84 +27,36 @@ public class SimpleSpellChecker implements SpellChecker {
     };
 
     public SimpleSpellChecker() {
-        this.dictionary = new HashSet<>();
+        this(Dictionary.of(defaultWords()));
+    }
+
+    public SimpleSpellChecker(Dictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * 内置的默认字典（小写）
+     */
+    static Set<String> defaultWords() {
+        Set<String> words = new HashSet<>();
         // 初始化字典（转换为小写）
         for (String word : COMMON_WORDS) {
-            dictionary.add(word.toLowerCase());
+            words.add(word.toLowerCase());
         }
-        // 添加一些常见变体
-        addVariants();
-    }
-
-    private void addVariants() {
         // 添加常见单词的复数形式等
         String[] baseWords = {"book", "title", "author", "year", "price", "category"};
         for (String word : baseWords) {
-            dictionary.add(word.toLowerCase() + "s");
-        }
-    }
-
-    @Override
-    public List<SpellError> checkSpelling(String text) {
-        List<SpellError> errors = new ArrayList<>();
-        if (text == null || text.trim().isEmpty()) {
-            return errors;
-        }
-
-        String[] lines = text.split("\n");
-        for (int lineNum = 0; lineNum < lines.length; lineNum++) {
-            String line = lines[lineNum];
-            String[] words = extractWords(line);
-            int currentPos = 0;
-            
-            for (String word : words) {
-                if (word.isEmpty()) {
-                    continue;
-                }
-                
-                // 找到单词在行中的位置
-                int wordStart = line.indexOf(word, currentPos);
-                if (wordStart == -1) {
-                    currentPos += word.length();
-                    continue;
-                }
-                
-                // 检查拼写
-                String cleanWord = cleanWord(word);
-                if (!isValidWord(cleanWord)) {
-                    String suggestion = getSuggestion(cleanWord);
-                    errors.add(new SpellError(word, lineNum + 1, wordStart + 1, suggestion));
-                }
-                currentPos = wordStart + word.length();
-            }
+            words.add(word.toLowerCase() + "s");
         }
-        
-        return errors;
-    }
-
-    /**
-     * 从文本中提取单词
-     */
-    private String[] extractWords(String text) {
-        // 使用正则表达式提取单词（字母序列）
-        return text.split("[^a-zA-Z]+");
-    }
-
-    /**
-     * 清理单词（移除标点符号等）
-     */
-    private String cleanWord(String word) {
-        return word.replaceAll("[^a-zA-Z]", "").toLowerCase();
+        return words;
     }
 
     /**
-     * 检查单词是否有效
+     * 检查单词是否在字典中
      */
-    private boolean isValidWord(String word) {
-        if (word.isEmpty() || word.length() < 2) {
-            return true; // 忽略单字符和空字符串
-        }
-        return dictionary.contains(word.toLowerCase());
+    @Override
+    protected boolean contains(CharSequence text, int from, int to) {
+        return dictionary.indexOfIgnoreCase(text, from, to) >= 0;
     }
 
     @Override
@@ -121,7 +71,8 @@ public class SimpleSpellChecker implements SpellChecker {
         String bestMatch = null;
         int minDistance = Integer.MAX_VALUE;
         
-        for (String dictWord : dictionary) {
+        for (int i = 0; i < dictionary.size(); i++) {
+            String dictWord = dictionary.getWord(i);
             int distance = editDistance(lowerWord, dictWord);
             if (distance < minDistance && distance <= 2) { // 最多2个字符差异
                 minDistance = distance;
@@ -159,18 +110,4 @@ public class SimpleSpellChecker implements SpellChecker {
         
         return dp[m][n];
     }
-
-    /**
-     * 保持原单词的大小写格式
-     */
-    private String capitalize(String original, String suggestion) {
-        if (original.isEmpty()) {
-            return suggestion;
-        }
-        if (Character.isUpperCase(original.charAt(0))) {
-            return suggestion.substring(0, 1).toUpperCase() + suggestion.substring(1);
-        }
-        return suggestion;
-    }
 }
-
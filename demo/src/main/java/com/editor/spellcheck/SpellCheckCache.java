@@ -0,0 +1,319 @@
+package com.editor.spellcheck;
+
+import com.editor.editor.TextBuffer;
+import com.editor.editor.XmlDocument;
+import com.editor.editor.XmlElement;
+import com.editor.observer.Event;
+import com.editor.observer.Observer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个文件的增量拼写检查缓存，作为观察者挂在编辑器上
+ * 文本文件按行缓存检查结果，EDIT 事件带有行号时只让受影响的行失效，
+ * 行号未知（如撤销、重做）时全部行失效；XML 文件按元素缓存，文本内容不变的元素直接复用结果；
+ * 只读的 XmlDocument 不会改变，按文档顺序缓存已检查部分的错误。
+ */
+public class SpellCheckCache implements Observer {
+    // 流式检查时每批检查的行数或元素数：批内交给检查器并行检查，批与批之间按顺序交付错误
+    private static final int CHUNK_SIZE = 4096;
+
+    // 每行的检查结果（行号按1记录），null 表示需要重新检查；只覆盖已检查到的前若干行
+    private final List<List<SpellError>> lineErrors;
+    // lineErrors 是否覆盖了缓冲区的全部行（上次检查走到了末尾）
+    private boolean linesComplete;
+    private final Map<XmlElement, ElementEntry> elementErrors;
+    // 只读文档已检查部分（节点编号小于 documentChecked）的错误
+    private XmlDocument document;
+    private final List<XmlSpellError> documentErrors;
+    private int documentChecked;
+    private SpellChecker checker;
+    private int checkedCount;
+
+    public SpellCheckCache() {
+        this.lineErrors = new ArrayList<>();
+        this.elementErrors = new IdentityHashMap<>();
+        this.documentErrors = new ArrayList<>();
+    }
+
+    @Override
+    public void update(Event event) {
+        if (!"EDIT".equals(event.getType())) {
+            return;
+        }
+        int line = event.getLine();
+        if (line < 1 || (linesComplete && line > lineErrors.size() + 1)) {
+            // XML 元素的缓存按文本内容校验，不受影响
+            lineErrors.clear();
+            linesComplete = false;
+            return;
+        }
+        if (line > lineErrors.size() + 1) {
+            // 还没有检查到的行，不影响已缓存的部分
+            return;
+        }
+        int index = line - 1;
+        if (index < lineErrors.size()) {
+            lineErrors.set(index, null);
+        }
+        int delta = event.getLineDelta();
+        if (delta > 0) {
+            int at = Math.min(line, lineErrors.size());
+            lineErrors.addAll(at, Collections.nCopies(delta, null));
+        } else if (delta < 0) {
+            int to = Math.min(line - delta, lineErrors.size());
+            if (line < to) {
+                lineErrors.subList(line, to).clear();
+            }
+        }
+    }
+
+    /**
+     * 清空全部缓存
+     */
+    public void invalidate() {
+        lineErrors.clear();
+        linesComplete = false;
+        elementErrors.clear();
+        document = null;
+        documentErrors.clear();
+        documentChecked = 0;
+    }
+
+    /**
+     * 上次检查中实际重新检查的行数或元素数
+     */
+    public int getCheckedCount() {
+        return checkedCount;
+    }
+
+    private void useChecker(SpellChecker spellChecker) {
+        if (checker != spellChecker) {
+            invalidate();
+            checker = spellChecker;
+        }
+    }
+
+    /**
+     * 检查文本缓冲区，只重新检查失效的行
+     */
+    public List<SpellError> check(TextBuffer buffer, SpellChecker spellChecker) {
+        List<SpellError> errors = new ArrayList<>();
+        check(buffer, spellChecker, error -> errors.add(error));
+        return errors;
+    }
+
+    /**
+     * 流式检查文本缓冲区，每发现一个错误就交给 handler，handler 要求停止时不再检查后面的行
+     * 失效的行按块交给检查器批量（可能并行）检查，块内检查完后按行号顺序交付错误；
+     * 已缓存的行直接复用，新检查的行写入缓存。逐块用 hasLine 确认行是否存在，
+     * 超大文件不必等总行数算出来就能开始交付错误。
+     * @return 是否检查完了全部行
+     */
+    public boolean check(TextBuffer buffer, SpellChecker spellChecker, SpellErrorHandler handler) {
+        useChecker(spellChecker);
+        checkedCount = 0;
+        int from = 0;
+        while (buffer.hasLine(from)) {
+            int to = from + 1;
+            while (to < from + CHUNK_SIZE && buffer.hasLine(to)) {
+                to++;
+            }
+            boolean last = to < from + CHUNK_SIZE;
+            if ((linesComplete && lineErrors.size() < to) || (last && lineErrors.size() > to)) {
+                // 与缓冲区对不上说明错过了编辑，从这一块起全部重新检查
+                lineErrors.subList(Math.min(from, lineErrors.size()), lineErrors.size()).clear();
+                linesComplete = false;
+            }
+            while (lineErrors.size() < to) {
+                lineErrors.add(null);
+            }
+            // 在调用线程读出失效的行
+            List<Integer> dirty = new ArrayList<>();
+            List<String> texts = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                if (lineErrors.get(i) == null) {
+                    dirty.add(i);
+                    texts.add(buffer.getLine(i));
+                }
+            }
+            if (!dirty.isEmpty()) {
+                List<List<SpellError>> results = spellChecker.checkAll(texts);
+                for (int i = 0; i < dirty.size(); i++) {
+                    lineErrors.set(dirty.get(i), results.get(i));
+                }
+                checkedCount += dirty.size();
+            }
+            for (int i = from; i < to; i++) {
+                for (SpellError error : lineErrors.get(i)) {
+                    if (!handler.accept(new SpellError(error.getWord(), i + 1, error.getColumn(), error.getSuggestion()))) {
+                        return false;
+                    }
+                }
+            }
+            from = to;
+        }
+        if (lineErrors.size() > from) {
+            // 缓存比缓冲区多出的行同样说明错过了编辑
+            lineErrors.subList(from, lineErrors.size()).clear();
+        }
+        linesComplete = true;
+        return true;
+    }
+
+    /**
+     * 检查 XML 树中所有元素的文本，文本未变化的元素复用上次的结果
+     */
+    public List<XmlSpellError> check(XmlElement root, SpellChecker spellChecker) {
+        List<XmlSpellError> errors = new ArrayList<>();
+        check(root, spellChecker, error -> errors.add(error));
+        return errors;
+    }
+
+    /**
+     * 流式检查 XML 树中所有元素的文本，按文档顺序交付错误，handler 要求停止时不再检查后面的元素
+     * 文本变化的元素按块批量检查，文本未变化的元素复用上次的结果。
+     * @return 是否检查完了全部元素
+     */
+    public boolean check(XmlElement root, SpellChecker spellChecker, XmlSpellErrorHandler handler) {
+        useChecker(spellChecker);
+        Map<XmlElement, ElementEntry> previous = new IdentityHashMap<>(elementErrors);
+        // 只保留本次仍在树中的元素
+        elementErrors.clear();
+        // 先按文档顺序收集带文本的元素
+        List<XmlElement> elements = new ArrayList<>();
+        collect(root, elements);
+        checkedCount = 0;
+        for (int from = 0; from < elements.size(); from += CHUNK_SIZE) {
+            int to = Math.min(elements.size(), from + CHUNK_SIZE);
+            List<XmlElement> dirty = new ArrayList<>();
+            List<String> texts = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                XmlElement element = elements.get(i);
+                ElementEntry entry = previous.get(element);
+                if (entry == null || !entry.text.equals(element.getTextContent())) {
+                    dirty.add(element);
+                    texts.add(element.getTextContent());
+                } else {
+                    elementErrors.put(element, entry);
+                }
+            }
+            if (!dirty.isEmpty()) {
+                List<List<SpellError>> results = spellChecker.checkAll(texts);
+                for (int i = 0; i < dirty.size(); i++) {
+                    List<XmlSpellError> entryErrors = new ArrayList<>();
+                    for (SpellError error : results.get(i)) {
+                        entryErrors.add(new XmlSpellError(dirty.get(i).getId(), error.getWord(), error.getSuggestion()));
+                    }
+                    elementErrors.put(dirty.get(i), new ElementEntry(texts.get(i), entryErrors));
+                }
+                checkedCount += dirty.size();
+            }
+            for (int i = from; i < to; i++) {
+                for (XmlSpellError error : entryOf(elements.get(i)).errors) {
+                    if (!handler.accept(error)) {
+                        // 没有检查到的元素保留上次的结果
+                        for (int j = to; j < elements.size(); j++) {
+                            ElementEntry entry = previous.get(elements.get(j));
+                            if (entry != null) {
+                                elementErrors.put(elements.get(j), entry);
+                            }
+                        }
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 流式检查只读文档中所有元素的文本，按文档顺序交付错误
+     * 先交付已检查部分缓存的错误，再从上次停下的位置按块继续检查。
+     * @return 是否检查完了全部元素
+     */
+    public boolean check(XmlDocument source, SpellChecker spellChecker, XmlSpellErrorHandler handler) {
+        useChecker(spellChecker);
+        if (document != source) {
+            document = source;
+            documentErrors.clear();
+            documentChecked = 0;
+        }
+        checkedCount = 0;
+        for (XmlSpellError error : documentErrors) {
+            if (!handler.accept(error)) {
+                return false;
+            }
+        }
+        while (documentChecked < source.size()) {
+            List<Integer> nodes = new ArrayList<>();
+            List<String> texts = new ArrayList<>();
+            int to = documentChecked;
+            while (to < source.size() && nodes.size() < CHUNK_SIZE) {
+                if (source.hasTextContent(to)) {
+                    nodes.add(to);
+                    texts.add(source.getTextContent(to));
+                }
+                to++;
+            }
+            int from = documentErrors.size();
+            List<List<SpellError>> results = spellChecker.checkAll(texts);
+            for (int i = 0; i < nodes.size(); i++) {
+                String id = source.getId(nodes.get(i));
+                for (SpellError error : results.get(i)) {
+                    documentErrors.add(new XmlSpellError(id, error.getWord(), error.getSuggestion()));
+                }
+            }
+            documentChecked = to;
+            checkedCount += nodes.size();
+            for (int i = from; i < documentErrors.size(); i++) {
+                if (!handler.accept(documentErrors.get(i))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 元素的缓存结果，元素 id 被修改过时更新错误中的 id
+     */
+    private ElementEntry entryOf(XmlElement element) {
+        ElementEntry entry = elementErrors.get(element);
+        if (!entry.errors.isEmpty() && !entry.errors.get(0).getElementId().equals(element.getId())) {
+            List<XmlSpellError> renamed = new ArrayList<>();
+            for (XmlSpellError error : entry.errors) {
+                renamed.add(new XmlSpellError(element.getId(), error.getWord(), error.getSuggestion()));
+            }
+            entry = new ElementEntry(entry.text, renamed);
+            elementErrors.put(element, entry);
+        }
+        return entry;
+    }
+
+    private void collect(XmlElement root, List<XmlElement> elements) {
+        if (root == null) {
+            return;
+        }
+        root.accept((element, depth) -> {
+            if (element.hasTextContent()) {
+                elements.add(element);
+            }
+            return true;
+        });
+    }
+
+    private static class ElementEntry {
+        final String text;
+        final List<XmlSpellError> errors;
+
+        ElementEntry(String text, List<XmlSpellError> errors) {
+            this.text = text;
+            this.errors = errors;
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.editor.spellcheck;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -19,11 +24,70 @@ public interface SpellChecker {
      * @return 建议的正确拼写
      */
     String getSuggestion(String word);
-}
-
-
 
+    /**
+     * 分别检查多段文本，结果与输入一一对应
+     * @param texts 要检查的文本，通常每段是一行
+     * @return 每段文本的拼写错误列表
+     */
+    default List<List<SpellError>> checkAll(List<String> texts) {
+        List<List<SpellError>> results = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            results.add(checkSpelling(text));
+        }
+        return results;
+    }
 
+    /**
+     * 流式检查文本，每发现一个错误就交给 handler
+     * 默认实现逐行调用 checkSpelling，子类可以提供不分行的实现。
+     * @return 是否检查完了全部文本，handler 要求停止时返回 false
+     */
+    default boolean checkSpelling(CharSequence text, SpellErrorHandler handler) {
+        int lineNumber = 1;
+        int lineStart = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            if (i == text.length() || text.charAt(i) == '\n') {
+                String line = text.subSequence(lineStart, i).toString();
+                if (!emit(checkSpelling(line), lineNumber, handler)) {
+                    return false;
+                }
+                lineNumber++;
+                lineStart = i + 1;
+            }
+        }
+        return true;
+    }
 
+    /**
+     * 流式检查 Reader 中的文本，不需要把全部内容读入内存
+     * @return 是否检查完了全部文本，handler 要求停止时返回 false
+     */
+    default boolean checkSpelling(Reader source, SpellErrorHandler handler) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 1;
+        while ((line = reader.readLine()) != null) {
+            if (!emit(checkSpelling(line), lineNumber++, handler)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
+    /**
+     * 按需检查的错误迭代器
+     */
+    default Iterator<SpellError> errors(CharSequence text) {
+        return checkSpelling(text.toString()).iterator();
+    }
 
+    private boolean emit(List<SpellError> errors, int lineNumber, SpellErrorHandler handler) {
+        for (SpellError error : errors) {
+            if (!handler.accept(new SpellError(error.getWord(), lineNumber, error.getColumn(), error.getSuggestion()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,277 @@
+package com.editor.spellcheck;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基于删除索引（SymSpell）的拼写检查器
+ * 构建时为每个字典词的前缀预先生成最多 maxEditDistance 次删除得到的所有变体，
+ * 查询时只需生成输入的删除变体并在索引中查找候选词，再用有界编辑距离校验，
+ * 查询代价与字典大小无关。
+ * 索引只保存变体的32位哈希和对应的单词下标，哈希冲突带来的多余候选会被距离校验过滤掉。
+ */
+public class SymSpellChecker extends AbstractSpellChecker {
+    public static final int DEFAULT_MAX_EDIT_DISTANCE = 2;
+    // 只对前缀生成删除变体，限制索引大小
+    private static final int PREFIX_LENGTH = 7;
+
+    private final int maxEditDistance;
+    private final Dictionary dictionary;
+    // 按哈希排序的变体哈希，starts[i] 到 starts[i + 1] 是其在 postings 中的单词下标
+    private final int[] hashes;
+    private final int[] starts;
+    private final int[] postings;
+    private final int maxWordLength;
+
+    /**
+     * 使用内置的默认字典
+     */
+    public SymSpellChecker() {
+        this(SimpleSpellChecker.defaultWords());
+    }
+
+    /**
+     * 使用给定的单词列表，所有单词词频相同
+     */
+    public SymSpellChecker(Collection<String> words) {
+        this(Dictionary.of(words), DEFAULT_MAX_EDIT_DISTANCE);
+    }
+
+    /**
+     * @param frequencies 单词及其词频，词频用于同距离建议的排序
+     * @param maxEditDistance 最大编辑距离
+     */
+    public SymSpellChecker(Map<String, Long> frequencies, int maxEditDistance) {
+        this(Dictionary.of(frequencies), maxEditDistance);
+    }
+
+    public SymSpellChecker(Dictionary dictionary) {
+        this(dictionary, DEFAULT_MAX_EDIT_DISTANCE);
+    }
+
+    /**
+     * @param dictionary 词典，词频用于同距离建议的排序
+     * @param maxEditDistance 最大编辑距离
+     */
+    public SymSpellChecker(Dictionary dictionary, int maxEditDistance) {
+        if (maxEditDistance < 0) {
+            throw new IllegalArgumentException("最大编辑距离不能为负数: " + maxEditDistance);
+        }
+        this.maxEditDistance = maxEditDistance;
+        this.dictionary = dictionary;
+
+        // 每个 (哈希, 下标) 打包成一个 long，排序后相同变体的下标聚在一起
+        long[] pairs = new long[dictionary.size() * 8];
+        int pairCount = 0;
+        int longest = 0;
+        Set<String> variants = new HashSet<>();
+        for (int i = 0; i < dictionary.size(); i++) {
+            String word = dictionary.getWord(i);
+            longest = Math.max(longest, word.length());
+            variants.clear();
+            String key = word.length() > PREFIX_LENGTH ? word.substring(0, PREFIX_LENGTH) : word;
+            variants.add(key);
+            collectDeletes(key, maxEditDistance, variants);
+            if (pairCount + variants.size() > pairs.length) {
+                pairs = Arrays.copyOf(pairs, Math.max(pairs.length * 2, pairCount + variants.size()));
+            }
+            for (String variant : variants) {
+                pairs[pairCount++] = ((long) hash(variant) << 32) | i;
+            }
+        }
+        this.maxWordLength = longest;
+        Arrays.sort(pairs, 0, pairCount);
+
+        int keys = 0;
+        for (int i = 0; i < pairCount; i++) {
+            if (i == 0 || (int) (pairs[i] >>> 32) != (int) (pairs[i - 1] >>> 32)) {
+                keys++;
+            }
+        }
+        this.hashes = new int[keys];
+        this.starts = new int[keys + 1];
+        this.postings = new int[pairCount];
+        int key = -1;
+        for (int i = 0; i < pairCount; i++) {
+            int h = (int) (pairs[i] >>> 32);
+            if (key < 0 || hashes[key] != h) {
+                hashes[++key] = h;
+                starts[key] = i;
+            }
+            postings[i] = (int) pairs[i];
+        }
+        starts[keys] = pairCount;
+    }
+
+    /**
+     * 变体哈希，排序时按有符号 int 比较，与 pairs 的高32位顺序一致
+     */
+    private static int hash(String variant) {
+        int h = variant.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private static void collectDeletes(String word, int distance, Set<String> result) {
+        if (distance == 0) {
+            return;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            String variant = word.substring(0, i) + word.substring(i + 1);
+            if (result.add(variant)) {
+                collectDeletes(variant, distance - 1, result);
+            }
+        }
+    }
+
+    public int getMaxEditDistance() {
+        return maxEditDistance;
+    }
+
+    /**
+     * 字典中的单词数
+     */
+    public int size() {
+        return dictionary.size();
+    }
+
+    public Dictionary getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    protected boolean contains(CharSequence text, int from, int to) {
+        return dictionary.indexOfIgnoreCase(text, from, to) >= 0;
+    }
+
+    @Override
+    public String getSuggestion(String word) {
+        if (word == null || word.isEmpty()) {
+            return word;
+        }
+        List<String> suggestions = getSuggestions(word, 1);
+        return suggestions.isEmpty() ? word : capitalize(word, suggestions.get(0));
+    }
+
+    /**
+     * 获取按编辑距离、词频、字母序排序的拼写建议
+     * @param word 要查询的单词
+     * @param limit 最多返回的建议数
+     */
+    public List<String> getSuggestions(String word, int limit) {
+        List<String> result = new ArrayList<>();
+        if (word == null || word.isEmpty() || limit <= 0) {
+            return result;
+        }
+        String input = word.toLowerCase();
+        int inputLength = input.length();
+        if (inputLength - maxEditDistance > maxWordLength) {
+            return result;
+        }
+
+        List<int[]> matches = new ArrayList<>(); // {单词下标, 距离}
+        BitSet checked = new BitSet(dictionary.size());
+        Set<String> seen = new HashSet<>();
+        ArrayDeque<String> candidates = new ArrayDeque<>();
+        int prefixLength = Math.min(inputLength, PREFIX_LENGTH);
+        candidates.add(input.substring(0, prefixLength));
+        seen.add(candidates.peek());
+
+        // 按删除次数逐层展开，层数不超过最大编辑距离
+        while (!candidates.isEmpty()) {
+            String candidate = candidates.poll();
+            int removed = prefixLength - candidate.length();
+            int key = Arrays.binarySearch(hashes, hash(candidate));
+            if (key >= 0) {
+                for (int p = starts[key]; p < starts[key + 1]; p++) {
+                    int index = postings[p];
+                    if (checked.get(index)) {
+                        continue;
+                    }
+                    checked.set(index);
+                    if (Math.abs(dictionary.getWordLength(index) - inputLength) > maxEditDistance) {
+                        continue;
+                    }
+                    int distance = distance(input, dictionary.getWord(index), maxEditDistance);
+                    if (distance >= 0) {
+                        matches.add(new int[]{index, distance});
+                    }
+                }
+            }
+            if (removed < maxEditDistance) {
+                for (int i = 0; i < candidate.length(); i++) {
+                    String variant = candidate.substring(0, i) + candidate.substring(i + 1);
+                    if (seen.add(variant)) {
+                        candidates.add(variant);
+                    }
+                }
+            }
+        }
+
+        matches.sort((a, b) -> {
+            if (a[1] != b[1]) {
+                return Integer.compare(a[1], b[1]);
+            }
+            long fa = dictionary.getFrequency(a[0]);
+            long fb = dictionary.getFrequency(b[0]);
+            if (fa != fb) {
+                return Long.compare(fb, fa);
+            }
+            // 词典按字母序存放，下标顺序即字母序
+            return Integer.compare(a[0], b[0]);
+        });
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            result.add(dictionary.getWord(matches.get(i)[0]));
+        }
+        return result;
+    }
+
+    /**
+     * 有界编辑距离（相邻字符交换计为一次编辑），超过 max 时返回 -1
+     */
+    static int distance(String s1, String s2, int max) {
+        int m = s1.length();
+        int n = s2.length();
+        if (Math.abs(m - n) > max) {
+            return -1;
+        }
+        int[] previous2 = new int[n + 1];
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int j = 0; j <= n; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= m; i++) {
+            current[0] = i;
+            int rowMin = i;
+            char c1 = s1.charAt(i - 1);
+            for (int j = 1; j <= n; j++) {
+                char c2 = s2.charAt(j - 1);
+                int cost = c1 == c2 ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && c1 == s2.charAt(j - 2) && s1.charAt(i - 2) == c2) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return -1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[n] <= max ? previous[n] : -1;
+    }
+}
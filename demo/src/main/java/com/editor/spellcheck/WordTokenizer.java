@@ -0,0 +1,169 @@
+package com.editor.spellcheck;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+
+/**
+ * 逐字符扫描文本的分词器，单词为连续的英文字母
+ * 每次 next() 把当前单词的位置记录在字段中，不创建子串，扫描过程中不分配对象。
+ * 可以直接扫描 CharSequence，也可以从 Reader 分块读取，此时只在内存中保留一个窗口。
+ */
+public class WordTokenizer {
+    private static final int WINDOW_SIZE = 8192;
+
+    private final Reader reader;
+    private CharSequence text;
+    private char[] window;
+    private int length;
+    // 窗口第一个字符在整个输入中的偏移
+    private long base;
+    private int position;
+    private int line;
+    private long lineStart;
+
+    private int start;
+    private int end;
+    private int tokenLine;
+    private int tokenColumn;
+
+    public WordTokenizer(CharSequence text) {
+        this.reader = null;
+        this.text = text;
+        this.length = text.length();
+        this.line = 1;
+    }
+
+    /**
+     * 从 Reader 读取，读取失败时 next() 抛出 UncheckedIOException
+     */
+    public WordTokenizer(Reader reader) {
+        this.reader = reader;
+        this.window = new char[WINDOW_SIZE];
+        this.text = CharBuffer.wrap(window);
+        this.line = 1;
+    }
+
+    /**
+     * 移动到下一个单词，没有更多单词时返回 false
+     */
+    public boolean next() {
+        while (true) {
+            if (position >= length) {
+                if (!fill(length)) {
+                    return false;
+                }
+                continue;
+            }
+            char c = text.charAt(position);
+            if (isLetter(c)) {
+                break;
+            }
+            if (c == '\n') {
+                line++;
+                lineStart = base + position + 1;
+            }
+            position++;
+        }
+        start = position;
+        while (true) {
+            if (position >= length) {
+                // 保留已扫描的半个单词，继续读取
+                if (!fill(start)) {
+                    break;
+                }
+                continue;
+            }
+            if (!isLetter(text.charAt(position))) {
+                break;
+            }
+            position++;
+        }
+        end = position;
+        tokenLine = line;
+        tokenColumn = (int) (base + start - lineStart + 1);
+        return true;
+    }
+
+    /**
+     * 丢弃窗口中 keep 之前的字符并读入更多内容
+     */
+    private boolean fill(int keep) {
+        if (reader == null) {
+            return false;
+        }
+        int kept = length - keep;
+        if (keep == 0 && length == window.length) {
+            // 单词比窗口还长，扩大窗口
+            char[] larger = new char[window.length * 2];
+            System.arraycopy(window, 0, larger, 0, length);
+            window = larger;
+            text = CharBuffer.wrap(window);
+        } else {
+            System.arraycopy(window, keep, window, 0, kept);
+        }
+        base += keep;
+        position -= keep;
+        start -= keep;
+        length = kept;
+        try {
+            int read = reader.read(window, length, window.length - length);
+            if (read <= 0) {
+                return false;
+            }
+            length += read;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * 当前单词所在的字符序列，单词位于 [getStart(), getStart() + getLength())
+     * 从 Reader 读取时这是内部窗口，只在下一次 next() 之前有效
+     */
+    public CharSequence getText() {
+        return text;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * 单词在整个输入中的起始偏移
+     */
+    public long getOffset() {
+        return base + start;
+    }
+
+    public int getLength() {
+        return end - start;
+    }
+
+    /**
+     * 单词所在行（从1开始）
+     */
+    public int getLine() {
+        return tokenLine;
+    }
+
+    /**
+     * 单词在行中的列（从1开始）
+     */
+    public int getColumn() {
+        return tokenColumn;
+    }
+
+    /**
+     * 当前单词的字符串，只在需要保存单词时调用
+     */
+    public String getWord() {
+        return text.subSequence(start, end).toString();
+    }
+}
@@ -0,0 +1,13 @@
+package com.editor.spellcheck;
+
+/**
+ * XML 流式拼写检查的回调，每发现一个元素文本中的拼写错误调用一次
+ */
+@FunctionalInterface
+public interface XmlSpellErrorHandler {
+    /**
+     * @param error 拼写错误
+     * @return 是否继续检查，返回 false 时立即停止
+     */
+    boolean accept(XmlSpellError error);
+}
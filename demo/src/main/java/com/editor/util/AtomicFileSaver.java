@@ -0,0 +1,79 @@
+package com.editor.util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+
+/**
+ * 原子保存：先写入同目录下的临时文件并落盘，再原子地替换目标文件
+ * 写入过程中崩溃只会留下临时文件，目标文件要么是旧内容，要么是完整的新内容。
+ */
+public final class AtomicFileSaver {
+
+    /**
+     * 向临时文件的通道写出内容
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(FileChannel channel) throws IOException;
+    }
+
+    /**
+     * 替换目标文件前执行的操作，例如关闭仍映射着目标文件的通道
+     */
+    @FunctionalInterface
+    public interface BeforeReplace {
+        void run() throws IOException;
+    }
+
+    private AtomicFileSaver() {
+    }
+
+    public static void save(Path target, ContentWriter content) throws IOException {
+        save(target, content, () -> { });
+    }
+
+    public static void save(Path target, ContentWriter content, BeforeReplace beforeReplace) throws IOException {
+        Path absolute = target.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), "." + absolute.getFileName(), ".tmp");
+        try {
+            copyPermissions(absolute, temp);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                content.write(channel);
+                channel.force(true);
+            }
+            beforeReplace.run();
+            try {
+                Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+            // 目录项也要落盘，否则崩溃后重命名可能丢失
+            syncDirectory(absolute.getParent());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Windows 等平台不支持打开目录，文件本身已经落盘
+        }
+    }
+
+    /**
+     * 临时文件默认只有属主可读写，替换前沿用原文件的权限
+     */
+    private static void copyPermissions(Path source, Path temp) throws IOException {
+        if (Files.exists(source) && Files.getFileAttributeView(source, PosixFileAttributeView.class) != null) {
+            Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(source));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.editor.workspace;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * save all 时部分文件保存失败，汇总每个文件的错误
+ */
+public class SaveAllException extends IOException {
+    private static final long serialVersionUID = 1L;
+    private final Map<String, IOException> failures;
+
+    public SaveAllException(Map<String, IOException> failures) {
+        super(buildMessage(failures));
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        for (IOException failure : failures.values()) {
+            addSuppressed(failure);
+        }
+    }
+
+    /**
+     * 文件路径 -> 保存失败的原因
+     */
+    public Map<String, IOException> getFailures() {
+        return failures;
+    }
+
+    private static String buildMessage(Map<String, IOException> failures) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(failures.size()).append("个文件保存失败");
+        for (Map.Entry<String, IOException> entry : failures.entrySet()) {
+            sb.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue().getMessage());
+        }
+        return sb.toString();
+    }
+}
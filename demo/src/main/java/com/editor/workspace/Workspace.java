@@ -1,6 +1,8 @@
 package com.editor.workspace;
 
 import com.editor.editor.Editor;
+import com.editor.editor.MappedTextBuffer;
+import com.editor.editor.ReadOnlyXmlEditor;
 import com.editor.editor.TextEditor;
 import com.editor.editor.XmlEditor;
 import com.editor.memento.Memento;
@@ -13,12 +15,22 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * 工作区类，管理多个编辑器
  */
 public class Workspace implements Subject {
     private static final String WORKSPACE_FILE = ".editor_workspace";
+    // 超过该大小的文本文件使用内存映射延迟加载
+    private static final long DEFAULT_LAZY_LOAD_THRESHOLD = 64L * 1024 * 1024;
+    // 默认不按大小自动切换到只读的紧凑模型，需要时用 load --compact 显式打开
+    private static final long DEFAULT_READ_ONLY_XML_THRESHOLD = Long.MAX_VALUE;
     
     private final Map<String, Editor> editors;
     private final Statistics statistics;
@@ -26,6 +38,9 @@ public class Workspace implements Subject {
     private final Map<String, Boolean> modifiedStatus;
     private final Map<String, Boolean> logStatus;
     private final List<com.editor.observer.Observer> observers;
+    private long lazyLoadThreshold;
+    private long readOnlyXmlThreshold;
+    private int saveThreads;
 
     public Workspace() {
         this.editors = new HashMap<>();
@@ -33,6 +48,9 @@ public class Workspace implements Subject {
         this.logStatus = new HashMap<>();
         this.observers = new ArrayList<>();
         this.statistics = new Statistics();
+        this.lazyLoadThreshold = DEFAULT_LAZY_LOAD_THRESHOLD;
+        this.readOnlyXmlThreshold = DEFAULT_READ_ONLY_XML_THRESHOLD;
+        this.saveThreads = Runtime.getRuntime().availableProcessors();
         loadWorkspace();
     }
 
@@ -40,10 +58,57 @@ public class Workspace implements Subject {
         return statistics;
     }
 
+    /**
+     * 设置延迟加载阈值（字节），不小于该大小的文本文件通过内存映射按需读取
+     */
+    public void setLazyLoadThreshold(long bytes) {
+        this.lazyLoadThreshold = bytes;
+    }
+
+    public long getLazyLoadThreshold() {
+        return lazyLoadThreshold;
+    }
+
+    /**
+     * 设置只读加载阈值（字节），不小于该大小的XML文件以只读方式打开，
+     * 只保存紧凑的 XmlDocument，可以查看、查询和拼写检查，不能编辑。
+     * 默认为 Long.MAX_VALUE，即不自动切换
+     */
+    public void setReadOnlyXmlThreshold(long bytes) {
+        this.readOnlyXmlThreshold = bytes;
+    }
+
+    public long getReadOnlyXmlThreshold() {
+        return readOnlyXmlThreshold;
+    }
+
+    /**
+     * 设置 save all 时并发保存的线程数，1 表示在调用线程上逐个保存
+     */
+    public void setSaveThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("线程数必须大于0: " + threads);
+        }
+        this.saveThreads = threads;
+    }
+
+    public int getSaveThreads() {
+        return saveThreads;
+    }
+
     /**
      * 加载文件
      */
     public void loadFile(String filePath) throws IOException {
+        loadFile(filePath, false);
+    }
+
+    /**
+     * 加载文件
+     * @param compact XML文件是否以只读方式加载为紧凑的文档模型；
+     *                为 false 时仍按只读加载阈值判断，对文本文件无效
+     */
+    public void loadFile(String filePath, boolean compact) throws IOException {
         Path path = Paths.get(filePath);
         if (!Files.exists(path)) {
             throw new FileNotFoundException("文件不存在: " + filePath);
@@ -52,7 +117,13 @@ public class Workspace implements Subject {
         Editor editor;
         boolean isXml = filePath.toLowerCase().endsWith(".xml");
         
-        if (isXml) {
+        if (isXml && (compact || Files.size(path) >= readOnlyXmlThreshold)) {
+            // 显式要求或超过阈值的XML文件：只读的紧凑模型
+            ReadOnlyXmlEditor readOnlyEditor = new ReadOnlyXmlEditor(filePath);
+            readOnlyEditor.loadFromFile();
+            editor = readOnlyEditor;
+            logStatus.put(filePath, readOnlyEditor.isLogEnabled());
+        } else if (isXml) {
             // XML文件
             XmlEditor xmlEditor = new XmlEditor(filePath);
             xmlEditor.loadFromFile();
@@ -60,13 +131,18 @@ public class Workspace implements Subject {
             logStatus.put(filePath, xmlEditor.isLogEnabled());
         } else {
             // 文本文件
-            TextEditor textEditor = new TextEditor(filePath);
-            List<String> lines = Files.readAllLines(path, java.nio.charset.StandardCharsets.UTF_8);
-            textEditor.setLines(lines);
+            TextEditor textEditor;
+            if (Files.size(path) >= lazyLoadThreshold) {
+                // 大文件：内存映射，行索引在后台构建
+                textEditor = new TextEditor(filePath, MappedTextBuffer.open(path));
+            } else {
+                textEditor = new TextEditor(filePath);
+                textEditor.setLines(Files.readAllLines(path, java.nio.charset.StandardCharsets.UTF_8));
+            }
             editor = textEditor;
             
             // 检查文件首行是否为 "# log"
-            if (!lines.isEmpty() && "# log".equals(lines.get(0).trim())) {
+            if (Files.size(path) > 0 && "# log".equals(textEditor.getBuffer().getLine(0).trim())) {
                 logStatus.put(filePath, true);
             } else {
                 logStatus.put(filePath, false);
@@ -74,7 +150,11 @@ public class Workspace implements Subject {
         }
 
         editor.setModified(false);
-        editors.put(filePath, editor);
+        Editor previous = editors.put(filePath, editor);
+        if (previous != null) {
+            // 重新加载已打开的文件：释放旧编辑器的映射和撤销日志
+            releaseBuffer(previous);
+        }
         modifiedStatus.put(filePath, false);
         
         // 重新打开文件时，按照实验要求重置本会话内的编辑时长
@@ -105,11 +185,12 @@ public class Workspace implements Subject {
             XmlEditor xmlEditor = new XmlEditor(filePath);
             // 创建默认根元素
             com.editor.editor.XmlElement root = new com.editor.editor.XmlElement("root", "root");
-            xmlEditor.setRoot(root);
-            xmlEditor.setLogEnabled(withLog);
             if (withLog) {
                 root.setAttribute("log", "true");
             }
+            // 属性要在 setRoot 之前设置，才能进入索引
+            xmlEditor.setRoot(root);
+            xmlEditor.setLogEnabled(withLog);
             editor = xmlEditor;
         } else {
             // 文本文件
@@ -120,7 +201,10 @@ public class Workspace implements Subject {
             editor = textEditor;
         }
         
-        editors.put(filePath, editor);
+        Editor previous = editors.put(filePath, editor);
+        if (previous != null) {
+            releaseBuffer(previous);
+        }
         modifiedStatus.put(filePath, true);
         logStatus.put(filePath, withLog);
         
@@ -147,6 +231,13 @@ public class Workspace implements Subject {
         }
 
         editor.save();
+        onSaved(filePath, editor);
+    }
+
+    /**
+     * 文件保存完成后更新状态并通知观察者（只在调用线程上执行）
+     */
+    private void onSaved(String filePath, Editor editor) {
         editor.setModified(false);
         modifiedStatus.put(filePath, false);
         notifyObservers(new Event("SAVE", "save " + filePath, filePath));
@@ -154,21 +245,76 @@ public class Workspace implements Subject {
 
     /**
      * 保存所有文件
+     * 多个文件时分发到有界线程池并发保存，单个文件失败不影响其他文件，
+     * 所有失败汇总后以 SaveAllException 抛出
      */
     public void saveAll() throws IOException {
+        List<String> targets = new ArrayList<>();
         for (String filePath : editors.keySet()) {
             if (modifiedStatus.getOrDefault(filePath, false)) {
-                saveFile(filePath);
+                targets.add(filePath);
             }
         }
+
+        Map<String, IOException> failures = new LinkedHashMap<>();
+        if (saveThreads <= 1 || targets.size() <= 1) {
+            for (String filePath : targets) {
+                try {
+                    saveFile(filePath);
+                } catch (IOException e) {
+                    failures.put(filePath, e);
+                }
+            }
+        } else {
+            saveConcurrently(targets, failures);
+        }
         notifyObservers(new Event("SAVE", "save all", null));
+
+        if (!failures.isEmpty()) {
+            throw new SaveAllException(failures);
+        }
+    }
+
+    private void saveConcurrently(List<String> targets, Map<String, IOException> failures) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(saveThreads, targets.size()));
+        try {
+            CompletionService<String> completion = new ExecutorCompletionService<>(executor);
+            Map<Future<String>, String> pending = new HashMap<>();
+            for (String filePath : targets) {
+                Editor editor = editors.get(filePath);
+                pending.put(completion.submit(() -> {
+                    editor.save();
+                    return filePath;
+                }), filePath);
+            }
+            // 按完成顺序处理结果，状态更新和事件通知留在调用线程
+            for (int i = 0; i < targets.size(); i++) {
+                Future<String> future = completion.take();
+                String filePath = pending.get(future);
+                try {
+                    future.get();
+                    onSaved(filePath, editors.get(filePath));
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    failures.put(filePath, cause instanceof IOException
+                            ? (IOException) cause : new IOException(cause.getMessage(), cause));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("保存被中断");
+        } finally {
+            executor.shutdown();
+        }
     }
 
     /**
      * 关闭文件
      */
     public void closeFile(String filePath) {
-        if (editors.remove(filePath) != null) {
+        Editor editor = editors.remove(filePath);
+        if (editor != null) {
+            releaseBuffer(editor);
             modifiedStatus.remove(filePath);
             logStatus.remove(filePath);
             statistics.onFileClosed(filePath);
@@ -187,6 +333,21 @@ public class Workspace implements Subject {
         }
     }
 
+    /**
+     * 释放编辑器持有的资源：撤销日志和延迟加载缓冲区的文件句柄
+     */
+    private void releaseBuffer(Editor editor) {
+        // 删除撤销历史写到磁盘的日志
+        editor.getHistory().close();
+        if (editor instanceof TextEditor && ((TextEditor) editor).getBuffer() instanceof Closeable) {
+            try {
+                ((Closeable) ((TextEditor) editor).getBuffer()).close();
+            } catch (IOException e) {
+                System.err.println("警告: 关闭文件失败 " + editor.getFilePath() + ": " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * 切换活动文件
      */
@@ -1,20 +1,79 @@
 package com.editor;
 
-import static org.junit.Assert.assertTrue;
-
+import com.editor.command.CommandParser;
+import com.editor.logging.Logger;
+import com.editor.workspace.Workspace;
 import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
- * Unit test for simple App.
+ * App命令行参数测试类
  */
-public class AppTest 
-{
-    /**
-     * Rigorous Test :-)
-     */
+public class AppTest {
+
+    @Test
+    public void testDefaultOptionsUseSyncLogger() {
+        App.Options options = App.Options.parse(new String[]{"--headless"});
+        assertTrue(options.headless);
+        Logger logger = options.createLogger();
+        assertFalse(logger.isAsync());
+        assertFalse(logger.isSyncOnSave());
+    }
+
     @Test
-    public void shouldAnswerWithTrue()
-    {
-        assertTrue( true );
+    public void testInvalidOptions() {
+        String[][] invalid = {{"--foo"}, {"--script"}, {"--log-batch", "0"}, {"--log-flush-ms", "x"}};
+        for (String[] args : invalid) {
+            try {
+                App.Options.parse(args);
+                fail("应拒绝参数: " + String.join(" ", args));
+            } catch (IllegalArgumentException expected) {
+                // 期望的异常
+            }
+        }
+    }
+
+    @Test
+    public void testAsyncLogScript() throws IOException {
+        App.Options options = App.Options.parse(
+                new String[]{"--async-log", "--log-batch", "8", "--log-flush-ms", "20", "--log-sync-on-save"});
+        Logger logger = options.createLogger();
+        assertTrue(logger.isAsync());
+        assertTrue(logger.isSyncOnSave());
+
+        Path dir = Files.createTempDirectory("app");
+        Path file = dir.resolve("script.txt");
+        Path log = dir.resolve(".script.txt.log");
+        try {
+            ScriptRunner runner = new ScriptRunner(new CommandParser(new Workspace(), logger));
+            StringBuilder script = new StringBuilder("init " + file + " with-log\n");
+            for (int i = 0; i < 100; i++) {
+                script.append("append \"line ").append(i).append("\"\n");
+            }
+            script.append("save\n");
+            int code = runner.run(new BufferedReader(new StringReader(script.toString())),
+                    new StringWriter(), new StringWriter());
+            assertEquals(ScriptRunner.EXIT_OK, code);
+
+            // 保存时等待日志落盘，不需要 closeAll 就能在文件中看到全部编辑
+            String content = new String(Files.readAllBytes(log), StandardCharsets.UTF_8);
+            assertTrue(content.startsWith("session start at "));
+            assertTrue(content.contains("append \"line 0\""));
+            assertTrue(content.contains("append \"line 99\""));
+        } finally {
+            logger.closeAll();
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(log);
+            Files.deleteIfExists(dir.resolve(".script.txt.log.idx"));
+            Files.deleteIfExists(dir);
+        }
     }
 }
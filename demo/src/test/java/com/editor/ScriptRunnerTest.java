@@ -0,0 +1,102 @@
+package com.editor;
+
+import com.editor.command.CommandParser;
+import com.editor.logging.Logger;
+import com.editor.workspace.Workspace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * ScriptRunner测试类
+ */
+public class ScriptRunnerTest {
+    private ScriptRunner runner;
+    private Path testFile;
+
+    @Before
+    public void setUp() throws IOException {
+        runner = new ScriptRunner(new CommandParser(new Workspace(), new Logger()));
+        testFile = Files.createTempFile("script", ".txt");
+        Files.write(testFile, java.util.Arrays.asList("Line 1"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(testFile);
+    }
+
+    private int run(String script, StringWriter out, StringWriter diagnostics) throws IOException {
+        return runner.run(new BufferedReader(new StringReader(script)), out, diagnostics);
+    }
+
+    @Test
+    public void testRunScript() throws IOException {
+        StringWriter out = new StringWriter();
+        StringWriter diagnostics = new StringWriter();
+        runner.setTiming(true);
+        int code = run("# 注释\nload " + testFile + "\n\nappend \"Line 2\"\nshow\n", out, diagnostics);
+        assertEquals(ScriptRunner.EXIT_OK, code);
+        assertEquals(3, runner.getExecutedCount());
+        assertFalse(out.toString().contains(">"));
+        assertTrue(out.toString().contains("2: Line 2"));
+        assertTrue(diagnostics.toString().contains("[4]"));
+        assertTrue(diagnostics.toString().contains("共3条命令，失败0条"));
+    }
+
+    @Test
+    public void testFailures() throws IOException {
+        StringWriter out = new StringWriter();
+        int code = run("load " + testFile + "\nfoo\ninsert 99:1 \"x\"\nshow", out, new StringWriter());
+        assertEquals(ScriptRunner.EXIT_FAILED, code);
+        assertEquals(2, runner.getFailedCount());
+        assertEquals(4, runner.getExecutedCount());
+
+        runner = new ScriptRunner(new CommandParser(new Workspace(), new Logger()));
+        runner.setFailFast(true);
+        code = run("foo\nload " + testFile, new StringWriter(), new StringWriter());
+        assertEquals(ScriptRunner.EXIT_FAILED, code);
+        assertEquals(1, runner.getExecutedCount());
+    }
+
+    @Test
+    public void testFlushBeforeWaitingForInput() throws IOException {
+        StringWriter sink = new StringWriter();
+        String[] seenWhileWaiting = {null};
+        // 第一次读取给出一条命令，第二次读取时记录已经写出的内容，模拟等待输入
+        java.io.Reader input = new java.io.Reader() {
+            private boolean first = true;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (first) {
+                    first = false;
+                    String script = "load " + testFile + "\n";
+                    script.getChars(0, script.length(), buffer, offset);
+                    return script.length();
+                }
+                seenWhileWaiting[0] = sink.toString();
+                return -1;
+            }
+
+            @Override
+            public boolean ready() {
+                return false;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        runner.run(new BufferedReader(input), new java.io.BufferedWriter(sink), new StringWriter());
+        assertFalse(seenWhileWaiting[0].isEmpty());
+    }
+}
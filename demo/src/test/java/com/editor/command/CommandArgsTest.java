@@ -0,0 +1,59 @@
+package com.editor.command;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * CommandArgs测试类
+ */
+public class CommandArgsTest {
+
+    @Test
+    public void testPositionAndText() {
+        CommandArgs args = new CommandArgs("insert  12:-3   \"hello world\" ", 6);
+        assertEquals(12, args.nextInt());
+        args.expect(':');
+        assertEquals(-3, args.nextInt());
+        assertEquals("hello world", args.text());
+        assertFalse(args.hasNext());
+        assertEquals("12:-3   \"hello world\"", args.raw());
+    }
+
+    @Test
+    public void testWordsAndAttributes() {
+        CommandArgs args = new CommandArgs("  root book b1 lang=\"en\" year=\"2024\" bad");
+        assertEquals("root", args.next());
+        assertEquals("book", args.next());
+        assertEquals("b1", args.next());
+        assertArrayEquals(new String[]{"lang", "en"}, args.nextAttribute());
+        assertArrayEquals(new String[]{"year", "2024"}, args.nextAttribute());
+        assertNull(args.nextAttribute());
+        assertEquals("bad", args.next());
+        assertNull(args.next());
+        assertEquals("", args.text());
+    }
+
+    @Test
+    public void testInvalidNumbers() {
+        try {
+            new CommandArgs("x:1").nextInt();
+            fail("非数字应抛出异常");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("x:1"));
+        }
+        try {
+            new CommandArgs("99999999999").nextInt();
+            fail("超出范围应抛出异常");
+        } catch (IllegalArgumentException expected) {
+            // 预期
+        }
+        try {
+            CommandArgs args = new CommandArgs("3 4");
+            args.nextInt();
+            args.expect(':');
+            fail("缺少冒号应抛出异常");
+        } catch (IllegalArgumentException expected) {
+            // 预期
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.editor.command;
+
+import com.editor.editor.TextEditor;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * CommandHistory测试类
+ */
+public class CommandHistoryTest {
+
+    @Test
+    public void testCoalescing() {
+        TextEditor editor = new TextEditor("test.txt");
+        editor.setLines(Arrays.asList("ab"));
+        editor.executeCommand(new InsertCommand(editor, 1, 3, "c"));
+        editor.executeCommand(new InsertCommand(editor, 1, 4, "de"));
+        editor.executeCommand(new InsertCommand(editor, 1, 6, "f"));
+        editor.executeCommand(new AppendCommand(editor, "x"));
+        editor.executeCommand(new AppendCommand(editor, "y", true));
+        assertEquals(Arrays.asList("abcdef", "x", "y"), editor.getLines());
+
+        assertTrue(editor.undo());
+        assertEquals(Arrays.asList("abcdef"), editor.getLines());
+        assertTrue(editor.undo());
+        assertEquals(Arrays.asList("ab"), editor.getLines());
+        assertFalse(editor.canUndo());
+        assertTrue(editor.redo());
+        assertEquals(Arrays.asList("abcdef"), editor.getLines());
+
+        // 不相邻的插入不合并
+        editor.executeCommand(new InsertCommand(editor, 1, 1, "0"));
+        assertTrue(editor.undo());
+        assertEquals(Arrays.asList("abcdef"), editor.getLines());
+    }
+
+    @Test
+    public void testMultiLineInsertNotMerged() {
+        TextEditor editor = new TextEditor("test.txt");
+        editor.setLines(Arrays.asList("ab"));
+        editor.executeCommand(new InsertCommand(editor, 1, 2, "x\ny"));
+        editor.executeCommand(new InsertCommand(editor, 2, 2, "z"));
+        assertEquals(Arrays.asList("ax", "yzb"), editor.getLines());
+        assertTrue(editor.undo());
+        assertEquals(Arrays.asList("ax", "yb"), editor.getLines());
+    }
+
+    @Test
+    public void testAppendUndoGranularity() {
+        TextEditor editor = new TextEditor("test.txt");
+        // 普通追加每条单独撤销
+        editor.executeCommand(new AppendCommand(editor, "a"));
+        editor.executeCommand(new AppendCommand(editor, "b"));
+        assertTrue(editor.undo());
+        assertEquals(Arrays.asList("a"), editor.getLines());
+        assertTrue(editor.undo());
+        assertEquals(0, editor.getLineCount());
+
+        // 可合并的追加最多合并 MAX_MERGED_LINES 行
+        int total = AppendCommand.MAX_MERGED_LINES + 10;
+        for (int i = 0; i < total; i++) {
+            editor.executeCommand(new AppendCommand(editor, "line " + i, true));
+        }
+        assertTrue(editor.undo());
+        assertEquals(AppendCommand.MAX_MERGED_LINES, editor.getLineCount());
+        assertTrue(editor.undo());
+        assertEquals(0, editor.getLineCount());
+        assertFalse(editor.canUndo());
+    }
+
+    @Test
+    public void testSpillToDisk() {
+        TextEditor editor = new TextEditor("test.txt");
+        List<String> original = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            original.add("line " + i);
+        }
+        editor.setLines(original);
+        CommandHistory history = editor.getHistory();
+        history.setMemoryBudget(1024);
+        history.setCoalescing(false);
+
+        for (int i = 0; i < 200; i++) {
+            int line = 1 + i % 20;
+            switch (i % 3) {
+                case 0:
+                    editor.executeCommand(new InsertCommand(editor, line, 1, "abc" + i));
+                    break;
+                case 1:
+                    editor.executeCommand(new DeleteCommand(editor, line, 1, 2));
+                    break;
+                default:
+                    editor.executeCommand(new ReplaceCommand(editor, line, 2, 1, "xyz"));
+                    break;
+            }
+            assertTrue(history.getMemoryUsed() <= 1024);
+        }
+        assertTrue(history.getSpilledCount() > 0);
+
+        int undone = 0;
+        while (editor.undo()) {
+            undone++;
+        }
+        assertEquals(200, undone);
+        assertEquals(original, editor.getLines());
+        assertEquals(0, history.getSpilledCount());
+        history.close();
+    }
+
+    @Test
+    public void testSpillMultiLineEdits() {
+        TextEditor editor = new TextEditor("test.txt");
+        List<String> original = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            original.add("line " + i);
+        }
+        editor.setLines(original);
+        CommandHistory history = editor.getHistory();
+        history.setMemoryBudget(512);
+
+        for (int i = 0; i < 60; i++) {
+            int line = 1 + i % 10;
+            switch (i % 4) {
+                case 0:
+                    editor.executeCommand(new InsertCommand(editor, line, 3, "a" + i + "\nb\nc"));
+                    break;
+                case 1:
+                    editor.executeCommand(new AppendCommand(editor, "x" + i + "\ny", true));
+                    break;
+                case 2:
+                    editor.executeCommand(new ReplaceCommand(editor, line, 2, 3, "p\nq" + i));
+                    break;
+                default:
+                    editor.executeCommand(new InsertCommand(editor, line, 1, "z\n"));
+                    editor.executeCommand(new InsertCommand(editor, line, 2, "w"));
+                    break;
+            }
+        }
+        assertTrue(history.getSpilledCount() > 0);
+
+        while (editor.undo()) {
+            // 撤销全部，包括从日志读回的命令
+        }
+        assertEquals(original, editor.getLines());
+        history.close();
+    }
+
+    @Test
+    public void testDropWithoutCodec() {
+        TextEditor editor = new TextEditor("test.txt");
+        CommandHistory history = editor.getHistory();
+        history.setCodec(null);
+        history.setCoalescing(false);
+        history.setMemoryBudget(500);
+        for (int i = 0; i < 100; i++) {
+            editor.executeCommand(new InsertCommand(editor, i + 1, 1, "line"));
+        }
+        int undone = 0;
+        while (editor.undo()) {
+            undone++;
+        }
+        assertTrue(undone > 0 && undone < 100);
+        assertEquals(100 - undone, editor.getLineCount());
+    }
+}
@@ -62,5 +62,150 @@ public class CommandParserTest {
         String undoResult = parser.execute("undo");
         assertTrue(undoResult.contains("撤销"));
     }
-}
 
+    @Test
+    public void testSpellDictCommand() throws IOException {
+        Path dict = Files.createTempFile("dict", ".txt");
+        try {
+            Files.write(dict, java.util.Arrays.asList("line", "lion"));
+            workspace.loadFile(testFile.toString());
+            assertTrue(parser.execute("spell-dict " + dict).contains("2个单词"));
+            parser.execute("append \"lnie\"");
+            assertTrue(parser.execute("spell-check").contains("\"lnie\" -> 建议: line"));
+        } finally {
+            Files.deleteIfExists(dict);
+        }
+    }
+
+    @Test
+    public void testSpellCheckMax() throws IOException {
+        workspace.loadFile(testFile.toString());
+        parser.execute("append \"helo wrold tiem\"");
+        String all = parser.execute("spell-check");
+        assertTrue(all.contains("tiem"));
+        String first = parser.execute("spell-check --max 3");
+        assertTrue(first.contains("wrold") && !first.contains("tiem"));
+        assertTrue(first.contains("已达到显示上限"));
+        // 恰好有 N 个错误时检查是完整的
+        String exact = parser.execute("spell-check --max 4");
+        assertTrue(exact.contains("tiem") && !exact.contains("已达到显示上限"));
+
+        java.util.List<String> printed = new java.util.ArrayList<>();
+        parser.setOutput(printed::add);
+        assertEquals("", parser.execute("spell-check " + testFile));
+        assertEquals(5, printed.size()); // 标题和4个错误
+    }
+
+    @Test
+    public void testSpellCheckThreads() throws IOException {
+        workspace.loadFile(testFile.toString());
+        parser.execute("append \"helo wrold\"");
+        assertTrue(parser.execute("spell-check --threads 2").contains("wrold"));
+        assertEquals(2, parser.getSpellCheckThreads());
+        assertTrue(parser.execute("spell-check").contains("wrold"));
+        assertEquals(2, parser.getSpellCheckThreads());
+        assertEquals("错误: 线程数必须大于0", parser.execute("spell-check --threads 0"));
+        assertEquals("错误: --threads 缺少参数", parser.execute("spell-check --threads"));
+    }
+
+    @Test
+    public void testBatchCommand() throws IOException {
+        workspace.loadFile(testFile.toString());
+        com.editor.editor.TextEditor editor = (com.editor.editor.TextEditor) workspace.getActiveEditor();
+        int[] events = new int[1];
+        editor.attach(event -> events[0]++);
+
+        String result = parser.execute("batch\n# 注释\nappend \"a\"\nappend \"b\"\ninsert 1:1 \"x\"\ndelete 2:1 1");
+        assertTrue(result.contains("共4条命令"));
+        assertEquals(java.util.Arrays.asList("xLine 1", "", "b"), editor.getLines());
+        assertEquals(1, events[0]);
+
+        // 整批一次撤销、一次重做
+        assertTrue(editor.undo());
+        assertEquals(java.util.Arrays.asList("Line 1"), editor.getLines());
+        assertTrue(editor.redo());
+        assertEquals(java.util.Arrays.asList("xLine 1", "", "b"), editor.getLines());
+
+        // 失败时整批回滚
+        result = parser.execute("batch\nappend \"c\"\ninsert 99:1 \"y\"");
+        assertTrue(result.startsWith("错误: 第2行"));
+        assertEquals(java.util.Arrays.asList("xLine 1", "", "b"), editor.getLines());
+        assertTrue(parser.execute("batch\nappend \"z\"\nundo").contains("不支持命令 undo"));
+        assertEquals(3, editor.getLineCount());
+
+        Path script = Files.createTempFile("batch", ".txt");
+        Files.write(script, java.util.Arrays.asList("replace 1:1 1 \"y\"", "append \"end\""));
+        assertTrue(parser.execute("batch " + script).contains("共2条命令"));
+        assertEquals(java.util.Arrays.asList("yLine 1", "", "b", "end"), editor.getLines());
+        Files.delete(script);
+    }
+
+    @Test
+    public void testRegisterCommand() {
+        parser.register("echo", args -> args.text());
+        assertTrue(parser.getCommandNames().contains("echo"));
+        assertEquals("hi there", parser.execute("  echo  \"hi there\""));
+        assertEquals("未知命令: nope", parser.execute("nope 1"));
+        try {
+            parser.register("bad name", args -> "");
+            fail("命令名包含空白应抛出异常");
+        } catch (IllegalArgumentException expected) {
+            // 预期
+        }
+    }
+
+    @Test
+    public void testFindCommand() throws IOException {
+        Path xml = Files.createTempFile("find", ".xml");
+        try {
+            Files.write(xml, java.util.Arrays.asList("<lib id=\"root\"><book id=\"b1\" lang=\"en\"/></lib>"));
+            workspace.loadFile(xml.toString());
+            parser.execute("append-child root book b2 lang=\"zh\"");
+            parser.execute("append-child root book b3 lang=\"zh\"");
+            String result = parser.execute("find book lang=\"zh\"");
+            assertTrue(result.contains("book [id=\"b2\"]") && result.contains("book [id=\"b3\"]"));
+            assertTrue(result.contains("共找到2个元素"));
+            assertTrue(parser.execute("find lang=\"zh\" --max 1").contains("只显示前1个"));
+            assertEquals("未找到匹配的元素", parser.execute("find lang=\"fr\""));
+            parser.execute("undo");
+            assertTrue(parser.execute("find book").contains("共找到2个元素"));
+            assertTrue(parser.execute("query --max 1 /lib/book").contains("已达到显示上限"));
+            assertTrue(parser.execute("query --max 2 /lib/book").contains("共找到2个元素"));
+            assertTrue(parser.execute("query /lib/book[last()]").contains("book [id=\"b2\"]"));
+            assertTrue(parser.execute("query /lib/[1]").startsWith("错误: 查询语法错误"));
+        } finally {
+            Files.deleteIfExists(xml);
+        }
+    }
+
+    @Test
+    public void testReadOnlyLargeXml() throws IOException {
+        Path xml = Files.createTempFile("large", ".xml");
+        try {
+            Files.write(xml, java.util.Arrays.asList("<lib id=\"root\">"
+                    + "<book id=\"b1\" lang=\"en\"><title id=\"t1\">wrold</title></book>"
+                    + "<book id=\"b2\" lang=\"zh\"/></lib>"));
+            // 默认加载仍然可以编辑，只读的紧凑模型需要显式指定
+            parser.execute("load " + xml);
+            assertTrue(workspace.getActiveEditor() instanceof com.editor.editor.XmlEditor);
+            parser.execute("close " + xml);
+            assertTrue(parser.execute("load --compact " + xml).contains("已加载"));
+            assertTrue(workspace.getActiveEditor() instanceof com.editor.editor.ReadOnlyXmlEditor);
+
+            String tree = parser.execute("xml-tree");
+            assertTrue(tree.startsWith("lib [id=\"root\"]\n    ├── book [id=\"b1\", lang=\"en\"]\n"));
+            assertTrue(tree.contains("    │   └── title [id=\"t1\"]\n    │       └── \"wrold\"\n    └── book [id=\"b2\""));
+            assertTrue(parser.execute("query //book[@lang=\"zh\"]").contains("book [id=\"b2\"]"));
+            assertTrue(parser.execute("query --max 1 //book").contains("已达到显示上限"));
+            assertTrue(parser.execute("find book").contains("共找到2个元素"));
+            assertTrue(parser.execute("spell-check").contains("元素 t1: \"wrold\""));
+            assertTrue(parser.execute("spell-check").contains("元素 t1: \"wrold\""));
+
+            assertTrue(parser.execute("append-child root book b3").startsWith("错误: 文件以只读方式打开"));
+            assertTrue(parser.execute("delete-element b1").startsWith("错误: 文件以只读方式打开"));
+            assertTrue(parser.execute("find book").contains("共找到2个元素"));
+        } finally {
+            Files.deleteIfExists(xml);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.editor.editor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * MappedTextBuffer测试类
+ */
+public class MappedTextBufferTest {
+    private static final int LINES = 200_000;
+
+    private Path source;
+    private Path target;
+    private List<String> lines;
+
+    @Before
+    public void setUp() throws IOException {
+        source = Files.createTempFile("mapped", ".txt");
+        target = Files.createTempFile("mapped-out", ".txt");
+        lines = new ArrayList<>(LINES);
+        for (int i = 0; i < LINES; i++) {
+            lines.add("line " + i);
+        }
+        Files.write(source, lines);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(source);
+        Files.deleteIfExists(target);
+    }
+
+    @Test
+    public void testEditsNearStartDoNotNeedLineCount() throws IOException {
+        try (MappedTextBuffer buffer = MappedTextBuffer.open(source)) {
+            TextEditor editor = new TextEditor(source.toString(), buffer);
+            editor.insert(2, 1, "> ");
+            editor.delete(1, 1, 5);
+            editor.replace(3, 1, 4, "LINE");
+            assertEquals("0", buffer.getLine(0));
+            assertEquals("> line 1", buffer.getLine(1));
+            assertEquals("LINE 2", buffer.getLine(2));
+            assertTrue(buffer.hasLine(LINES - 1));
+            assertFalse(buffer.hasLine(LINES));
+            assertEquals(LINES, buffer.getLineCount());
+        }
+    }
+
+    @Test
+    public void testRandomEditsMatchLineList() throws IOException {
+        LineListBuffer expected = new LineListBuffer(lines);
+        Random random = new Random(42);
+        try (MappedTextBuffer buffer = MappedTextBuffer.open(source)) {
+            for (int i = 0; i < 2000; i++) {
+                int count = expected.getLineCount();
+                int index = random.nextInt(count);
+                switch (random.nextInt(4)) {
+                    case 0:
+                        expected.insertLine(index, "new " + i);
+                        buffer.insertLine(index, "new " + i);
+                        break;
+                    case 1:
+                        expected.removeLine(index);
+                        buffer.removeLine(index);
+                        break;
+                    case 2:
+                        expected.setLine(index, "set\n" + i);
+                        buffer.setLine(index, "set\n" + i);
+                        break;
+                    default:
+                        expected.insert(index, 0, "+");
+                        buffer.insert(index, 0, "+");
+                        break;
+                }
+            }
+            buffer.insertLine(buffer.getLineCount(), "last");
+            expected.insertLine(expected.getLineCount(), "last");
+            assertEquals(expected.getLines(), buffer.getLines());
+
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                buffer.writeTo(out);
+            }
+        }
+        assertEquals(expected.getLines(), Files.readAllLines(target));
+    }
+
+    @Test
+    public void testSaveKeepsLineEndingsAndRemaps() throws IOException {
+        Files.write(source, "a\r\nb\r\nc".getBytes(StandardCharsets.UTF_8));
+        try (MappedTextBuffer buffer = MappedTextBuffer.open(source)) {
+            TextEditor editor = new TextEditor(source.toString(), buffer);
+            editor.insert(2, 2, "!");
+            editor.append("d");
+            editor.save();
+            assertEquals("a\r\nb!\r\nc\r\nd\r\n", new String(Files.readAllBytes(source), StandardCharsets.UTF_8));
+
+            // 保存后映射的是新文件，可以继续编辑和保存
+            assertEquals("b!", buffer.getLine(1));
+            editor.delete(1, 1, 1);
+            editor.save();
+            assertEquals("\r\nb!\r\nc\r\nd\r\n", new String(Files.readAllBytes(source), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testRandomAndBackwardReads() throws IOException {
+        try (MappedTextBuffer buffer = MappedTextBuffer.open(source)) {
+            Random random = new Random(7);
+            for (int i = 0; i < 2000; i++) {
+                int line = random.nextInt(LINES);
+                assertEquals(lines.get(line), buffer.getLine(line));
+            }
+            // 倒序读取时上次位置不可用，必须回到检查点重新定位
+            for (int line = 200; line >= 0; line--) {
+                assertEquals(lines.get(line), buffer.getLine(line));
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCloseDuringIndexDoesNotHang() throws IOException {
+        MappedTextBuffer buffer = MappedTextBuffer.open(source);
+        buffer.close();
+        try {
+            // 索引若在关闭前已完成则正常返回，否则应抛出而不是一直等待
+            assertEquals(LINES, buffer.getLineCount());
+        } catch (IllegalStateException expected) {
+            assertNotNull(expected.getCause());
+        }
+    }
+}
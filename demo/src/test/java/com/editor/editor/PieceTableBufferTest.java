@@ -0,0 +1,124 @@
+package com.editor.editor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * PieceTableBuffer测试类
+ */
+public class PieceTableBufferTest {
+
+    @Test
+    public void testEmptyAndSingleEmptyLine() {
+        PieceTableBuffer buffer = new PieceTableBuffer();
+        assertEquals(0, buffer.getLineCount());
+        buffer.appendLine("");
+        assertEquals(1, buffer.getLineCount());
+        assertEquals("", buffer.getLine(0));
+        buffer.removeLine(0);
+        assertEquals(0, buffer.getLineCount());
+    }
+
+    @Test
+    public void testInsertDeleteWithinLine() {
+        PieceTableBuffer buffer = new PieceTableBuffer(Arrays.asList("Hello", "World"));
+        buffer.insert(0, 5, " there");
+        assertEquals("Hello there", buffer.getLine(0));
+        buffer.delete(1, 0, 2);
+        assertEquals("rld", buffer.getLine(1));
+        assertEquals("the", buffer.getText(0, 6, 3));
+        assertEquals(11, buffer.getLineLength(0));
+    }
+
+    @Test
+    public void testLineOperations() {
+        PieceTableBuffer buffer = new PieceTableBuffer(Arrays.asList("a", "b", "c"));
+        buffer.insertLine(1, "x");
+        buffer.appendLine("d");
+        assertEquals(Arrays.asList("a", "x", "b", "c", "d"), buffer.getLines());
+        buffer.removeLine(4);
+        buffer.removeLine(0);
+        buffer.setLine(1, "y");
+        assertEquals(Arrays.asList("x", "y", "c"), buffer.getLines());
+    }
+
+    @Test
+    public void testRandomEditsMatchLineList() {
+        Random random = new Random(42);
+        PieceTableBuffer pieces = new PieceTableBuffer(Arrays.asList("first line", "second", ""));
+        LineListBuffer reference = new LineListBuffer(Arrays.asList("first line", "second", ""));
+        for (int i = 0; i < 2000; i++) {
+            int count = reference.getLineCount();
+            int op = random.nextInt(5);
+            if (count == 0 || op == 0) {
+                int index = random.nextInt(count + 1);
+                String text = "L" + i;
+                pieces.insertLine(index, text);
+                reference.insertLine(index, text);
+            } else if (op == 1 && count > 1) {
+                int index = random.nextInt(count);
+                pieces.removeLine(index);
+                reference.removeLine(index);
+            } else if (op == 2) {
+                int index = random.nextInt(count);
+                int len = reference.getLineLength(index);
+                int col = random.nextInt(len + 1);
+                int delLen = random.nextInt(4);
+                pieces.delete(index, col, delLen);
+                reference.delete(index, col, delLen);
+            } else {
+                int index = random.nextInt(count);
+                int col = random.nextInt(reference.getLineLength(index) + 1);
+                String text = Integer.toString(i, 36);
+                pieces.insert(index, col, text);
+                reference.insert(index, col, text);
+            }
+            assertEquals(reference.getLineCount(), pieces.getLineCount());
+        }
+        assertEquals(reference.getLines(), pieces.getLines());
+        for (int i = 0; i < reference.getLineCount(); i++) {
+            assertEquals(reference.getLine(i), pieces.getLine(i));
+        }
+    }
+
+    @Test
+    public void testSnapshotsAreIndependent() {
+        Random random = new Random(7);
+        PieceTableBuffer buffer = new PieceTableBuffer(Arrays.asList("alpha", "beta", "gamma"));
+        List<TextBuffer.Snapshot> snapshots = new ArrayList<>();
+        List<List<String>> expected = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            snapshots.add(buffer.snapshot());
+            expected.add(buffer.getLines());
+            int index = random.nextInt(buffer.getLineCount());
+            if (i % 3 == 0) {
+                buffer.insertLine(index, "L" + i);
+            } else if (i % 3 == 1) {
+                buffer.delete(index, 0, 2);
+            } else {
+                buffer.insert(index, random.nextInt(buffer.getLineLength(index) + 1), "x" + i);
+            }
+        }
+        List<String> last = buffer.getLines();
+        TextBuffer.Snapshot latest = buffer.snapshot();
+        for (int i = snapshots.size() - 1; i >= 0; i -= 37) {
+            assertTrue(buffer.restore(snapshots.get(i)));
+            assertEquals(expected.get(i), buffer.getLines());
+        }
+        assertTrue(buffer.restore(latest));
+        assertEquals(last, buffer.getLines());
+
+        // 从快照继续编辑不影响其他快照
+        buffer.restore(snapshots.get(0));
+        buffer.appendLine("branch");
+        buffer.restore(latest);
+        assertEquals(last, buffer.getLines());
+
+        assertFalse(new PieceTableBuffer().restore(latest));
+    }
+}
@@ -0,0 +1,53 @@
+package com.editor.editor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * TextBuffer 各实现共同遵守的约定
+ */
+@RunWith(Parameterized.class)
+public class TextBufferTest {
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> implementations() {
+        Function<List<String>, TextBuffer> pieces = PieceTableBuffer::new;
+        Function<List<String>, TextBuffer> lines = LineListBuffer::new;
+        return Arrays.asList(
+                new Object[]{"PieceTableBuffer", pieces},
+                new Object[]{"LineListBuffer", lines});
+    }
+
+    private final Function<List<String>, TextBuffer> factory;
+
+    public TextBufferTest(String name, Function<List<String>, TextBuffer> factory) {
+        this.factory = factory;
+    }
+
+    @Test
+    public void testNewlineSplitsLines() {
+        TextBuffer buffer = factory.apply(Arrays.asList("ab", "cd"));
+        buffer.insert(0, 1, "x\ny");
+        assertEquals(Arrays.asList("ax", "yb", "cd"), buffer.getLines());
+
+        buffer.insertLine(3, "e\nf");
+        assertEquals(Arrays.asList("ax", "yb", "cd", "e", "f"), buffer.getLines());
+
+        buffer.setLine(0, "1\n2\n");
+        assertEquals(Arrays.asList("1", "2", "", "yb", "cd", "e", "f"), buffer.getLines());
+        assertEquals(7, buffer.getLineCount());
+        assertEquals("", buffer.getLine(2));
+    }
+
+    @Test
+    public void testConstructorSplitsLines() {
+        TextBuffer buffer = factory.apply(Arrays.asList("a\nb", "c"));
+        assertEquals(Arrays.asList("a", "b", "c"), buffer.getLines());
+    }
+}
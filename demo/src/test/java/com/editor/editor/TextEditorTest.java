@@ -1,6 +1,8 @@
 package com.editor.editor;
 
 import com.editor.command.AppendCommand;
+import com.editor.command.DeleteCommand;
+import com.editor.command.InsertCommand;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -55,6 +57,22 @@ public class TextEditorTest {
         assertTrue(result.contains("2: Line 2"));
     }
 
+    @Test
+    public void testSaveReplacesFileAtomically() throws Exception {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("editor");
+        java.nio.file.Path file = dir.resolve("save.txt");
+        java.nio.file.Files.write(file, java.util.Arrays.asList("old"));
+        TextEditor fileEditor = new TextEditor(file.toString());
+        fileEditor.append("Line 1");
+        fileEditor.append("Line 2");
+        fileEditor.save();
+        assertEquals(java.util.Arrays.asList("Line 1", "Line 2"), java.nio.file.Files.readAllLines(file));
+        assertFalse(fileEditor.isModified());
+        try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
     @Test
     public void testUndoRedo() {
         editor.append("Hello");
@@ -73,5 +91,113 @@ public class TextEditorTest {
         assertEquals("Hello", editor.getLines().get(0));
         assertEquals(" World", editor.getLines().get(1));
     }
-}
 
+    @Test
+    public void testRevertToVersion() {
+        editor.executeCommand(new AppendCommand(editor, "one"));
+        editor.executeCommand(new InsertCommand(editor, 1, 4, " two"));
+        editor.executeCommand(new DeleteCommand(editor, 1, 1, 4));
+        assertEquals(java.util.Arrays.asList("two"), editor.getLines());
+        assertEquals(3, editor.getVersions().get(editor.getVersions().size() - 1).getNumber());
+        assertEquals("insert", editor.getVersion(2).getDescription());
+
+        editor.revertTo(1);
+        assertEquals(java.util.Arrays.asList("one"), editor.getLines());
+        editor.revertTo(0);
+        assertEquals(0, editor.getLineCount());
+
+        // 回到版本也可以撤销
+        assertTrue(editor.undo());
+        assertEquals(java.util.Arrays.asList("one"), editor.getLines());
+        assertTrue(editor.undo());
+        assertEquals(java.util.Arrays.asList("two"), editor.getLines());
+
+        assertEquals(editor.getVersions().get(editor.getVersions().size() - 1).getNumber(),
+                editor.revertToTime(System.currentTimeMillis()));
+        try {
+            editor.revertTo(100);
+            fail("不存在的版本应抛出异常");
+        } catch (IllegalArgumentException expected) {
+            // 预期
+        }
+    }
+
+    @Test
+    public void testVersionsDropOldest() {
+        int total = TextEditor.MAX_VERSIONS + 50;
+        for (int i = 0; i < total; i++) {
+            editor.executeCommand(new AppendCommand(editor, "line " + i));
+        }
+        java.util.List<Version> versions = editor.getVersions();
+        assertEquals(TextEditor.MAX_VERSIONS, versions.size());
+        // 版本0是打开时的版本，之后每条命令一个版本
+        assertEquals(total - TextEditor.MAX_VERSIONS + 1, versions.get(0).getNumber());
+        assertEquals(total, versions.get(versions.size() - 1).getNumber());
+        assertNull(editor.getVersion(total - TextEditor.MAX_VERSIONS));
+        assertEquals("append", editor.getVersion(total).getDescription());
+
+        editor.revertTo(total - 10);
+        assertEquals(total - 10, editor.getLineCount());
+    }
+
+    @Test
+    public void testBatchRestoresSnapshot() {
+        editor.setLines(java.util.Arrays.asList("a", "b"));
+        editor.setModified(false);
+        java.util.List<String> original = editor.getLines();
+
+        // 中止批量时整体恢复快照，不逐条撤销
+        editor.beginBatch();
+        for (int i = 0; i < 1000; i++) {
+            editor.executeCommand(new NoTextUndo(editor, i));
+        }
+        editor.abortBatch();
+        assertEquals(original, editor.getLines());
+        assertFalse(editor.isModified());
+
+        editor.beginBatch();
+        for (int i = 0; i < 1000; i++) {
+            editor.executeCommand(new NoTextUndo(editor, i));
+        }
+        editor.endBatch();
+        java.util.List<String> edited = editor.getLines();
+        assertEquals(1002, edited.size());
+        assertTrue(editor.undo());
+        assertEquals(original, editor.getLines());
+        assertTrue(editor.redo());
+        assertEquals(edited, editor.getLines());
+    }
+
+    /**
+     * 只能通过快照撤销的命令
+     */
+    private static class NoTextUndo implements com.editor.command.Command {
+        private final TextEditor editor;
+        private final int n;
+
+        NoTextUndo(TextEditor editor, int n) {
+            this.editor = editor;
+            this.n = n;
+        }
+
+        @Override
+        public void execute() {
+            editor.append("line " + n);
+        }
+
+        @Override
+        public void undo() {
+            fail("批量应当整体恢复快照");
+        }
+
+        @Override
+        public String getName() {
+            return "append";
+        }
+
+        @Override
+        public boolean canUndo() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.editor.editor;
+
+import com.editor.command.CommandParser;
+import com.editor.command.XmlDeleteElementCommand;
+import com.editor.logging.Logger;
+import com.editor.spellcheck.SpellCheckCache;
+import com.editor.spellcheck.SymSpellChecker;
+import com.editor.spellcheck.XmlSpellError;
+import com.editor.workspace.Workspace;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 嵌套10万层的文档：解析、索引、序列化、树形显示和拼写检查都不能栈溢出
+ */
+public class XmlDeepNestingTest {
+    private static final int DEPTH = 100_000;
+    // 缩进和树形前缀都与深度成正比，测试中限制层数，输出大小才与元素个数成正比
+    private static final int MAX_INDENT = 64;
+    private static String xml;
+
+    @BeforeClass
+    public static void generate() {
+        xml = nested(DEPTH);
+    }
+
+    private static String nested(int depth) {
+        StringBuilder sb = new StringBuilder(depth * 24);
+        for (int i = 0; i < depth; i++) {
+            sb.append("<e id=\"e").append(i).append("\">");
+        }
+        sb.append("wrold");
+        for (int i = 0; i < depth; i++) {
+            sb.append("</e>");
+        }
+        return sb.toString();
+    }
+
+    private static int depthOf(XmlElement element) {
+        int depth = 0;
+        while (element.getParent() != null) {
+            element = element.getParent();
+            depth++;
+        }
+        return depth;
+    }
+
+    @Test
+    public void testParseIndexAndSerialize() throws Exception {
+        XmlEditor editor = new XmlEditor("deep.xml");
+        editor.setRoot(new XmlParser(xml).parse());
+        XmlElement deepest = editor.getElementById("e" + (DEPTH - 1));
+        assertEquals(DEPTH - 1, depthOf(deepest));
+        assertEquals("wrold", deepest.getTextContent());
+        assertEquals(DEPTH, editor.findByTag("e").size());
+
+        // 删除一半深度的子树并撤销
+        editor.executeCommand(new XmlDeleteElementCommand(editor, editor.getElementById("e50000")));
+        assertNull(editor.getElementById("e99999"));
+        assertEquals(50_000, editor.findByTag("e").size());
+        assertTrue(editor.undo());
+        assertSame(deepest, editor.getElementById("e99999"));
+
+        List<XmlElement> found = editor.select("//e[@id=\"e99998\"]/e").collect(java.util.stream.Collectors.toList());
+        assertEquals(1, found.size());
+        assertSame(deepest, found.get(0));
+        assertEquals(1, XmlQuery.compile("//e[text()=\"wrold\"]").select(editor.getRoot()).count());
+
+        StringWriter serialized = new StringWriter();
+        try (XmlWriter writer = new XmlWriter(serialized)) {
+            writer.setMaxIndent(MAX_INDENT);
+            writer.writeDocument(editor.getRoot());
+        }
+        XmlElement reparsed = new XmlParser(serialized.toString()).parse();
+        assertEquals(1, reparsed.getChildCount());
+        int[] count = new int[1];
+        reparsed.accept((element, depth) -> {
+            count[0]++;
+            return true;
+        });
+        assertEquals(DEPTH, count[0]);
+
+        SpellCheckCache cache = new SpellCheckCache();
+        List<XmlSpellError> errors = cache.check(editor.getRoot(), new SymSpellChecker());
+        assertEquals(1, errors.size());
+        assertEquals("e99999", errors.get(0).getElementId());
+    }
+
+    @Test
+    public void testCompactDocument() throws Exception {
+        XmlDocument document = XmlDocument.parse(xml);
+        assertEquals(DEPTH, document.size());
+        int deepest = document.findById("e" + (DEPTH - 1));
+        assertEquals("wrold", document.getTextContent(deepest));
+
+        StringWriter out = new StringWriter();
+        try (XmlWriter writer = new XmlWriter(out)) {
+            writer.setMaxIndent(MAX_INDENT);
+            writer.writeDocument(document);
+        }
+        assertEquals(DEPTH, XmlDocument.parse(out.toString()).size());
+
+        XmlElement element = document.toElement(document.getRoot());
+        while (element.hasChildren()) {
+            element = element.getChildren().get(0);
+        }
+        assertEquals("e99999", element.getId());
+        assertEquals(DEPTH - 1, depthOf(element));
+    }
+
+    @Test
+    public void testTreeCommand() throws Exception {
+        Path file = Files.createTempFile("deep", ".xml");
+        try {
+            Files.write(file, xml.getBytes(StandardCharsets.UTF_8));
+            Workspace workspace = new Workspace();
+            workspace.loadFile(file.toString());
+            String tree = new CommandParser(workspace, new Logger()).execute("xml-tree --max-depth 32");
+            assertTrue(tree.contains("[第99999层] e [id=\"e99999\"]"));
+            assertTrue(tree.length() < DEPTH * 200);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testDefaultOutputIndentsEveryLevel() throws Exception {
+        // 默认上限之内，保存和 xml-tree 的输出都逐层缩进
+        int depth = 200;
+        XmlEditor editor = new XmlEditor("deep.xml");
+        editor.setRoot(new XmlParser(nested(depth)).parse());
+        String[] lines = editor.toXmlString().split("\n");
+        assertEquals(" ".repeat(2 * (depth - 1)) + "<e id=\"e199\">wrold</e>", lines[depth]);
+
+        Path file = Files.createTempFile("deep", ".xml");
+        try {
+            Files.write(file, nested(depth).getBytes(StandardCharsets.UTF_8));
+            Workspace workspace = new Workspace();
+            workspace.loadFile(file.toString());
+            String tree = new CommandParser(workspace, new Logger()).execute("xml-tree");
+            assertFalse(tree.contains("[第"));
+            assertTrue(tree.contains("\n" + " ".repeat(4 * (depth - 1)) + "└── e [id=\"e199\"]\n"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.editor.editor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * XmlDocument测试类
+ */
+public class XmlDocumentTest {
+    private static final String XML = "<lib id=\"root\" name=\"城市&amp;图书馆\">"
+            + "<book id=\"b1\" lang=\"en\"><title id=\"t1\">A &lt;B&gt;</title><note id=\"n1\"/></book>"
+            + "<book id=\"b2\"><title id=\"t2\">C</title></book>"
+            + "</lib>";
+
+    @Test
+    public void testNavigationAndAttributes() {
+        XmlDocument document = XmlDocument.parse(XML);
+        assertEquals(6, document.size());
+        int root = document.getRoot();
+        assertEquals("lib", document.getTagName(root));
+        assertEquals("城市&图书馆", document.getAttribute(root, "name"));
+        assertEquals("id", document.getAttributeName(root, 0));
+
+        int b1 = document.getFirstChild(root);
+        assertEquals("b1", document.getId(b1));
+        assertEquals("en", document.getAttribute(b1, "lang"));
+        assertEquals(root, document.getParent(b1));
+        int t1 = document.getFirstChild(b1);
+        assertEquals("A <B>", document.getTextContent(t1));
+        assertEquals(XmlDocument.NONE, document.getNextSibling(document.getNextSibling(t1)));
+
+        assertEquals("b2", document.getId(document.findById("b2")));
+        assertEquals(XmlDocument.NONE, document.findById("b3"));
+        XmlDocument.Node node = document.node(document.findById("t2"));
+        assertEquals("C", node.getTextContent());
+        assertEquals(node.getParent(), document.node(document.getNextSibling(b1)));
+        assertEquals(2, document.node(root).getChildren().size());
+    }
+
+    @Test
+    public void testRoundTripWithElements() throws Exception {
+        XmlDocument document = XmlDocument.parse(XML);
+        XmlElement root = document.toElement(document.getRoot());
+        assertEquals(2, root.getChildCount());
+        assertEquals("A <B>", root.getChildren().get(0).getChildren().get(0).getTextContent());
+
+        // 紧凑模型写出的文本重新解析后与原文档一致
+        StringWriter out = new StringWriter();
+        try (XmlWriter writer = new XmlWriter(out)) {
+            writer.writeDocument(document);
+        }
+        XmlDocument reparsed = XmlDocument.parse(out.toString());
+        assertEquals(document.size(), reparsed.size());
+        assertEquals("城市&图书馆", reparsed.getAttribute(0, "name"));
+        assertEquals("A <B>", reparsed.getTextContent(reparsed.findById("t1")));
+
+        XmlDocument compacted = XmlDocument.fromElement(root);
+        StringWriter again = new StringWriter();
+        try (XmlWriter writer = new XmlWriter(again)) {
+            writer.writeDocument(compacted);
+        }
+        assertEquals(out.toString().length(), again.toString().length());
+        assertTrue(compacted.estimateSize() > 0);
+    }
+
+    @Test
+    public void testLoadFromMappedFile() throws IOException {
+        Path file = Files.createTempFile("readonly", ".xml");
+        Path broken = Files.createTempFile("readonly-broken", ".xml");
+        try {
+            // 远大于解码窗口，含多字节字符、代理对和比窗口保留段更长的名称
+            StringBuilder xml = new StringBuilder("<lib id=\"root\">\n");
+            for (int i = 0; i < 20_000; i++) {
+                xml.append("<book id=\"b").append(i).append("\">图书😀").append(i).append("</book>\n");
+            }
+            String longName = "x".repeat(10_000);
+            xml.append("<").append(longName).append(" id=\"long\"/>\n</lib>");
+            Files.write(file, xml.toString().getBytes(StandardCharsets.UTF_8));
+            ReadOnlyXmlEditor editor = new ReadOnlyXmlEditor(file.toString());
+            editor.loadFromFile();
+            XmlDocument document = editor.getDocument();
+            assertEquals(20_002, document.size());
+            assertEquals("图书😀19999", document.getTextContent(document.findById("b19999")));
+            assertEquals(longName, document.getTagName(document.findById("long")));
+
+            // 出错时从头重新解码计算行号
+            Files.write(broken, xml.substring(0, xml.length() - "</lib>".length()).getBytes(StandardCharsets.UTF_8));
+            ReadOnlyXmlEditor brokenEditor = new ReadOnlyXmlEditor(broken.toString());
+            try {
+                brokenEditor.loadFromFile();
+                fail("应该抛出异常");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("第20003行"));
+            }
+
+            Path invalid = Files.createTempFile("readonly-invalid", ".xml");
+            try {
+                Files.write(invalid, new byte[]{'<', 'a', '>', (byte) 0xff, '<', '/', 'a', '>'});
+                new ReadOnlyXmlEditor(invalid.toString()).loadFromFile();
+                fail("应该抛出异常");
+            } catch (IOException expected) {
+                // 不是合法的 UTF-8
+            } finally {
+                Files.deleteIfExists(invalid);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(broken);
+        }
+    }
+}
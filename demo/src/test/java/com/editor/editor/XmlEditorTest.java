@@ -0,0 +1,151 @@
+package com.editor.editor;
+
+import com.editor.command.XmlAppendChildCommand;
+import com.editor.command.XmlDeleteElementCommand;
+import com.editor.command.XmlEditIdCommand;
+import com.editor.command.XmlInsertBeforeCommand;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * XmlEditor测试类
+ */
+public class XmlEditorTest {
+    private XmlEditor editor;
+
+    @Before
+    public void setUp() {
+        editor = new XmlEditor("test.xml");
+        editor.setRoot(new XmlParser("<bookstore id=\"root\">"
+                + "<book id=\"b1\" category=\"cooking\"><title id=\"t1\">Everyday</title></book>"
+                + "<book id=\"b2\" category=\"children\"><title id=\"t2\">Harry</title></book>"
+                + "</bookstore>").parse());
+    }
+
+    @Test
+    public void testIndexesFollowEdits() {
+        assertEquals(2, editor.findByTag("book").size());
+        assertEquals("b1", editor.findByAttribute("category", "cooking").get(0).getId());
+
+        XmlElement book = new XmlElement("book", "b3");
+        book.setAttribute("category", "cooking");
+        editor.executeCommand(new XmlAppendChildCommand(editor, book, editor.getRoot()));
+        Map<String, String> cooking = new HashMap<>();
+        cooking.put("category", "cooking");
+        assertEquals(2, editor.find("book", cooking).size());
+        assertTrue(editor.find("title", cooking).isEmpty());
+
+        // 删除元素时整棵子树都移出索引，撤销后恢复
+        editor.executeCommand(new XmlDeleteElementCommand(editor, editor.getElementById("b1")));
+        assertEquals(1, editor.findByTag("title").size());
+        assertNull(editor.getElementById("t1"));
+        assertEquals("b3", editor.findByAttribute("category", "cooking").get(0).getId());
+        assertTrue(editor.undo());
+        assertEquals(2, editor.findByTag("title").size());
+        assertNotNull(editor.getElementById("t1"));
+
+        editor.executeCommand(new XmlEditIdCommand(editor, editor.getElementById("b2"), "b4"));
+        assertTrue(editor.find(null, Collections.singletonMap("id", "b2")).isEmpty());
+        assertEquals(1, editor.find("book", Collections.singletonMap("id", "b4")).size());
+
+        assertTrue(editor.undo());
+        assertTrue(editor.undo());
+        assertEquals(1, editor.findByAttribute("category", "cooking").size());
+    }
+
+    private static String ids(List<XmlElement> elements) {
+        return elements.stream().map(XmlElement::getId).collect(Collectors.joining(","));
+    }
+
+    @Test
+    public void testIndexedResultsInDocumentOrder() {
+        XmlElement b0 = new XmlElement("book", "b0");
+        b0.setAttribute("category", "cooking");
+        b0.addChild(new XmlElement("title", "t0"));
+        editor.executeCommand(new XmlInsertBeforeCommand(editor, b0, editor.getElementById("b1")));
+        assertEquals("b0,b1,b2", ids(editor.findByTag("book")));
+        assertEquals("t0,t1,t2", ids(editor.findByTag("title")));
+        assertEquals("b0,b1", ids(editor.findByAttribute("category", "cooking")));
+        assertEquals("b0,b1,b2", ids(editor.select("//book").collect(Collectors.toList())));
+
+        // 删除后撤销，元素回到原来的位置
+        editor.executeCommand(new XmlDeleteElementCommand(editor, editor.getElementById("b1")));
+        assertTrue(editor.undo());
+        assertEquals("b0,b1,b2", ids(editor.select("//book").collect(Collectors.toList())));
+        assertEquals("t0,t1,t2", ids(editor.select("//title").collect(Collectors.toList())));
+
+        // 反复插在同一个位置，标号间隔用完后重新编号
+        XmlElement ref = editor.getElementById("b2");
+        for (int i = 0; i < 200; i++) {
+            XmlElement book = new XmlElement("book", "n" + i);
+            editor.executeCommand(new XmlInsertBeforeCommand(editor, book, ref));
+            ref = book;
+        }
+        List<XmlElement> books = editor.findByTag("book");
+        assertEquals(editor.getRoot().getChildren(), books);
+        assertEquals("n199", books.get(2).getId());
+        assertEquals("b2", books.get(books.size() - 1).getId());
+
+        // 在一个元素内部反复插入只重新编号附近的一段，前面的元素标号不变
+        List<Long> orders = books.stream().map(book -> book.order).collect(Collectors.toList());
+        XmlElement inner = editor.getElementById("t2");
+        for (int i = 0; i < 200; i++) {
+            XmlElement title = new XmlElement("title", "m" + i);
+            editor.executeCommand(new XmlInsertBeforeCommand(editor, title, inner));
+            inner = title;
+        }
+        assertEquals(orders, books.stream().map(book -> book.order).collect(Collectors.toList()));
+        List<XmlElement> titles = editor.findByTag("title");
+        assertEquals(203, titles.size());
+        assertEquals("m199", titles.get(2).getId());
+        assertEquals("t2", titles.get(titles.size() - 1).getId());
+        assertEquals(titles, editor.select("//title").collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testAbortBatchRestoresModified() {
+        assertFalse(editor.isModified());
+        editor.beginBatch();
+        editor.executeCommand(new XmlAppendChildCommand(editor, new XmlElement("book", "b3"), editor.getRoot()));
+        editor.abortBatch();
+        assertNull(editor.getElementById("b3"));
+        assertFalse(editor.isModified());
+    }
+
+    @Test
+    public void testChildrenViewAndVisitor() {
+        XmlElement root = editor.getRoot();
+        java.util.List<XmlElement> children = root.getChildren();
+        try {
+            children.clear();
+            fail("子元素视图应为只读");
+        } catch (UnsupportedOperationException expected) {
+            // 预期
+        }
+        root.addChild(new XmlElement("book", "b5"));
+        assertEquals(3, children.size());
+
+        StringBuilder order = new StringBuilder();
+        root.accept(new XmlElement.Visitor() {
+            @Override
+            public boolean enter(XmlElement element, int depth) {
+                order.append('<').append(element.getId()).append(depth);
+                // 跳过 b2 的子元素
+                return !"b2".equals(element.getId());
+            }
+
+            @Override
+            public void leave(XmlElement element, int depth) {
+                order.append('>');
+            }
+        });
+        assertEquals("<root0<b11<t12>><b21><b51>>", order.toString());
+    }
+}
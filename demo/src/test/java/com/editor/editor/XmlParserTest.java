@@ -0,0 +1,82 @@
+package com.editor.editor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * XmlParser测试类
+ */
+public class XmlParserTest {
+
+    @Test
+    public void testNestedSameNameTags() {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<div id=\"a\">\n"
+                + "  <div id=\"b\">\n"
+                + "    <div id=\"c\">inner</div>\n"
+                + "  </div>\n"
+                + "  <div id=\"d\"/>\n"
+                + "</div>\n";
+        XmlElement root = new XmlParser(xml).parse();
+        assertEquals("a", root.getId());
+        assertEquals(2, root.getChildren().size());
+        XmlElement b = root.getChildren().get(0);
+        assertEquals("b", b.getId());
+        assertEquals("inner", b.getChildren().get(0).getTextContent());
+        assertEquals("d", root.getChildren().get(1).getId());
+    }
+
+    @Test
+    public void testAttributesAndEntities() {
+        XmlElement root = new XmlParser("<book id='b1' title=\"A &amp; B\">1 &lt; 2</book>").parse();
+        assertEquals("A & B", root.getAttribute("title"));
+        assertEquals("1 < 2", root.getTextContent());
+    }
+
+    @Test
+    public void testRoundTripThroughXmlWriter() throws Exception {
+        XmlElement root = new XmlParser("<a id=\"a\"><b id=\"b\" note=\"x&quot;y\">1 &amp; 2</b><c id=\"c\"/></a>").parse();
+        java.io.StringWriter out = new java.io.StringWriter();
+        try (XmlWriter writer = new XmlWriter(out)) {
+            writer.writeDocument(root);
+        }
+        XmlElement reparsed = new XmlParser(out.toString()).parse();
+        XmlElement b = reparsed.getChildren().get(0);
+        assertEquals("x\"y", b.getAttribute("note"));
+        assertEquals("1 & 2", b.getTextContent());
+        assertTrue(out.toString().contains("  <c id=\"c\"/>\n"));
+    }
+
+    @Test
+    public void testEmptyDocument() {
+        assertNull(new XmlParser("<?xml version=\"1.0\"?>\n").parse());
+    }
+
+    @Test
+    public void testMismatchedEndTagReportsPosition() {
+        try {
+            new XmlParser("<a id=\"a\">\n  <b id=\"b\"></c>\n</a>").parse();
+            fail("应当抛出异常");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("第2行，第13列"));
+        }
+    }
+
+    @Test
+    public void testCharacterReferenceRange() {
+        assertEquals("A\uD83D\uDE00", new XmlParser("<a id=\"a\">&#65;&#x1F600;</a>").parse().getTextContent());
+        for (String reference : new String[]{"&#xFFFFFFFF;", "&#99999999999;", "&#x110000;", "&#xD800;", "&#x;"}) {
+            try {
+                new XmlParser("<a id=\"a\">\n  " + reference + "</a>").parse();
+                fail("应当拒绝 " + reference);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("第2行，第3列"));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingId() {
+        new XmlParser("<a></a>").parse();
+    }
+}
@@ -0,0 +1,84 @@
+package com.editor.editor;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * XmlQuery测试类
+ */
+public class XmlQueryTest {
+    private XmlEditor editor;
+
+    @Before
+    public void setUp() {
+        editor = new XmlEditor("test.xml");
+        editor.setRoot(new XmlParser("<bookstore id=\"root\">"
+                + "<book id=\"b1\" category=\"cooking\"><title id=\"t1\">Everyday</title></book>"
+                + "<book id=\"b2\" category=\"children\"><title id=\"t2\">Harry</title></book>"
+                + "<shelf id=\"s1\"><book id=\"b3\" category=\"cooking\"><title id=\"t3\">Bread</title></book></shelf>"
+                + "</bookstore>").parse());
+    }
+
+    private static List<String> ids(Stream<XmlElement> elements) {
+        return elements.map(XmlElement::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testPathsAndPredicates() {
+        XmlElement root = editor.getRoot();
+        assertEquals(Arrays.asList("b1", "b2"), ids(XmlQuery.compile("/bookstore/book").select(root)));
+        assertEquals(Arrays.asList("t1", "t3"),
+                ids(XmlQuery.compile("//book[@category='cooking']/title").select(root)));
+        assertEquals(Arrays.asList("b2"), ids(XmlQuery.compile("/bookstore/book[2]").select(root)));
+        assertEquals(Arrays.asList("b2", "b3"), ids(XmlQuery.compile("//book[last()]").select(root)));
+        assertEquals(Arrays.asList("t2"), ids(XmlQuery.compile("//title[text()=\"Harry\"]").select(root)));
+        assertEquals(Arrays.asList("b3"), ids(XmlQuery.compile("shelf/*[@category]").select(root)));
+        assertEquals(Arrays.asList("b2"), ids(XmlQuery.compile("//book[@category!=\"cooking\"]").select(root)));
+        assertTrue(ids(XmlQuery.compile("/book").select(root)).isEmpty());
+        // 嵌套的上下文不会产生重复结果
+        assertEquals(Arrays.asList("t1", "t2", "t3"), ids(XmlQuery.compile("//*//title").select(root)));
+    }
+
+    @Test
+    public void testNestedContextsInDocumentOrder() {
+        String xml = "<r id=\"r\"><a id=\"a1\"><a id=\"a2\"><b id=\"b1\"/></a><b id=\"b2\"/></a>"
+                + "<b id=\"b3\"/><a id=\"a3\"><b id=\"b4\"/></a></r>";
+        XmlEditor nested = new XmlEditor("nested.xml");
+        nested.setRoot(new XmlParser(xml).parse());
+        List<String> expected = Arrays.asList("b1", "b2", "b4");
+        assertEquals(expected, ids(XmlQuery.compile("//a/b").select(nested.getRoot())));
+        assertEquals(expected, ids(nested.select("//a/b")));
+        assertEquals(expected, ids(XmlQuery.compile("a//b").select(nested.getRoot())));
+        assertEquals(expected, XmlQuery.compile("//a/b").select(XmlDocument.parse(xml))
+                .map(XmlDocument.Node::getId).collect(Collectors.toList()));
+        // 带位置条件的后代步骤：每个上下文的第1个 b 子元素
+        assertEquals(Arrays.asList("b1", "b2", "b3", "b4"), ids(nested.select("//b[1]")));
+
+        // 编辑后新元素的顺序标号仍然与文档顺序一致
+        XmlElement b1 = nested.getElementById("b1");
+        XmlElement b0 = new XmlElement("b", "b0");
+        b1.getParent().insertBefore(b0, b1);
+        nested.elementAdded(b0);
+        assertEquals(Arrays.asList("b0", "b1", "b2", "b4"), ids(nested.select("//a/b")));
+    }
+
+    @Test
+    public void testIndexedSelectAndLaziness() {
+        assertEquals(Arrays.asList("t1", "t3"), ids(editor.select("//book[@category=\"cooking\"]/title")));
+        assertEquals(Arrays.asList("t3"), ids(editor.select("//*[@id=\"b3\"]/title")));
+        assertEquals(1, editor.select("//title").limit(1).count());
+
+        try {
+            XmlQuery.compile("//book[@category=cooking]");
+            fail("缺少引号应抛出异常");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("位置 18"));
+        }
+    }
+}
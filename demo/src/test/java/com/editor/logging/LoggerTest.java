@@ -40,6 +40,151 @@ public class LoggerTest {
         assertTrue(logContent.contains("test command"));
     }
 
+    @Test
+    public void testAsyncLogCommand() {
+        Logger asyncLogger = new Logger(true, 16, 50);
+        String filePath = testFile.toString();
+        asyncLogger.enableLog(filePath);
+        for (int i = 0; i < 1000; i++) {
+            asyncLogger.logCommand(filePath, "command " + i);
+        }
+        String logContent = asyncLogger.readLog(filePath);
+        assertTrue(logContent.startsWith("session start at "));
+        assertTrue(logContent.contains("command 0\n") || logContent.contains("command 0\r\n"));
+        assertTrue(logContent.contains("command 999"));
+        asyncLogger.closeAll();
+    }
+
+    @Test
+    public void testCloseAllStopsWriterThread() {
+        String filePath = testFile.toString();
+        int before = countWriterThreads();
+        for (int i = 0; i < 20; i++) {
+            Logger asyncLogger = new Logger(true, 16, 50);
+            asyncLogger.enableLog(filePath);
+            asyncLogger.logCommand(filePath, "command " + i);
+            asyncLogger.closeAll();
+        }
+        assertEquals(before, countWriterThreads());
+
+        // 关闭后继续记录会重新启动写线程
+        Logger asyncLogger = new Logger(true, 16, 50);
+        asyncLogger.enableLog(filePath);
+        asyncLogger.closeAll();
+        asyncLogger.logCommand(filePath, "after close");
+        assertTrue(asyncLogger.readLog(filePath).contains("after close"));
+        asyncLogger.closeAll();
+        assertEquals(before, countWriterThreads());
+    }
+
+    private static int countWriterThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if ("log-writer".equals(thread.getName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testSyncOnSave() {
+        Logger asyncLogger = new Logger(true, 1024, 60_000);
+        asyncLogger.setSyncOnSave(true);
+        String filePath = testFile.toString();
+        asyncLogger.enableLog(filePath);
+        asyncLogger.update(new Event("SAVE", "save " + filePath, filePath));
+        // 刷新间隔很长，能读到说明保存事件已经同步写出
+        assertTrue(readLogFile(filePath).contains("save " + filePath));
+        asyncLogger.closeAll();
+    }
+
+    @Test
+    public void testPagedLogShow() throws Exception {
+        String filePath = testFile.toString();
+        logger.enableLog(filePath);
+        logger.logCommand(filePath, "first 1");
+        logger.logCommand(filePath, "first 2");
+        logger.closeAll();
+        logger.enableLog(filePath);
+        logger.logCommand(filePath, "second 1");
+
+        assertEquals("second 1\n", stripTimestamps(logger.readLogTail(filePath, 1)));
+        assertTrue(logger.readLogTail(filePath, 2).startsWith("session start at "));
+        String first = logger.readLogSession(filePath, 1);
+        assertTrue(first.contains("first 2") && !first.contains("second 1"));
+        String last = logger.readLogSession(filePath, -1);
+        assertTrue(last.startsWith("session start at ") && last.contains("second 1") && !last.contains("first"));
+        assertTrue(logger.readLogSession(filePath, 3).startsWith("会话不存在"));
+        assertEquals(logger.readLog(filePath), logger.readLogSince(filePath, 0));
+        assertEquals("", logger.readLogSince(filePath, System.currentTimeMillis() + 60_000));
+
+        // 索引丢失后从日志重建
+        Path logPath = testFile.resolveSibling("." + testFile.getFileName() + ".log");
+        Files.delete(LogIndex.indexPath(logPath));
+        assertEquals(2, LogIndex.load(logPath).getSessionCount());
+        assertEquals(last, logger.readLogSession(filePath, 2));
+        logger.closeAll();
+    }
+
+    @Test
+    public void testStaleIndexAfterRewrite() throws Exception {
+        Path logPath = testFile.resolveSibling("." + testFile.getFileName() + ".log");
+        try {
+            Files.write(logPath, java.util.Arrays.asList(
+                    "session start at 20240101 10:00:00", "20240101 10:00:01 old 1",
+                    "session start at 20240101 11:00:00", "20240101 11:00:01 old 2"));
+            assertEquals(2, LogIndex.load(logPath).getSessionCount());
+
+            // 截断后重写成更长的日志，会话位置都变了
+            Files.write(logPath, java.util.Arrays.asList(
+                    "20240202 09:00:00 orphan line before any session",
+                    "session start at 20240202 10:00:00", "20240202 10:00:01 new 1",
+                    "session start at 20240202 11:00:00", "20240202 11:00:01 new 2",
+                    "session start at 20240202 12:00:00", "20240202 12:00:01 new 3"));
+            LogIndex index = LogIndex.load(logPath);
+            assertEquals(3, index.getSessionCount());
+            String third = LogIndex.readRange(logPath, index.getOffset(2), Long.MAX_VALUE);
+            assertTrue(third.startsWith("session start at 20240202 12:00:00"));
+
+            // 只追加时增量扫描新增部分
+            Files.write(logPath, java.util.Arrays.asList("session start at 20240202 13:00:00"),
+                    java.nio.file.StandardOpenOption.APPEND);
+            index = LogIndex.load(logPath);
+            assertEquals(4, index.getSessionCount());
+            assertTrue(LogIndex.readRange(logPath, index.getOffset(3), Long.MAX_VALUE)
+                    .startsWith("session start at 20240202 13:00:00"));
+        } finally {
+            Files.deleteIfExists(logPath);
+            Files.deleteIfExists(LogIndex.indexPath(logPath));
+        }
+    }
+
+    @Test
+    public void testReadRangeAcrossChunks() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; content.length() < 200_000; i++) {
+            content.append("第").append(i).append("行 日志\n");
+        }
+        Files.write(testFile, content.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        // 从第二个字符（跳过三字节的“第”）读到文件末尾之后
+        assertEquals(content.substring(1), LogIndex.readRange(testFile, 3, Long.MAX_VALUE));
+        assertEquals("", LogIndex.readRange(testFile, 10, 5));
+    }
+
+    private String stripTimestamps(String log) {
+        return log.replaceAll("(?m)^\\d{8} \\d{2}:\\d{2}:\\d{2} ", "");
+    }
+
+    private String readLogFile(String filePath) {
+        try {
+            java.nio.file.Path path = java.nio.file.Paths.get(filePath);
+            return new String(Files.readAllBytes(path.resolveSibling("." + path.getFileName() + ".log")));
+        } catch (java.io.IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     @Test
     public void testObserverUpdate() {
         String filePath = testFile.toString();
@@ -0,0 +1,133 @@
+package com.editor.spellcheck;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dictionary测试类
+ */
+public class DictionaryTest {
+
+    @Test
+    public void testLookup() {
+        Dictionary dictionary = Dictionary.of(Arrays.asList("World", "hello", "apple", "hello"));
+        assertEquals(3, dictionary.size());
+        assertEquals("apple", dictionary.getWord(0));
+        assertEquals("world", dictionary.getWord(2));
+        assertTrue(dictionary.contains("hello"));
+        assertTrue(dictionary.contains(new StringBuilder("world")));
+        assertFalse(dictionary.contains("hell"));
+        assertEquals(-1, dictionary.indexOf(""));
+    }
+
+    @Test
+    public void testLoadTextAndBinary() throws Exception {
+        Path text = Files.createTempFile("dict", ".txt");
+        Path binary = Files.createTempFile("dict", ".bin");
+        try {
+            Files.writeString(text, "# 词频表\nthe 100\ncat 5\n\nCat 2\ndog\n");
+            Dictionary dictionary = Dictionary.load(text);
+            assertEquals(3, dictionary.size());
+            assertEquals(7, dictionary.getFrequency(dictionary.indexOf("cat")));
+            assertEquals(1, dictionary.getFrequency(dictionary.indexOf("dog")));
+
+            dictionary.save(binary);
+            Dictionary loaded = Dictionary.load(binary);
+            assertEquals(dictionary.size(), loaded.size());
+            for (int i = 0; i < dictionary.size(); i++) {
+                assertEquals(dictionary.getWord(i), loaded.getWord(i));
+                assertEquals(dictionary.getFrequency(i), loaded.getFrequency(i));
+                assertEquals(i, loaded.indexOf(dictionary.getWord(i)));
+            }
+            assertEquals("cat", new SymSpellChecker(loaded).getSuggestion("cta"));
+        } finally {
+            Files.deleteIfExists(text);
+            Files.deleteIfExists(binary);
+        }
+    }
+
+    @Test
+    public void testCorruptBinaryHeader() throws Exception {
+        Path binary = Files.createTempFile("dict", ".bin");
+        try {
+            Dictionary.of(Arrays.asList("the", "cat")).save(binary);
+            byte[] bytes = Files.readAllBytes(binary);
+            // 把词数改成一个很大的值，不应按它分配数组
+            java.nio.ByteBuffer.wrap(bytes).putInt(8, Integer.MAX_VALUE - 1);
+            Files.write(binary, bytes);
+            try {
+                Dictionary.load(binary);
+                fail("应该抛出异常");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("已损坏"));
+            }
+
+            Files.write(binary, java.util.Arrays.copyOf(bytes, 12));
+            try {
+                Dictionary.load(binary);
+                fail("应该抛出异常");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("已损坏"));
+            }
+        } finally {
+            Files.deleteIfExists(binary);
+        }
+    }
+
+    @Test
+    public void testCorruptBinaryArrays() throws Exception {
+        Path binary = Files.createTempFile("dict", ".bin");
+        try {
+            Dictionary.of(Arrays.asList("the", "cat")).save(binary);
+            byte[] original = Files.readAllBytes(binary);
+            // 头部之后依次是 3 个单词边界、6 个字符、2 个词频，然后是散列表
+            int tableStart = 20 + 3 * Integer.BYTES + 6 * Character.BYTES + 2 * Long.BYTES;
+            int capacity = (original.length - tableStart) / Integer.BYTES;
+            List<byte[]> corrupted = new java.util.ArrayList<>();
+
+            byte[] bytes = original.clone();
+            java.nio.ByteBuffer.wrap(bytes).putInt(20 + Integer.BYTES, 100);
+            corrupted.add(bytes);
+            bytes = original.clone();
+            java.nio.ByteBuffer.wrap(bytes).putInt(tableStart, 99);
+            corrupted.add(bytes);
+            // 散列表没有空槽时查找不存在的单词会一直循环
+            bytes = original.clone();
+            for (int i = 0; i < capacity; i++) {
+                java.nio.ByteBuffer.wrap(bytes).putInt(tableStart + i * Integer.BYTES, i % 2 + 1);
+            }
+            corrupted.add(bytes);
+
+            for (byte[] content : corrupted) {
+                Files.write(binary, content);
+                try {
+                    Dictionary.load(binary);
+                    fail("应该抛出异常");
+                } catch (IllegalArgumentException e) {
+                    assertTrue(e.getMessage().contains("已损坏"));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(binary);
+        }
+    }
+
+    @Test
+    public void testInvalidFrequency() throws Exception {
+        Path text = Files.createTempFile("dict", ".txt");
+        try {
+            Files.writeString(text, "the 100\ncat many\n");
+            Dictionary.load(text);
+            fail("应该抛出异常");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("第2行"));
+        } finally {
+            Files.deleteIfExists(text);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.editor.spellcheck;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ParallelSpellChecker测试类
+ */
+public class ParallelSpellCheckerTest {
+    private static final String[] WORDS = {"the", "book", "wrold", "hello", "tiem", "good", "yeer", "people"};
+
+    @Test
+    public void testSameResultAsSequential() {
+        Random random = new Random(3);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            for (int j = random.nextInt(6); j > 0; j--) {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            text.append('\n');
+        }
+        SymSpellChecker sequential = new SymSpellChecker();
+        List<SpellError> expected = sequential.checkSpelling(text.toString());
+        List<SpellError> actual;
+        try (ParallelSpellChecker parallel = new ParallelSpellChecker(sequential, 4)) {
+            actual = parallel.checkSpelling(text.toString());
+        }
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getWord(), actual.get(i).getWord());
+            assertEquals(expected.get(i).getLine(), actual.get(i).getLine());
+            assertEquals(expected.get(i).getColumn(), actual.get(i).getColumn());
+            assertEquals(expected.get(i).getSuggestion(), actual.get(i).getSuggestion());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreads() {
+        new ParallelSpellChecker(new SymSpellChecker(), 0);
+    }
+}
@@ -0,0 +1,136 @@
+package com.editor.spellcheck;
+
+import com.editor.command.AppendCommand;
+import com.editor.editor.TextEditor;
+import com.editor.editor.XmlElement;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SpellCheckCache测试类
+ */
+public class SpellCheckCacheTest {
+    private final SpellChecker checker = new SymSpellChecker();
+
+    @Test
+    public void testOnlyDirtyLinesRechecked() {
+        TextEditor editor = new TextEditor("test.txt");
+        editor.setLines(Arrays.asList("hello wrold", "the book", "good tiem"));
+        SpellCheckCache cache = new SpellCheckCache();
+        editor.attach(cache);
+
+        assertEquals(2, cache.check(editor.getBuffer(), checker).size());
+        assertEquals(3, cache.getCheckedCount());
+        assertEquals(2, cache.check(editor.getBuffer(), checker).size());
+        assertEquals(0, cache.getCheckedCount());
+
+        editor.insert(2, 1, "bokk ");
+        List<SpellError> errors = cache.check(editor.getBuffer(), checker);
+        assertEquals(1, cache.getCheckedCount());
+        assertEquals(3, errors.size());
+        assertEquals("bokk", errors.get(1).getWord());
+        assertEquals(2, errors.get(1).getLine());
+
+        editor.executeCommand(new AppendCommand(editor, "yeer"));
+        errors = cache.check(editor.getBuffer(), checker);
+        assertEquals(1, cache.getCheckedCount());
+        assertEquals(4, errors.get(3).getLine());
+
+        // 撤销没有行号信息，全部重新检查
+        editor.undo();
+        assertEquals(3, cache.check(editor.getBuffer(), checker).size());
+        assertEquals(3, cache.getCheckedCount());
+    }
+
+    @Test
+    public void testMissedEditsRechecked() {
+        TextEditor editor = new TextEditor("test.txt");
+        editor.setLines(Arrays.asList("hello wrold", "the book"));
+        SpellCheckCache cache = new SpellCheckCache();
+        assertEquals(1, cache.check(editor.getBuffer(), checker).size());
+
+        // 直接改缓冲区不会通知缓存，行数对不上时重新检查
+        editor.getBuffer().insertLine(2, "good tiem");
+        List<SpellError> errors = cache.check(editor.getBuffer(), checker);
+        assertEquals(2, errors.size());
+        assertEquals(3, errors.get(1).getLine());
+        editor.getBuffer().removeLine(2);
+        editor.getBuffer().removeLine(1);
+        assertEquals(1, cache.check(editor.getBuffer(), checker).size());
+        assertEquals(1, cache.getCheckedCount());
+    }
+
+    @Test
+    public void testXmlElementsReused() {
+        XmlElement root = new XmlElement("bookstore", "root");
+        XmlElement title = new XmlElement("title", "t1");
+        title.setTextContent("Harry Pottre");
+        XmlElement author = new XmlElement("author", "a1");
+        author.setTextContent("Rowling");
+        root.addChild(title);
+        root.addChild(author);
+        SpellCheckCache cache = new SpellCheckCache();
+
+        assertEquals(1, cache.check(root, checker).size());
+        assertEquals(2, cache.getCheckedCount());
+        title.setId("t2");
+        author.setTextContent("Rowlign");
+        List<XmlSpellError> errors = cache.check(root, checker);
+        assertEquals(1, cache.getCheckedCount());
+        assertEquals(2, errors.size());
+        assertEquals("t2", errors.get(0).getElementId());
+        assertEquals("Rowlign", errors.get(1).getWord());
+    }
+
+    @Test
+    public void testStreamingUsesBatchCheck() {
+        List<String> lines = new java.util.ArrayList<>();
+        XmlElement root = new XmlElement("lib", "root");
+        for (int i = 0; i < 10_000; i++) {
+            lines.add("wrold " + i);
+            XmlElement book = new XmlElement("book", "b" + i);
+            book.setTextContent("wrold");
+            root.addChild(book);
+        }
+        TextEditor editor = new TextEditor("test.txt");
+        editor.setLines(lines);
+        int[] batches = {0};
+        SpellChecker counting = new SpellChecker() {
+            @Override
+            public List<SpellError> checkSpelling(String text) {
+                return checker.checkSpelling(text);
+            }
+
+            @Override
+            public List<List<SpellError>> checkAll(List<String> texts) {
+                batches[0]++;
+                return SpellChecker.super.checkAll(texts);
+            }
+
+            @Override
+            public String getSuggestion(String word) {
+                return checker.getSuggestion(word);
+            }
+        };
+
+        // 流式检查走批量接口，错误按顺序交付，停止后不再检查后面的块
+        SpellCheckCache cache = new SpellCheckCache();
+        int[] line = {0};
+        assertFalse(cache.check(editor.getBuffer(), counting, error -> ++line[0] == error.getLine() && line[0] < 5));
+        assertEquals(5, line[0]);
+        assertEquals(1, batches[0]);
+        assertTrue(cache.getCheckedCount() < lines.size());
+        assertEquals(lines.size(), cache.check(editor.getBuffer(), counting).size());
+
+        batches[0] = 0;
+        List<String> ids = new java.util.ArrayList<>();
+        assertFalse(cache.check(root, counting, error -> ids.add(error.getElementId()) && ids.size() < 3));
+        assertEquals(Arrays.asList("b0", "b1", "b2"), ids);
+        assertEquals(1, batches[0]);
+        assertTrue(cache.getCheckedCount() < lines.size());
+        assertEquals(lines.size(), cache.check(root, counting).size());
+    }
+}
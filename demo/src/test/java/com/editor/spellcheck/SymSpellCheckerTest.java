@@ -0,0 +1,102 @@
+package com.editor.spellcheck;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * SymSpellChecker测试类
+ */
+public class SymSpellCheckerTest {
+
+    @Test
+    public void testCheckSpelling() {
+        SymSpellChecker checker = new SymSpellChecker();
+        List<SpellError> errors = checker.checkSpelling("Hello wrold\nthe Autor");
+        assertEquals(2, errors.size());
+        assertEquals("wrold", errors.get(0).getWord());
+        assertEquals("world", errors.get(0).getSuggestion());
+        assertEquals(1, errors.get(0).getLine());
+        assertEquals(7, errors.get(0).getColumn());
+        assertEquals("Autor", errors.get(1).getWord());
+        assertEquals("author", errors.get(1).getSuggestion());
+        assertEquals(2, errors.get(1).getLine());
+    }
+
+    @Test
+    public void testStreaming() throws Exception {
+        SymSpellChecker checker = new SymSpellChecker();
+        String text = "helo wrold\nthe bok\nyeer tiem";
+        List<SpellError> expected = checker.checkSpelling(text);
+        assertEquals(5, expected.size());
+
+        List<SpellError> fromReader = new java.util.ArrayList<>();
+        assertTrue(checker.checkSpelling(new java.io.StringReader(text), fromReader::add));
+        assertEquals(expected.size(), fromReader.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getWord(), fromReader.get(i).getWord());
+            assertEquals(expected.get(i).getLine(), fromReader.get(i).getLine());
+            assertEquals(expected.get(i).getColumn(), fromReader.get(i).getColumn());
+        }
+
+        // 回调要求停止后不再继续
+        List<SpellError> firstTwo = new java.util.ArrayList<>();
+        assertFalse(checker.checkSpelling(text, error -> firstTwo.add(error) && firstTwo.size() < 2));
+        assertEquals(2, firstTwo.size());
+
+        java.util.Iterator<SpellError> iterator = checker.errors(new StringBuilder(text));
+        assertEquals("helo", iterator.next().getWord());
+        assertEquals("wrold", iterator.next().getWord());
+        assertTrue(iterator.hasNext());
+    }
+
+    @Test
+    public void testRankedSuggestions() {
+        Map<String, Long> frequencies = new LinkedHashMap<>();
+        frequencies.put("cat", 10L);
+        frequencies.put("car", 50L);
+        frequencies.put("cart", 100L);
+        frequencies.put("dog", 1L);
+        SymSpellChecker checker = new SymSpellChecker(frequencies, 2);
+        // 同距离按词频排序，距离更近的优先
+        assertEquals(Arrays.asList("car", "cat", "cart"), checker.getSuggestions("cax", 5));
+        assertEquals("cart", checker.getSuggestion("crat"));
+        assertEquals("zzzzz", checker.getSuggestion("zzzzz"));
+        assertTrue(checker.getSuggestions("car", 1).contains("car"));
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(7);
+        Set<String> dictionary = new HashSet<>();
+        while (dictionary.size() < 2000) {
+            dictionary.add(randomWord(random, 1 + random.nextInt(10)));
+        }
+        SymSpellChecker checker = new SymSpellChecker(dictionary);
+        for (int i = 0; i < 500; i++) {
+            String query = randomWord(random, 1 + random.nextInt(11));
+            Set<String> expected = new HashSet<>();
+            for (String word : dictionary) {
+                if (SymSpellChecker.distance(query, word, 2) >= 0) {
+                    expected.add(word);
+                }
+            }
+            assertEquals(query, expected, new HashSet<>(checker.getSuggestions(query, Integer.MAX_VALUE)));
+        }
+    }
+
+    private String randomWord(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(4)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,71 @@
+package com.editor.spellcheck;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * WordTokenizer测试类
+ */
+public class WordTokenizerTest {
+
+    @Test
+    public void testSpans() {
+        WordTokenizer tokenizer = new WordTokenizer("Hello, world!\n\n  it's 42x\r\nend");
+        String[] words = {"Hello", "world", "it", "s", "x", "end"};
+        int[][] positions = {{1, 1, 0}, {1, 8, 7}, {3, 3, 17}, {3, 6, 20}, {3, 10, 24}, {4, 1, 27}};
+        for (int i = 0; i < words.length; i++) {
+            assertTrue(tokenizer.next());
+            assertEquals(words[i], tokenizer.getWord());
+            assertEquals(words[i].length(), tokenizer.getLength());
+            assertEquals(positions[i][0], tokenizer.getLine());
+            assertEquals(positions[i][1], tokenizer.getColumn());
+            assertEquals(positions[i][2], tokenizer.getOffset());
+        }
+        assertFalse(tokenizer.next());
+        assertFalse(new WordTokenizer(" \n 1 ").next());
+    }
+
+    @Test
+    public void testReaderMatchesCharSequence() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            text.append(i % 7 == 0 ? "\n" : " ").append("word").append(i % 13 == 0 ? "x".repeat(9000) : "");
+        }
+        WordTokenizer expected = new WordTokenizer(text);
+        // 每次只读一个字符，覆盖单词跨窗口和超长单词的情况
+        WordTokenizer actual = new WordTokenizer(new java.io.Reader() {
+            private int position;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (position >= text.length()) {
+                    return -1;
+                }
+                buffer[offset] = text.charAt(position++);
+                return 1;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        while (expected.next()) {
+            assertTrue(actual.next());
+            assertEquals(expected.getWord(), actual.getWord());
+            assertEquals(expected.getOffset(), actual.getOffset());
+            assertEquals(expected.getLine(), actual.getLine());
+            assertEquals(expected.getColumn(), actual.getColumn());
+        }
+        assertFalse(actual.next());
+    }
+
+    @Test
+    public void testCaseInsensitiveLookup() {
+        Dictionary dictionary = Dictionary.of(java.util.Arrays.asList("hello", "world"));
+        StringBuilder text = new StringBuilder("say HeLLo World");
+        assertEquals(dictionary.indexOf("hello"), dictionary.indexOfIgnoreCase(text, 4, 9));
+        assertEquals(dictionary.indexOf("world"), dictionary.indexOfIgnoreCase(text, 10, 15));
+        assertEquals(-1, dictionary.indexOfIgnoreCase(text, 0, 3));
+        assertEquals(-1, dictionary.indexOf("World"));
+    }
+}
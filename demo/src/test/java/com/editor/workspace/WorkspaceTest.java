@@ -1,7 +1,9 @@
 package com.editor.workspace;
 
 import com.editor.editor.Editor;
+import com.editor.editor.MappedTextBuffer;
 import com.editor.editor.TextEditor;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -16,12 +18,21 @@ import java.nio.file.Path;
 public class WorkspaceTest {
     private Workspace workspace;
     private Path testFile;
+    private final java.util.List<Path> tempFiles = new java.util.ArrayList<>();
 
     @Before
     public void setUp() throws IOException {
         workspace = new Workspace();
         testFile = Files.createTempFile("test", ".txt");
         Files.write(testFile, java.util.Arrays.asList("Line 1", "Line 2"));
+        tempFiles.add(testFile);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (Path file : tempFiles) {
+            Files.deleteIfExists(file);
+        }
     }
 
     @Test
@@ -34,6 +45,42 @@ public class WorkspaceTest {
         assertEquals(2, textEditor.getLines().size());
     }
 
+    @Test
+    public void testReloadReleasesPreviousEditor() throws IOException {
+        workspace.setLazyLoadThreshold(0);
+        workspace.loadFile(testFile.toString());
+        TextEditor previous = (TextEditor) workspace.getEditor(testFile.toString());
+        previous.executeCommand(new com.editor.command.AppendCommand(previous, "Line 3"));
+        assertTrue(previous.canUndo());
+
+        workspace.loadFile(testFile.toString());
+        assertNotSame(previous, workspace.getEditor(testFile.toString()));
+        // 旧编辑器的撤销历史已清空，映射的文件已关闭
+        assertFalse(previous.canUndo());
+        try {
+            previous.save();
+            fail("已关闭的缓冲区不能再保存");
+        } catch (IOException expected) {
+            // 期望的异常
+        }
+        assertEquals(java.util.Arrays.asList("Line 1", "Line 2"), Files.readAllLines(testFile));
+    }
+
+    @Test
+    public void testLazyLoadFile() throws IOException {
+        workspace.setLazyLoadThreshold(0);
+        workspace.loadFile(testFile.toString());
+        TextEditor textEditor = (TextEditor) workspace.getEditor(testFile.toString());
+        assertTrue(textEditor.getBuffer() instanceof MappedTextBuffer);
+        assertEquals("Line 2", textEditor.getBuffer().getLine(1));
+
+        textEditor.insert(1, 5, " one");
+        textEditor.append("Line 3");
+        assertEquals(3, textEditor.getLines().size());
+        workspace.saveFile(testFile.toString());
+        assertEquals(java.util.Arrays.asList("Line one 1", "Line 2", "Line 3"), Files.readAllLines(testFile));
+    }
+
     @Test
     public void testInitFile() {
         String filePath = "newfile.txt";
@@ -56,6 +103,40 @@ public class WorkspaceTest {
         assertFalse(workspace.isModified(testFile.toString()));
     }
 
+    @Test
+    public void testSaveAllConcurrently() throws IOException {
+        workspace.setSaveThreads(4);
+        java.util.List<Path> files = new java.util.ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Path file = Files.createTempFile("test" + i, ".txt");
+            tempFiles.add(file);
+            Files.write(file, java.util.Arrays.asList("Line 1"));
+            workspace.loadFile(file.toString());
+            ((TextEditor) workspace.getEditor(file.toString())).append("Line " + i);
+            workspace.setModified(file.toString(), true);
+            files.add(file);
+        }
+        workspace.saveAll();
+        for (int i = 0; i < files.size(); i++) {
+            assertFalse(workspace.isModified(files.get(i).toString()));
+            assertEquals(java.util.Arrays.asList("Line 1", "Line " + i), Files.readAllLines(files.get(i)));
+        }
+    }
+
+    @Test
+    public void testSaveAllReportsFailures() throws IOException {
+        workspace.setSaveThreads(2);
+        workspace.initFile("missing-dir/a.txt", false);
+        workspace.initFile("missing-dir/b.txt", false);
+        try {
+            workspace.saveAll();
+            fail("应当抛出异常");
+        } catch (SaveAllException e) {
+            assertEquals(2, e.getFailures().size());
+            assertTrue(workspace.isModified("missing-dir/a.txt"));
+        }
+    }
+
     @Test
     public void testCloseFile() throws IOException {
         workspace.loadFile(testFile.toString());